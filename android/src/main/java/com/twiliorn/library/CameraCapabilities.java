@@ -0,0 +1,243 @@
+/**
+ * Process-wide cache of the cameras on the device and their capture formats.
+ */
+
+package com.twiliorn.library;
+
+import android.content.Context;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import tvi.webrtc.Camera1Enumerator;
+import tvi.webrtc.Camera2Enumerator;
+import tvi.webrtc.CameraEnumerationAndroid.CaptureFormat;
+import tvi.webrtc.CameraEnumerator;
+
+/*
+ * Querying capture formats opens each camera, which takes hundreds of milliseconds on low-end
+ * devices. The cameras are enumerated once per camera API, ahead of time on a background thread
+ * through prefetch(), and every format selection reads the cached result.
+ *
+ * The cache is refreshed in the background when a camera that is not known yet becomes
+ * available, e.g. an external camera being plugged in. Availability callbacks name cameras by
+ * their Camera2 id, so they are compared against CameraManager's id list as of the last probe,
+ * whichever API the formats come from. Cameras merely being opened and closed, including by our
+ * own capturer, do not trigger a refresh. A refresh only probes the API the app captures with,
+ * the other one is dropped and probed again if it is ever asked for, and keeps the previous
+ * formats of a camera that could not be queried because it was in use.
+ */
+final class CameraCapabilities {
+    private static final String TAG = "RNTwilioVideo";
+    private static final String PROBE_THREAD_NAME = "RNTwilioCameraProbe";
+
+    private static CameraCapabilities cached;
+    private static CameraCapabilities cachedCamera2;
+    private static Context applicationContext;
+    private static Handler probeHandler;
+    private static boolean refreshPending = false;
+    // CameraManager ids as of the last probe, null until the first one
+    @Nullable
+    private static String[] cameraIds;
+    // The API of the last format selection, null until the app asked for one
+    @Nullable
+    private static Boolean usesCamera2;
+
+    private final Map<String, List<CaptureFormat>> supportedFormats;
+    @Nullable
+    private final String frontFacingDevice;
+    @Nullable
+    private final String backFacingDevice;
+
+    private CameraCapabilities(Map<String, List<CaptureFormat>> supportedFormats,
+                               @Nullable String frontFacingDevice,
+                               @Nullable String backFacingDevice) {
+        this.supportedFormats = supportedFormats;
+        this.frontFacingDevice = frontFacingDevice;
+        this.backFacingDevice = backFacingDevice;
+    }
+
+    /*
+     * Start enumerating on a background thread and watch for new cameras.
+     */
+    static synchronized void prefetch(Context context) {
+        if (probeHandler != null) {
+            return;
+        }
+        applicationContext = context.getApplicationContext();
+        HandlerThread probeThread = new HandlerThread(PROBE_THREAD_NAME);
+        probeThread.start();
+        probeHandler = new Handler(probeThread.getLooper());
+        probeHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                snapshotCameraIds();
+                load(applicationContext, false);
+                if (isCamera2Supported(applicationContext)) {
+                    load(applicationContext, true);
+                }
+            }
+        });
+
+        CameraManager cameraManager =
+                (CameraManager) applicationContext.getSystemService(Context.CAMERA_SERVICE);
+        if (cameraManager != null) {
+            cameraManager.registerAvailabilityCallback(new CameraManager.AvailabilityCallback() {
+                @Override
+                public void onCameraAvailable(@NonNull String cameraId) {
+                    if (!isKnownCamera(cameraId)) {
+                        scheduleRefresh();
+                    }
+                }
+            }, probeHandler);
+        }
+    }
+
+    static boolean isCamera2Supported(Context context) {
+        return Camera2Enumerator.isSupported(context);
+    }
+
+    /*
+     * Returns the cameras as seen through the Camera1 or Camera2 API, enumerating on the calling
+     * thread if they are not cached yet.
+     */
+    static synchronized CameraCapabilities get(Context context, boolean camera2) {
+        usesCamera2 = camera2;
+        return load(context, camera2);
+    }
+
+    private static synchronized CameraCapabilities load(Context context, boolean camera2) {
+        if (camera2) {
+            if (cachedCamera2 == null) {
+                cachedCamera2 = probe(new Camera2Enumerator(context), null);
+            }
+            return cachedCamera2;
+        }
+        if (cached == null) {
+            cached = probe(new Camera1Enumerator(), null);
+        }
+        return cached;
+    }
+
+    private static synchronized boolean isKnownCamera(String cameraId) {
+        // Still being enumerated, the result will include it
+        if (cameraIds == null) {
+            return true;
+        }
+        for (String knownId : cameraIds) {
+            if (knownId.equals(cameraId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Taken before probing, so a camera that appears meanwhile is still unknown and refreshes
+     * again.
+     */
+    private static void snapshotCameraIds() {
+        CameraManager cameraManager =
+                (CameraManager) applicationContext.getSystemService(Context.CAMERA_SERVICE);
+        String[] ids = new String[0];
+        if (cameraManager != null) {
+            try {
+                ids = cameraManager.getCameraIdList();
+            } catch (CameraAccessException | RuntimeException e) {
+                Log.w(TAG, "Could not list cameras", e);
+            }
+        }
+        synchronized (CameraCapabilities.class) {
+            cameraIds = ids;
+        }
+    }
+
+    private static synchronized void scheduleRefresh() {
+        if (refreshPending) {
+            return;
+        }
+        refreshPending = true;
+        probeHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                boolean camera2;
+                CameraCapabilities previous;
+                synchronized (CameraCapabilities.class) {
+                    refreshPending = false;
+                    camera2 = usesCamera2 != null ? usesCamera2 : cachedCamera2 != null;
+                    previous = camera2 ? cachedCamera2 : cached;
+                }
+                snapshotCameraIds();
+                // Probe outside the lock so format selection keeps using the previous result
+                CameraCapabilities refreshed = camera2
+                        ? probe(new Camera2Enumerator(applicationContext), previous)
+                        : probe(new Camera1Enumerator(), previous);
+                synchronized (CameraCapabilities.class) {
+                    if (camera2) {
+                        cachedCamera2 = refreshed;
+                        cached = null;
+                    } else {
+                        cached = refreshed;
+                        cachedCamera2 = null;
+                    }
+                }
+            }
+        });
+    }
+
+    private static CameraCapabilities probe(CameraEnumerator enumerator,
+                                            @Nullable CameraCapabilities previous) {
+        long start = SystemClock.elapsedRealtime();
+        String[] deviceNames = enumerator.getDeviceNames();
+        Map<String, List<CaptureFormat>> supportedFormats = new HashMap<>();
+        String frontFacingDevice = null;
+        String backFacingDevice = null;
+        for (String deviceName : deviceNames) {
+            List<CaptureFormat> formats = enumerator.getSupportedFormats(deviceName);
+            if ((formats == null || formats.isEmpty()) && previous != null) {
+                formats = previous.getSupportedFormats(deviceName);
+            }
+            if (formats == null || formats.isEmpty()) {
+                continue;
+            }
+            supportedFormats.put(deviceName, Collections.unmodifiableList(formats));
+            if (enumerator.isBackFacing(deviceName)) {
+                backFacingDevice = deviceName;
+            } else if (enumerator.isFrontFacing(deviceName)) {
+                frontFacingDevice = deviceName;
+            }
+        }
+        Log.d(TAG, "Enumerated cameras with " + enumerator.getClass().getSimpleName() + " in "
+                + (SystemClock.elapsedRealtime() - start) + "ms");
+        return new CameraCapabilities(supportedFormats, frontFacingDevice, backFacingDevice);
+    }
+
+    @Nullable
+    String getFrontFacingDevice() {
+        return frontFacingDevice;
+    }
+
+    @Nullable
+    String getBackFacingDevice() {
+        return backFacingDevice;
+    }
+
+    /*
+     * Returns the formats supported by the camera, empty if it is unknown.
+     */
+    List<CaptureFormat> getSupportedFormats(String deviceName) {
+        List<CaptureFormat> formats = supportedFormats.get(deviceName);
+        return formats != null ? formats : Collections.<CaptureFormat>emptyList();
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Picks the camera capture format to use for a target encode format.
+ */
+
+package com.twiliorn.library;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tvi.webrtc.CameraEnumerationAndroid.CaptureFormat;
+
+/*
+ * Capturing above the resolution that is encoded only costs ISP bandwidth, power and a
+ * downscale, so the cheapest native format that still covers the target is chosen: the one
+ * with the fewest pixels that is at least the target size (in either orientation) and can run
+ * at the target frame rate. Formats with the target's aspect ratio are preferred, so nothing is
+ * cropped. With simulcast, the lower layers are the capture scaled down by 2 and 4, so formats
+ * whose sides are multiples of 4 are preferred as well.
+ *
+ * If no format covers the target, the largest one is used. Pure Java, so it can be exercised
+ * against recorded device format tables.
+ */
+final class CaptureFormatSelector {
+    private static final double ASPECT_RATIO_TOLERANCE = 0.01;
+    private static final int SIMULCAST_SCALE_DOWN = 4;
+
+    static final class Selection {
+        final int width;
+        final int height;
+        final int frameRate;
+
+        Selection(int width, int height, int frameRate) {
+            this.width = width;
+            this.height = height;
+            this.frameRate = frameRate;
+        }
+
+        @Override
+        public String toString() {
+            return width + "x" + height + "@" + frameRate;
+        }
+    }
+
+    private CaptureFormatSelector() {
+    }
+
+    @Nullable
+    static Selection select(List<CaptureFormat> formats,
+                            int targetWidth,
+                            int targetHeight,
+                            int targetFrameRate,
+                            boolean simulcast) {
+        if (formats == null || formats.isEmpty()) {
+            return null;
+        }
+
+        List<CaptureFormat> covering = new ArrayList<>();
+        for (CaptureFormat format : formats) {
+            if (covers(format, targetWidth, targetHeight)
+                    && maxFrameRate(format) >= targetFrameRate) {
+                covering.add(format);
+            }
+        }
+        if (covering.isEmpty()) {
+            CaptureFormat largest = null;
+            for (CaptureFormat format : formats) {
+                if (largest == null || pixels(format) > pixels(largest)) {
+                    largest = format;
+                }
+            }
+            return toSelection(largest, targetFrameRate);
+        }
+
+        List<CaptureFormat> candidates = preferAspectRatio(covering, targetWidth, targetHeight);
+        if (simulcast) {
+            candidates = preferSimulcastFriendly(candidates);
+        }
+        CaptureFormat cheapest = null;
+        for (CaptureFormat format : candidates) {
+            if (cheapest == null || pixels(format) < pixels(cheapest)) {
+                cheapest = format;
+            }
+        }
+        return toSelection(cheapest, targetFrameRate);
+    }
+
+    private static boolean covers(CaptureFormat format, int targetWidth, int targetHeight) {
+        int longSide = Math.max(format.width, format.height);
+        int shortSide = Math.min(format.width, format.height);
+        return longSide >= Math.max(targetWidth, targetHeight)
+                && shortSide >= Math.min(targetWidth, targetHeight);
+    }
+
+    private static List<CaptureFormat> preferAspectRatio(List<CaptureFormat> formats,
+                                                         int targetWidth,
+                                                         int targetHeight) {
+        double targetRatio = ratio(targetWidth, targetHeight);
+        List<CaptureFormat> matching = new ArrayList<>();
+        for (CaptureFormat format : formats) {
+            if (Math.abs(ratio(format.width, format.height) - targetRatio) <= ASPECT_RATIO_TOLERANCE) {
+                matching.add(format);
+            }
+        }
+        return matching.isEmpty() ? formats : matching;
+    }
+
+    private static List<CaptureFormat> preferSimulcastFriendly(List<CaptureFormat> formats) {
+        List<CaptureFormat> friendly = new ArrayList<>();
+        for (CaptureFormat format : formats) {
+            if (format.width % SIMULCAST_SCALE_DOWN == 0 && format.height % SIMULCAST_SCALE_DOWN == 0) {
+                friendly.add(format);
+            }
+        }
+        return friendly.isEmpty() ? formats : friendly;
+    }
+
+    private static Selection toSelection(CaptureFormat format, int targetFrameRate) {
+        int maxFrameRate = maxFrameRate(format);
+        int frameRate = maxFrameRate > 0 ? Math.min(targetFrameRate, maxFrameRate) : targetFrameRate;
+        return new Selection(format.width, format.height, frameRate);
+    }
+
+    // Orientation independent, long side over short side
+    private static double ratio(int width, int height) {
+        return Math.max(width, height) / (double) Math.max(1, Math.min(width, height));
+    }
+
+    private static int pixels(CaptureFormat format) {
+        return format.width * format.height;
+    }
+
+    // CaptureFormat frame rates are in frames per 1000 seconds
+    private static int maxFrameRate(CaptureFormat format) {
+        return format.framerate.max / 1000;
+    }
+}
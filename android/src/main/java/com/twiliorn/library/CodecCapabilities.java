@@ -0,0 +1,144 @@
+/**
+ * Process-wide cache of the hardware video codecs supported by the device.
+ */
+
+package com.twiliorn.library;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import tvi.webrtc.HardwareVideoDecoderFactory;
+import tvi.webrtc.HardwareVideoEncoderFactory;
+import tvi.webrtc.VideoCodecInfo;
+
+/*
+ * Enumerating the hardware encoders and decoders queries MediaCodecList, which is slow and
+ * cannot change while the process is alive. It is done once, ideally ahead of time on a
+ * background thread through prefetch(), and every connection reuses the result.
+ */
+final class CodecCapabilities {
+    private static final String TAG = "RNTwilioVideo";
+    private static final String PROBE_THREAD_NAME = "RNTwilioCodecProbe";
+
+    interface Callback {
+        void onCodecCapabilities(CodecCapabilities capabilities);
+    }
+
+    // Read without the lock, which is only held while probing
+    private static volatile CodecCapabilities cached;
+    private static final AtomicBoolean prefetchStarted = new AtomicBoolean(false);
+
+    private final VideoCodecInfo[] encoders;
+    private final VideoCodecInfo[] decoders;
+    private final long probeDurationMs;
+
+    private CodecCapabilities(VideoCodecInfo[] encoders, VideoCodecInfo[] decoders, long probeDurationMs) {
+        this.encoders = encoders;
+        this.decoders = decoders;
+        this.probeDurationMs = probeDurationMs;
+    }
+
+    /*
+     * Start probing on a background thread if it has not been done yet.
+     */
+    static void prefetch() {
+        if (cached != null || !prefetchStarted.compareAndSet(false, true)) {
+            return;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                get();
+            }
+        }, PROBE_THREAD_NAME).start();
+    }
+
+    /*
+     * Returns the capabilities, probing on the calling thread if they are not cached yet.
+     */
+    static CodecCapabilities get() {
+        CodecCapabilities capabilities = cached;
+        if (capabilities != null) {
+            return capabilities;
+        }
+        synchronized (CodecCapabilities.class) {
+            if (cached == null) {
+                long start = SystemClock.elapsedRealtime();
+                // H264 Codec Support Detection:
+                // https://www.twilio.com/docs/video/managing-codecs
+                VideoCodecInfo[] encoders = new HardwareVideoEncoderFactory(null, true, true).getSupportedCodecs();
+                VideoCodecInfo[] decoders = new HardwareVideoDecoderFactory(null).getSupportedCodecs();
+                cached = new CodecCapabilities(encoders, decoders, SystemClock.elapsedRealtime() - start);
+                Log.d(TAG, "Probed hardware codecs in " + cached.probeDurationMs + "ms");
+            }
+            return cached;
+        }
+    }
+
+    /*
+     * Calls back immediately if the capabilities are cached, otherwise once they have been
+     * probed on a background thread.
+     */
+    static void fetch(final Callback callback) {
+        // Not under the lock, so a probe in progress does not block the caller
+        CodecCapabilities capabilities = cached;
+        if (capabilities != null) {
+            callback.onCodecCapabilities(capabilities);
+            return;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                callback.onCodecCapabilities(get());
+            }
+        }, PROBE_THREAD_NAME).start();
+    }
+
+    boolean isH264Supported() {
+        return supports(encoders, "h264") && supports(decoders, "h264");
+    }
+
+    private static boolean supports(VideoCodecInfo[] codecs, String name) {
+        for (VideoCodecInfo videoCodecInfo : codecs) {
+            if (videoCodecInfo.name.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    WritableMap toWritableMap() {
+        WritableMap result = new WritableNativeMap();
+        result.putArray("encoders", convertCodecs(encoders));
+        result.putArray("decoders", convertCodecs(decoders));
+        result.putBoolean("h264Supported", isH264Supported());
+        result.putDouble("probeDurationMs", probeDurationMs);
+        return result;
+    }
+
+    // One entry per codec and profile, with the profile parameters as reported by the factory
+    private static WritableArray convertCodecs(VideoCodecInfo[] codecs) {
+        WritableArray result = new WritableNativeArray();
+        for (VideoCodecInfo videoCodecInfo : codecs) {
+            WritableMap params = new WritableNativeMap();
+            if (videoCodecInfo.params != null) {
+                for (Map.Entry<String, String> param : videoCodecInfo.params.entrySet()) {
+                    params.putString(param.getKey(), param.getValue());
+                }
+            }
+            WritableMap codec = new WritableNativeMap();
+            codec.putString("name", videoCodecInfo.name);
+            codec.putMap("params", params);
+            result.pushMap(codec);
+        }
+        return result;
+    }
+}
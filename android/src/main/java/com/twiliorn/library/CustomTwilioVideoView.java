@@ -12,14 +12,22 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_AUDIO_CHANGED
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_DID_START;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_DID_STOP_RUNNING;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_INTERRUPTION_ENDED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_RESUMED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_SWITCHED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_WAS_INTERRUPTED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CODEC_CAPABILITIES;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECT_FAILURE;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_MESSAGE_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_MESSAGES_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATA_TRACK_BACKPRESSURE;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATA_TRACK_STATS;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATA_CHANGED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DISCONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DOMINANT_SPEAKER_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_EVENT_BATCH;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_EVENT_DISPATCH_STATS;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_JOIN_TIMELINE;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_AUDIO_TRACK_PUBLICATION_FAILED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_AUDIO_TRACK_PUBLISHED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_DATA_TRACK_PUBLICATION_FAILED;
@@ -27,6 +35,7 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_DATA_TR
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_PARTICIPANT_SUPPORTED_CODECS;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_VIDEO_TRACK_PUBLICATION_FAILED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_VIDEO_TRACK_PUBLISHED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_MEDIA_EXECUTOR_STATS;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_NETWORK_QUALITY_LEVELS_CHANGED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_AUDIO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_DATA_TRACK;
@@ -40,6 +49,7 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_E
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_AUDIO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_DATA_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_VIDEO_TRACK;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PREPARED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTING;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECORDING_STARTED;
@@ -56,7 +66,10 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_REMOTE_VIDEO_
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_ROOM_FETCHED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_SCREEN_SHARE_CHANGED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS_HISTORY_SUMMARY;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS_SAMPLE;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_TRANSCRIPTION_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_ADAPTATION_CHANGED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_CHANGED;
 
 import android.app.Activity;
@@ -72,7 +85,7 @@ import android.media.projection.MediaProjectionManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
-import android.util.Base64;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 import androidx.annotation.NonNull;
@@ -82,6 +95,8 @@ import com.facebook.react.bridge.ActivityEventListener;
 import com.facebook.react.bridge.BaseActivityEventListener;
 import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.UiThreadUtil;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
@@ -89,11 +104,12 @@ import com.facebook.react.bridge.WritableNativeArray;
 import com.facebook.react.bridge.WritableNativeMap;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.events.RCTEventEmitter;
-import com.twilio.video.AudioTrackPublication;
+import com.twilio.video.BandwidthProfileOptions;
 import com.twilio.video.BaseTrackStats;
+import com.twilio.video.Camera2Capturer;
 import com.twilio.video.CameraCapturer;
+import com.twilio.video.ClientTrackSwitchOffControl;
 import com.twilio.video.ConnectOptions;
-import com.twilio.video.DataTrackOptions;
 import com.twilio.video.H264Codec;
 import com.twilio.video.LocalAudioTrack;
 import com.twilio.video.LocalAudioTrackPublication;
@@ -127,23 +143,26 @@ import com.twilio.video.StatsReport;
 import com.twilio.video.TrackPublication;
 import com.twilio.video.TwilioException;
 import com.twilio.video.Video;
+import com.twilio.video.VideoBandwidthProfileOptions;
 import com.twilio.video.VideoCodec;
+import com.twilio.video.VideoContentPreferencesMode;
 import com.twilio.video.VideoDimensions;
 import com.twilio.video.VideoFormat;
 import com.twilio.video.Vp8Codec;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import org.json.JSONObject;
-import tvi.webrtc.Camera1Enumerator;
 import tvi.webrtc.CameraEnumerationAndroid.CaptureFormat;
-import tvi.webrtc.HardwareVideoDecoderFactory;
-import tvi.webrtc.HardwareVideoEncoderFactory;
-import tvi.webrtc.VideoCodecInfo;
+import tvi.webrtc.VideoCapturer;
+import tvi.webrtc.VideoFrame;
+import tvi.webrtc.VideoSink;
 
 
 public class CustomTwilioVideoView extends View
@@ -161,20 +180,31 @@ public class CustomTwilioVideoView extends View
     private static final int REQUEST_MEDIA_PROJECTION = 100;
     private static final VideoDimensions DEFAULT_VIDEO_DIMENSIONS = VideoDimensions.HD_720P_VIDEO_DIMENSIONS;
     private static final int DEFAULT_VIDEO_FRAME_RATE = 30;
+    // What happens to the camera track while the app is in the background
+    private static final String BACKGROUND_VIDEO_RELEASE = "release";
+    private static final String BACKGROUND_VIDEO_PAUSE = "pause";
+    private static final String BACKGROUND_VIDEO_MAINTAIN = "maintain";
     private boolean enableRemoteAudio = false;
     private boolean enableNetworkQualityReporting = false;
     private boolean isVideoEnabled = false;
     private boolean isScreenShareEnabled = false;
     private boolean dominantSpeakerEnabled = false;
-    private static String frontFacingDevice;
-    private static String backFacingDevice;
-    private boolean maintainVideoTrackInBackground = false;
+    private String frontFacingDevice;
+    private String backFacingDevice;
+    private String backgroundVideoPolicy = BACKGROUND_VIDEO_RELEASE;
+    private boolean cameraPaused = false;
+    private long backgroundedAtMs = 0;
+    // Format the camera track was created with, before any adaptation
+    private VideoFormat cameraVideoFormat;
     private String cameraType = "";
     private boolean enableH264Codec = false;
     private boolean isDataEnabled = false;
     private boolean cameraInterrupted = false;
     private boolean receiveTranscriptions = false;
     private boolean enableSimulcast = false;
+    private boolean enableBandwidthHints = false;
+    private boolean enableCamera2 = false;
+    private boolean enableVideoAdaptation = false;
 
     // User-specified video format (0 means auto-select best)
     private int requestedVideoWidth = 0;
@@ -187,6 +217,7 @@ public class CustomTwilioVideoView extends View
                 Events.ON_CAMERA_WAS_INTERRUPTED,
                 Events.ON_CAMERA_INTERRUPTION_ENDED,
                 Events.ON_CAMERA_DID_STOP_RUNNING,
+                Events.ON_CAMERA_RESUMED,
                 Events.ON_VIDEO_CHANGED,
                 Events.ON_AUDIO_CHANGED,
                 Events.ON_CONNECTED,
@@ -231,13 +262,26 @@ public class CustomTwilioVideoView extends View
                 Events.ON_REMOTE_DATA_TRACK_PUBLISHED,
                 Events.ON_REMOTE_DATA_TRACK_UNPUBLISHED,
                 Events.ON_REMOTE_DATA_TRACK_SUBSCRIPTION_FAILED,
-                Events.ON_TRANSCRIPTION_RECEIVED})
+                Events.ON_TRANSCRIPTION_RECEIVED,
+                Events.ON_EVENT_BATCH,
+                Events.ON_EVENT_DISPATCH_STATS,
+                Events.ON_STATS_SAMPLE,
+                Events.ON_STATS_HISTORY_SUMMARY,
+                Events.ON_CODEC_CAPABILITIES,
+                Events.ON_VIDEO_ADAPTATION_CHANGED,
+                Events.ON_PREPARED,
+                Events.ON_JOIN_TIMELINE,
+                Events.ON_MEDIA_EXECUTOR_STATS,
+                Events.ON_DATATRACK_MESSAGES_RECEIVED,
+                Events.ON_DATA_TRACK_STATS,
+                Events.ON_DATA_TRACK_BACKPRESSURE})
     public @interface Events {
         String ON_CAMERA_SWITCHED = "onCameraSwitched";
         String ON_CAMERA_DID_START = "onCameraDidStart";
         String ON_CAMERA_WAS_INTERRUPTED = "onCameraWasInterrupted";
         String ON_CAMERA_INTERRUPTION_ENDED = "onCameraInterruptionEnded";
         String ON_CAMERA_DID_STOP_RUNNING = "onCameraDidStopRunning";
+        String ON_CAMERA_RESUMED = "onCameraResumed";
         String ON_VIDEO_CHANGED = "onVideoChanged";
         String ON_AUDIO_CHANGED = "onAudioChanged";
         String ON_CONNECTED = "onRoomDidConnect";
@@ -283,10 +327,25 @@ public class CustomTwilioVideoView extends View
         String ON_REMOTE_DATA_TRACK_UNPUBLISHED = "onRemoteDataTrackUnpublished";
         String ON_REMOTE_DATA_TRACK_SUBSCRIPTION_FAILED = "onRemoteDataTrackSubscriptionFailed";
         String ON_TRANSCRIPTION_RECEIVED = "onTranscriptionReceived";
+        String ON_EVENT_BATCH = "onEventBatch";
+        String ON_EVENT_DISPATCH_STATS = "onEventDispatchStats";
+        String ON_STATS_SAMPLE = "onStatsSample";
+        String ON_STATS_HISTORY_SUMMARY = "onStatsHistorySummary";
+        String ON_CODEC_CAPABILITIES = "onCodecCapabilities";
+        String ON_VIDEO_ADAPTATION_CHANGED = "onVideoAdaptationChanged";
+        String ON_PREPARED = "onPrepared";
+        String ON_JOIN_TIMELINE = "onJoinTimeline";
+        String ON_MEDIA_EXECUTOR_STATS = "onMediaExecutorStats";
+        String ON_DATATRACK_MESSAGES_RECEIVED = "onDataTrackMessagesReceived";
+        String ON_DATA_TRACK_STATS = "onDataTrackStats";
+        String ON_DATA_TRACK_BACKPRESSURE = "onDataTrackBackpressure";
     }
 
     private final ThemedReactContext themedReactContext;
     private final RCTEventEmitter eventEmitter;
+    private final EventBatcher eventBatcher;
+    private final StatsSampler statsSampler;
+    private final VideoAdaptationController videoAdaptation;
 
     private AudioFocusRequest audioFocusRequest;
     private AudioAttributes playbackAttributes;
@@ -296,28 +355,28 @@ public class CustomTwilioVideoView extends View
      * A Room represents communication between the client and one or more
      * participants.
      */
-    private static Room room;
+    private volatile Room room;
     private String roomName = null;
+
+    // Shared with the preview views that use the same sessionId, see VideoSession. Kept after
+    // release, so late room callbacks still have somewhere to go. Swapped on the UI thread.
+    private volatile VideoSession session;
+    private boolean sessionAttached = false;
     private String accessToken = null;
     private String region = null;
     private LocalParticipant localParticipant;
 
-    /*
-     * A VideoView receives frames from a local or remote video track and renders
-     * them
-     * to an associated view.
-     */
-    private static PatchedVideoView thumbnailVideoView;
     // Camera video track (default local track)
-    private static LocalVideoTrack localVideoTrack;
+    private LocalVideoTrack localVideoTrack;
 
     // Dedicated screen-capture video track – lives alongside the camera track.
-    private static LocalVideoTrack screenVideoTrack;
+    private LocalVideoTrack screenVideoTrack;
 
-    // Preview surface for local screen-capture frames.
-    private static PatchedVideoView screenSharePreviewView;
-    private static CameraCapturer cameraCapturer;
-    private static ScreenCapturer screenCapturer;
+    // A CameraCapturer, or a Camera2Capturer when enableCamera2 is set and supported
+    private VideoCapturer cameraCapturer;
+    private ScreenCapturer screenCapturer;
+    // Every view gets the activity result, only the one that asked acts on it
+    private boolean screenCapturePermissionRequested = false;
     private ScreenCapturerManager screenCapturerManager;
     private LocalAudioTrack localAudioTrack;
     private AudioManager audioManager;
@@ -331,36 +390,118 @@ public class CustomTwilioVideoView extends View
     private final HandlerThread dataTrackMessageThread = new HandlerThread(DATA_TRACK_MESSAGE_THREAD_NAME);
     private Handler dataTrackMessageThreadHandler;
 
-    private LocalDataTrack localDataTrack;
+    // Runs the commands, the lifecycle callbacks and the room and track callbacks, see MediaExecutor
+    private final MediaExecutor mediaExecutor = new MediaExecutor();
 
-    // Map used to map remote data tracks to remote participants
-    private final Map<RemoteDataTrack, RemoteParticipant> dataTrackRemoteParticipantMap = new HashMap<>();
+    // Local data tracks by name, the one toggled with toggleDataTrack named TRACK_NAME_DATA
+    private final Map<String, LocalDataChannel> dataChannels = new LinkedHashMap<>();
+    private final LocalDataChannel.Listener dataChannelListener = new LocalDataChannel.Listener() {
+        @Override
+        public void onBackpressureChanged(LocalDataChannel channel, WritableMap stats) {
+            stats.putString("trackName", channel.name);
+            pushEvent(CustomTwilioVideoView.this, ON_DATA_TRACK_BACKPRESSURE, stats);
+        }
+    };
+    // Applied to every data track, set on the media executor
+    private int dataTrackBatchWindowMs = 0;
+    // Framing is not negotiated, received envelopes are only unpacked while sending them too
+    private volatile boolean dataTrackFramingEnabled = false;
+    @Nullable
+    private DataTrackSendQueue.Options dataTrackSendQueueOptions;
+
+    // Encodes binary payloads received on the data track message thread; only used from that thread
+    private final DataTrackPayloadCodec dataTrackPayloadCodec = new DataTrackPayloadCodec();
+    private final AtomicLong dataTrackEnvelopesReceived = new AtomicLong();
+    private final AtomicLong dataTrackMessagesUnpacked = new AtomicLong();
+    // Set on the UI thread, applied on the data track message thread
+    @Nullable
+    private volatile DataTrackMessageFilter dataTrackMessageFilter;
+
+    // Remote data tracks and the participants sending on them, see RemoteDataTrackRegistry
+    private final RemoteDataTrackRegistry remoteDataTracks = new RemoteDataTrackRegistry();
 
     private final ActivityEventListener activityEventListener = new BaseActivityEventListener() {
         @Override
         public void onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
             super.onActivityResult(activity, requestCode, resultCode, data);
-            if (requestCode == REQUEST_MEDIA_PROJECTION) {
+            if (requestCode == REQUEST_MEDIA_PROJECTION && screenCapturePermissionRequested) {
+                screenCapturePermissionRequested = false;
                 if (resultCode == Activity.RESULT_OK) {
-                    screenCapturer = new ScreenCapturer(themedReactContext, resultCode, data, new ScreenCapturer.Listener() {
-                        @Override
-                        public void onFirstFrameAvailable() {
-                        }
-                        @Override
-                        public void onScreenCaptureError(String errorDescription) {
-                            stopScreenCapture();
-                        }
+                    mediaExecutor.execute("screenCapturePermissionGranted", () -> {
+                        screenCapturer = new ScreenCapturer(themedReactContext, resultCode, data, new ScreenCapturer.Listener() {
+                            @Override
+                            public void onFirstFrameAvailable() {
+                            }
+                            @Override
+                            public void onScreenCaptureError(String errorDescription) {
+                                mediaExecutor.execute("screenCaptureError", () -> stopScreenCapture());
+                            }
+                        });
+                        startScreenCapture();
                     });
-                    startScreenCapture();
                 }
             }
         };
     };
 
+    /*
+     * Attaches the local and screen share previews of the session to this view's tracks. The
+     * session calls in on the UI thread, the tracks are only touched on the media executor.
+     */
+    private final VideoSession.Host sessionHost = new VideoSession.Host() {
+        @Override
+        public void onThumbnailVideoViewChanged(PatchedVideoView previous, PatchedVideoView view) {
+            mediaExecutor.execute("thumbnailVideoViewChanged", () -> {
+                if (localVideoTrack != null) {
+                    if (previous != null) {
+                        localVideoTrack.removeSink(previous);
+                    }
+                    if (view != null) {
+                        localVideoTrack.addSink(view);
+                    }
+                }
+                setThumbnailMirror();
+            });
+        }
+
+        @Override
+        public void onScreenShareVideoViewChanged(PatchedVideoView previous, PatchedVideoView view) {
+            mediaExecutor.execute("screenShareVideoViewChanged", () -> {
+                if (screenVideoTrack != null) {
+                    if (previous != null) {
+                        screenVideoTrack.removeSink(previous);
+                    }
+                    if (view != null) {
+                        screenVideoTrack.addSink(view);
+                    }
+                }
+            });
+        }
+    };
+
     public CustomTwilioVideoView(ThemedReactContext context) {
         super(context);
         this.themedReactContext = context;
         this.eventEmitter = themedReactContext.getJSModule(RCTEventEmitter.class);
+        this.eventBatcher = new EventBatcher(eventEmitter, this, ON_EVENT_BATCH);
+        this.statsSampler = new StatsSampler(new StatsSampler.Listener() {
+            @Override
+            public void onSample(WritableMap sample) {
+                pushEvent(CustomTwilioVideoView.this, ON_STATS_SAMPLE, sample);
+            }
+
+            @Override
+            public void onHistorySummary(WritableMap summary) {
+                pushEvent(CustomTwilioVideoView.this, ON_STATS_HISTORY_SUMMARY, summary);
+            }
+        });
+        this.videoAdaptation = new VideoAdaptationController(context, new VideoAdaptationController.Listener() {
+            @Override
+            public void onVideoAdaptationChanged(WritableMap event) {
+                pushEvent(CustomTwilioVideoView.this, ON_VIDEO_ADAPTATION_CHANGED, event);
+            }
+        });
+        attachSession(VideoSession.acquire(VideoSession.DEFAULT_ID));
 
         // Set properties for Video Insights reporting
         System.setProperty(PRODUCT_NAME_KEY, TwilioVideoConstants.kTwilioVideoReactNativeName);
@@ -395,6 +536,10 @@ public class CustomTwilioVideoView extends View
     // ===== SETUP =================================================================================
 
     private VideoFormat buildVideoFormat() {
+        return buildVideoFormat(getCurrentCameraId());
+    }
+
+    private VideoFormat buildVideoFormat(String cameraId) {
         // If user specified dimensions and frame rate, use them
         if (requestedVideoWidth > 0 && requestedVideoHeight > 0 && requestedVideoFrameRate > 0) {
             VideoDimensions dimensions = new VideoDimensions(requestedVideoWidth, requestedVideoHeight);
@@ -402,7 +547,6 @@ public class CustomTwilioVideoView extends View
         }
 
         // Autoselect best format from camera
-        String cameraId = getCurrentCameraId();
         if (cameraId != null) {
             VideoFormat bestFormat = getBestVideoFormatForCamera(cameraId);
             if (bestFormat != null) {
@@ -416,7 +560,7 @@ public class CustomTwilioVideoView extends View
 
     private String getCurrentCameraId() {
         if (cameraCapturer != null) {
-            return cameraCapturer.getCameraId();
+            return getCameraId(cameraCapturer);
         }
         // Return the camera ID based on cameraType preference
         buildDeviceInfo();
@@ -431,29 +575,33 @@ public class CustomTwilioVideoView extends View
         if (cameraId == null) {
             return null;
         }
-        Camera1Enumerator enumerator = new Camera1Enumerator();
-        List<CaptureFormat> formats = enumerator.getSupportedFormats(cameraId);
-        if (formats == null || formats.isEmpty()) {
+        List<CaptureFormat> formats =
+                CameraCapabilities.get(getContext(), useCamera2()).getSupportedFormats(cameraId);
+        // Cheapest native format that covers what is encoded, rather than the largest one
+        CaptureFormatSelector.Selection selection = CaptureFormatSelector.select(
+                formats,
+                DEFAULT_VIDEO_DIMENSIONS.width,
+                DEFAULT_VIDEO_DIMENSIONS.height,
+                DEFAULT_VIDEO_FRAME_RATE,
+                enableSimulcast);
+        if (selection == null) {
             return null;
         }
-        // Find the format with highest resolution
-        CaptureFormat bestFormat = null;
-        int maxPixels = 0;
-        for (CaptureFormat format : formats) {
-            int pixels = format.width * format.height;
-            if (pixels > maxPixels) {
-                maxPixels = pixels;
-                bestFormat = format;
-            }
-        }
-        if (bestFormat != null) {
-            int frameRate = (bestFormat.framerate.max / 1000);
-            return new VideoFormat(new VideoDimensions(bestFormat.width, bestFormat.height), frameRate);
-        }
-        return null;
+        Log.d(TAG, "Selected capture format " + selection + " for camera " + cameraId);
+        return new VideoFormat(new VideoDimensions(selection.width, selection.height), selection.frameRate);
+    }
+
+    private boolean useCamera2() {
+        return enableCamera2 && CameraCapabilities.isCamera2Supported(getContext());
     }
 
-    private CameraCapturer createCameraCapturer(Context context, String cameraId) {
+    private VideoCapturer createCameraCapturer(Context context, String cameraId) {
+        if (cameraId == null) {
+            return null;
+        }
+        if (useCamera2()) {
+            return createCamera2Capturer(context, cameraId);
+        }
         CameraCapturer newCameraCapturer = null;
         try {
             newCameraCapturer = new CameraCapturer(
@@ -488,20 +636,54 @@ public class CustomTwilioVideoView extends View
         }
     }
 
-    private void buildDeviceInfo() {
-        Camera1Enumerator enumerator = new Camera1Enumerator();
-        String[] deviceNames = enumerator.getDeviceNames();
-        backFacingDevice = null;
-        frontFacingDevice = null;
-        for (String deviceName : deviceNames) {
-            if (enumerator.isBackFacing(deviceName) && enumerator.getSupportedFormats(deviceName).size() > 0) {
-                backFacingDevice = deviceName;
-            } else if (enumerator.isFrontFacing(deviceName) && enumerator.getSupportedFormats(deviceName).size() > 0) {
-                frontFacingDevice = deviceName;
-            }
+    private Camera2Capturer createCamera2Capturer(Context context, String cameraId) {
+        try {
+            return new Camera2Capturer(
+                    context,
+                    cameraId,
+                    new Camera2Capturer.Listener() {
+                        @Override
+                        public void onFirstFrameAvailable() {
+                            pushEvent(CustomTwilioVideoView.this, ON_CAMERA_DID_START, null);
+                            cameraInterrupted = false;
+                        }
+
+                        @Override
+                        public void onCameraSwitched(String newCameraId) {
+                            setThumbnailMirror();
+                            WritableMap event = new WritableNativeMap();
+                            event.putBoolean("isBackCamera", isCurrentCameraSourceBackFacing());
+                            pushEvent(CustomTwilioVideoView.this, ON_CAMERA_SWITCHED, event);
+                        }
+
+                        @Override
+                        public void onError(Camera2Capturer.Exception e) {
+                            Log.i("CustomTwilioVideoView", "Error getting camera", e);
+                            WritableMap event = new WritableNativeMap();
+                            event.putString("error", "Camera error: " + e.getCode());
+                            pushEvent(CustomTwilioVideoView.this, ON_CAMERA_DID_STOP_RUNNING, event);
+                        }
+                    });
+        } catch (Exception e) {
+            return null;
         }
     }
 
+    private static String getCameraId(VideoCapturer capturer) {
+        if (capturer instanceof Camera2Capturer) {
+            return ((Camera2Capturer) capturer).getCameraId();
+        }
+        return ((CameraCapturer) capturer).getCameraId();
+    }
+
+    private void buildDeviceInfo() {
+        // Enumerated once per process, normally ahead of time by TwilioPackage. Camera1 and Camera2
+        // name the same camera differently, so use the names of the API that captures.
+        CameraCapabilities cameras = CameraCapabilities.get(getContext(), useCamera2());
+        backFacingDevice = cameras.getBackFacingDevice();
+        frontFacingDevice = cameras.getFrontFacingDevice();
+    }
+
     private boolean createLocalVideo(boolean enableVideo, String cameraType) {
         isVideoEnabled = enableVideo;
 
@@ -532,8 +714,11 @@ public class CustomTwilioVideoView extends View
             return false;
         }
 
+        cameraVideoFormat = buildVideoFormat();
         localVideoTrack = LocalVideoTrack.create(
-                getContext(), enableVideo, cameraCapturer, buildVideoFormat(), TRACK_NAME_CAMERA);
+                getContext(), enableVideo, cameraCapturer, cameraVideoFormat, TRACK_NAME_CAMERA);
+        videoAdaptation.setCapturer(cameraCapturer, cameraVideoFormat);
+        PatchedVideoView thumbnailVideoView = session.getThumbnailVideoView();
         if (thumbnailVideoView != null && localVideoTrack != null) {
             localVideoTrack.addSink(thumbnailVideoView);
         }
@@ -545,17 +730,56 @@ public class CustomTwilioVideoView extends View
 
     @Override
     public void onHostResume() {
+        mediaExecutor.execute("onHostResume", this::resumeMedia);
+    }
+
+    private void resumeMedia() {
         /*
          * In case it wasn't set.
          */
         if (themedReactContext.getCurrentActivity() != null) {
+            long resumeStartedAtMs = SystemClock.elapsedRealtime();
+            String resumedPolicy = null;
             /*
              * If the local video track was released when the app was put in the background,
              * recreate.
              */
             if (cameraCapturer != null && localVideoTrack == null) {
-                localVideoTrack = LocalVideoTrack.create(
-                        getContext(), isVideoEnabled, cameraCapturer, buildVideoFormat(), TRACK_NAME_CAMERA);
+                cameraVideoFormat = buildVideoFormat();
+                // Straight at the format the adaptation had stepped to before the app was backgrounded
+                localVideoTrack = LocalVideoTrack.create(getContext(), isVideoEnabled, cameraCapturer,
+                        videoAdaptation.getResumeFormat(cameraVideoFormat), TRACK_NAME_CAMERA);
+                videoAdaptation.resume(cameraCapturer, cameraVideoFormat);
+                resumedPolicy = BACKGROUND_VIDEO_RELEASE;
+
+                if (localVideoTrack != null) {
+                    PatchedVideoView thumbnailVideoView = session.getThumbnailVideoView();
+                    if (thumbnailVideoView != null) {
+                        localVideoTrack.addSink(thumbnailVideoView);
+                    }
+
+                    /*
+                     * If connected to a Room then share the local video track.
+                     */
+                    if (localParticipant != null) {
+                        localParticipant.publishTrack(localVideoTrack);
+                    }
+                }
+            } else if (cameraPaused && cameraCapturer != null && localVideoTrack != null) {
+                /*
+                 * The track stayed published, only the capture was stopped, so restarting it
+                 * and enabling the track is all it takes.
+                 */
+                VideoFormat format = videoAdaptation.getResumeFormat(cameraVideoFormat);
+                cameraCapturer.startCapture(format.dimensions.width, format.dimensions.height, format.framerate);
+                videoAdaptation.resume(cameraCapturer, cameraVideoFormat);
+                localVideoTrack.enable(isVideoEnabled);
+                resumedPolicy = BACKGROUND_VIDEO_PAUSE;
+            }
+            cameraPaused = false;
+            if (resumedPolicy != null && localVideoTrack != null) {
+                localVideoTrack.addSink(new ResumeLatencySink(
+                        localVideoTrack, resumedPolicy, resumeStartedAtMs, backgroundedAtMs));
             }
             /*
              * If the screen share track was released when the app was put in the background, recreate.
@@ -565,19 +789,6 @@ public class CustomTwilioVideoView extends View
                         getContext(), isScreenShareEnabled, screenCapturer, TRACK_NAME_SCREEN);
             }
 
-            if (localVideoTrack != null) {
-                if (thumbnailVideoView != null) {
-                    localVideoTrack.addSink(thumbnailVideoView);
-                }
-
-                /*
-                 * If connected to a Room then share the local video track.
-                 */
-                if (localParticipant != null) {
-                    localParticipant.publishTrack(localVideoTrack);
-                }
-            }
-
             if (cameraInterrupted) {
                 pushEvent(CustomTwilioVideoView.this, ON_CAMERA_INTERRUPTION_ENDED, null);
                 cameraInterrupted = false;
@@ -590,12 +801,35 @@ public class CustomTwilioVideoView extends View
 
     @Override
     public void onHostPause() {
+        mediaExecutor.execute("onHostPause", this::pauseMedia);
+    }
+
+    private void pauseMedia() {
         /*
          * Release the local video track before going in the background. This ensures
          * that the
          * camera can be used by other applications while this app is in the background.
          */
-        if (localVideoTrack != null && !maintainVideoTrackInBackground) {
+        if (localVideoTrack != null && BACKGROUND_VIDEO_PAUSE.equals(backgroundVideoPolicy)) {
+            /*
+             * Keep the track published but disabled, and stop the capture so the camera is
+             * free for other applications. Remote participants see the track disabled rather
+             * than unpublished, and resuming does not need a republish.
+             */
+            if (!cameraPaused && cameraCapturer != null) {
+                localVideoTrack.enable(false);
+                // Before stopping, a format step would restart the capture
+                videoAdaptation.pause();
+                stopCameraCapture();
+                cameraPaused = true;
+                backgroundedAtMs = SystemClock.elapsedRealtime();
+
+                cameraInterrupted = true;
+                WritableMap event = new WritableNativeMap();
+                event.putString("reason", "App backgrounded");
+                pushEvent(CustomTwilioVideoView.this, ON_CAMERA_WAS_INTERRUPTED, event);
+            }
+        } else if (localVideoTrack != null && BACKGROUND_VIDEO_RELEASE.equals(backgroundVideoPolicy)) {
             /*
              * If this local video track is being shared in a Room, remove from local
              * participant before releasing the video track. Participants will be notified
@@ -606,8 +840,10 @@ public class CustomTwilioVideoView extends View
                 localParticipant.unpublishTrack(localVideoTrack);
             }
 
+            videoAdaptation.pause();
             localVideoTrack.release();
             localVideoTrack = null;
+            backgroundedAtMs = SystemClock.elapsedRealtime();
 
             cameraInterrupted = true;
             WritableMap event = new WritableNativeMap();
@@ -616,8 +852,55 @@ public class CustomTwilioVideoView extends View
         }
     }
 
+    /*
+     * Measures how long the camera track takes to deliver its first frame after the app comes
+     * back to the foreground, then removes itself.
+     */
+    private final class ResumeLatencySink implements VideoSink {
+        private final LocalVideoTrack track;
+        private final String policy;
+        private final long resumeStartedAtMs;
+        private final long backgroundedAtMs;
+        private boolean reported = false;
+
+        ResumeLatencySink(LocalVideoTrack track, String policy, long resumeStartedAtMs, long backgroundedAtMs) {
+            this.track = track;
+            this.policy = policy;
+            this.resumeStartedAtMs = resumeStartedAtMs;
+            this.backgroundedAtMs = backgroundedAtMs;
+        }
+
+        @Override
+        public void onFrame(VideoFrame frame) {
+            if (reported) {
+                return;
+            }
+            reported = true;
+            final long firstFrameAtMs = SystemClock.elapsedRealtime();
+            mediaExecutor.execute("cameraResumed", new Runnable() {
+                @Override
+                public void run() {
+                    if (localVideoTrack == track) {
+                        track.removeSink(ResumeLatencySink.this);
+                    }
+                    WritableMap event = new WritableNativeMap();
+                    event.putString("backgroundVideoPolicy", policy);
+                    event.putDouble("resumeLatencyMs", firstFrameAtMs - resumeStartedAtMs);
+                    if (backgroundedAtMs > 0) {
+                        event.putDouble("backgroundDurationMs", resumeStartedAtMs - backgroundedAtMs);
+                    }
+                    pushEvent(CustomTwilioVideoView.this, ON_CAMERA_RESUMED, event);
+                }
+            });
+        }
+    }
+
     @Override
     public void onHostDestroy() {
+        mediaExecutor.execute("onHostDestroy", this::destroyMedia);
+    }
+
+    private void destroyMedia() {
         /*
          * Remove stream voice control
          */
@@ -643,6 +926,7 @@ public class CustomTwilioVideoView extends View
         }
 
         if (screenVideoTrack != null) {
+            PatchedVideoView screenSharePreviewView = session.getScreenSharePreviewView();
             if (screenSharePreviewView != null) {
                 screenVideoTrack.removeSink(screenSharePreviewView);
             }
@@ -660,13 +944,7 @@ public class CustomTwilioVideoView extends View
             localAudioTrack = null;
         }
 
-        if (localDataTrack != null) {
-            if (localParticipant != null) {
-                localParticipant.unpublishTrack(localDataTrack);
-            }
-            localDataTrack.release();
-            localDataTrack = null;
-        }
+        releaseDataChannels();
 
         // Quit the data track message thread
         dataTrackMessageThread.quit();
@@ -674,12 +952,172 @@ public class CustomTwilioVideoView extends View
 
     public void releaseResource() {
         themedReactContext.removeLifecycleEventListener(this);
+        statsSampler.release();
+        videoAdaptation.release();
+        eventBatcher.release();
         room = null;
         localVideoTrack = null;
-        thumbnailVideoView = null;
         cameraCapturer = null;
         screenCapturer = null;
-        localDataTrack = null;
+        dataChannels.clear();
+        UiThreadUtil.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                detachSession();
+            }
+        });
+        mediaExecutor.release();
+    }
+
+    /*
+     * Queue a command behind the ones already sent, see MediaExecutor.
+     */
+    public void executeMediaCommand(String name, Runnable command) {
+        mediaExecutor.execute(name, command);
+    }
+
+    public void getMediaExecutorStats() {
+        pushEvent(CustomTwilioVideoView.this, ON_MEDIA_EXECUTOR_STATS, mediaExecutor.buildStats());
+    }
+
+    /*
+     * Use the session shared with the preview views that have the same sessionId. Only takes
+     * effect while not connected. Called on the UI thread, like the preview views registering.
+     */
+    public void setSessionId(String sessionId) {
+        String id = VideoSession.normalizeId(sessionId);
+        if (!sessionAttached || session.id.equals(id)) {
+            return;
+        }
+        if (room != null) {
+            Log.w(TAG, "Ignoring sessionId " + id + " while connected to a room");
+            return;
+        }
+        detachSession();
+        attachSession(VideoSession.acquire(id));
+    }
+
+    private void attachSession(VideoSession session) {
+        this.session = session;
+        sessionAttached = true;
+        session.joinTimeline.setListener(new JoinTimeline.Listener() {
+            @Override
+            public void onReport(WritableMap report) {
+                pushEvent(CustomTwilioVideoView.this, ON_JOIN_TIMELINE, report);
+            }
+        });
+        session.setHost(sessionHost);
+    }
+
+    private void detachSession() {
+        if (!sessionAttached) {
+            return;
+        }
+        sessionAttached = false;
+        session.joinTimeline.setListener(null);
+        session.clearHost(sessionHost);
+        VideoSession.release(session);
+    }
+
+    // ====== PREPARING ============================================================================
+
+    /*
+     * Do the work of joining that does not need the room ahead of time, e.g. while the user is
+     * on a lobby screen: create the local audio track and the camera track, make sure the codec
+     * capabilities are probed and set up audio routing. A later connectToRoomWrapper reuses them.
+     */
+    public void prepare(
+            String cameraType,
+            boolean enableAudio,
+            boolean enableVideo,
+            int videoWidth,
+            int videoHeight,
+            int videoFrameRate,
+            boolean enableCamera2) {
+        session.joinTimeline.begin(true);
+        session.joinTimeline.mark(JoinTimeline.PHASE_PREPARE_STARTED);
+        this.cameraType = cameraType;
+        this.requestedVideoWidth = videoWidth;
+        this.requestedVideoHeight = videoHeight;
+        this.requestedVideoFrameRate = videoFrameRate;
+        this.enableCamera2 = enableCamera2;
+
+        if (enableAudio && localAudioTrack == null) {
+            localAudioTrack = LocalAudioTrack.create(getContext(), true, TRACK_NAME_MICROPHONE);
+        }
+        if (enableVideo && cameraCapturer == null && !createLocalVideo(true, cameraType)) {
+            Log.d("RNTwilioVideo", "Failed to create local video");
+        }
+        if (enableAudio) {
+            setAudioFocus(true);
+        }
+
+        CodecCapabilities.fetch(new CodecCapabilities.Callback() {
+            @Override
+            public void onCodecCapabilities(CodecCapabilities capabilities) {
+                // Possibly called back on the probe thread, the tracks belong to the media executor
+                mediaExecutor.execute("prepared", new Runnable() {
+                    @Override
+                    public void run() {
+                        session.joinTimeline.mark(JoinTimeline.PHASE_PREPARED);
+                        WritableMap event = new WritableNativeMap();
+                        event.putBoolean("audioPrepared", localAudioTrack != null);
+                        event.putBoolean("videoPrepared", localVideoTrack != null);
+                        event.putMap("timeline", session.joinTimeline.toWritableMap());
+                        pushEvent(CustomTwilioVideoView.this, ON_PREPARED, event);
+                    }
+                });
+            }
+        });
+    }
+
+    /*
+     * Make the camera from prepare() match what connecting asked for. A different camera API
+     * needs a new capturer and track; a different camera or format is switched to on the
+     * running capturer, which keeps the track.
+     */
+    private boolean matchPreparedCamera(String cameraType) {
+        if ((cameraCapturer instanceof Camera2Capturer) != useCamera2()) {
+            if (localVideoTrack != null) {
+                localVideoTrack.release();
+                localVideoTrack = null;
+            }
+            stopCameraCapture();
+            cameraCapturer = null;
+            cameraPaused = false;
+            videoAdaptation.setCapturer(null, null);
+            return createLocalVideo(true, cameraType);
+        }
+
+        buildDeviceInfo();
+        String cameraId = FRONT_CAMERA_TYPE.equals(cameraType)
+                ? (frontFacingDevice != null ? frontFacingDevice : backFacingDevice)
+                : (backFacingDevice != null ? backFacingDevice : frontFacingDevice);
+        if (cameraId != null && !cameraId.equals(getCameraId(cameraCapturer))) {
+            switchCameraCapturer(cameraId);
+        } else if (cameraId == null) {
+            cameraId = getCameraId(cameraCapturer);
+        }
+
+        VideoFormat format = buildVideoFormat(cameraId);
+        if (!isSameFormat(format, cameraVideoFormat)) {
+            cameraVideoFormat = format;
+            cameraCapturer.changeCaptureFormat(
+                    format.dimensions.width, format.dimensions.height, format.framerate);
+            videoAdaptation.setCapturer(cameraCapturer, cameraVideoFormat);
+        }
+        return true;
+    }
+
+    private static boolean isSameFormat(VideoFormat a, VideoFormat b) {
+        return b != null
+                && a.dimensions.width == b.dimensions.width
+                && a.dimensions.height == b.dimensions.height
+                && a.framerate == b.framerate;
+    }
+
+    public void getJoinTimeline() {
+        pushEvent(CustomTwilioVideoView.this, ON_JOIN_TIMELINE, session.joinTimeline.toWritableMap());
     }
 
     // ====== CONNECTING ===========================================================================
@@ -701,13 +1139,26 @@ public class CustomTwilioVideoView extends View
             boolean receiveTranscriptions,
             int videoWidth,
             int videoHeight,
-            int videoFrameRate) {
+            int videoFrameRate,
+            boolean enableBandwidthHints,
+            boolean enableCamera2,
+            boolean enableVideoAdaptation,
+            String backgroundVideoPolicy,
+            @Nullable ReadableArray dataTracks) {
+        session.joinTimeline.begin(false);
+        session.joinTimeline.mark(JoinTimeline.PHASE_CONNECT_INVOKED);
         this.roomName = roomName;
         this.accessToken = accessToken;
         this.enableRemoteAudio = enableRemoteAudio;
         this.enableNetworkQualityReporting = enableNetworkQualityReporting;
         this.dominantSpeakerEnabled = dominantSpeakerEnabled;
-        this.maintainVideoTrackInBackground = maintainVideoTrackInBackground;
+        if (backgroundVideoPolicy != null) {
+            this.backgroundVideoPolicy = backgroundVideoPolicy;
+        } else {
+            this.backgroundVideoPolicy = maintainVideoTrackInBackground
+                    ? BACKGROUND_VIDEO_MAINTAIN
+                    : BACKGROUND_VIDEO_RELEASE;
+        }
         this.cameraType = cameraType;
         this.enableH264Codec = enableH264Codec;
         this.enableSimulcast = enableSimulcast;
@@ -716,15 +1167,24 @@ public class CustomTwilioVideoView extends View
         this.requestedVideoWidth = videoWidth;
         this.requestedVideoHeight = videoHeight;
         this.requestedVideoFrameRate = videoFrameRate;
+        this.enableBandwidthHints = enableBandwidthHints;
+        this.enableCamera2 = enableCamera2;
+        this.enableVideoAdaptation = enableVideoAdaptation;
         this.region = region;
 
-        // Share your microphone
-        if (enableAudio) {
+        // Share your microphone, reusing the track from prepare() if there is one
+        if (enableAudio && localAudioTrack == null) {
             localAudioTrack = LocalAudioTrack.create(getContext(), enableAudio, TRACK_NAME_MICROPHONE);
+        } else if (!enableAudio && localAudioTrack != null) {
+            localAudioTrack.release();
+            localAudioTrack = null;
         }
 
-        if (cameraCapturer == null && enableVideo) {
-            boolean createVideoStatus = createLocalVideo(enableVideo, cameraType);
+        if (enableVideo) {
+            // Reuse the camera from prepare() if there is one
+            boolean createVideoStatus = cameraCapturer == null
+                    ? createLocalVideo(enableVideo, cameraType)
+                    : matchPreparedCamera(cameraType);
             if (!createVideoStatus) {
                 Log.d("RNTwilioVideo", "Failed to create local video");
                 // No need to connect to room if video creation failed
@@ -734,13 +1194,19 @@ public class CustomTwilioVideoView extends View
             isVideoEnabled = false;
         }
 
-        // Create data track if enabled
-        if (enableDataTrack) {
-            DataTrackOptions dataTrackOptions =
-                    new DataTrackOptions.Builder().name(TRACK_NAME_DATA).build();
-            localDataTrack = LocalDataTrack.create(getContext(), dataTrackOptions);
+        // Create the data tracks; an entry named TRACK_NAME_DATA replaces the default one
+        if (dataTracks != null) {
+            for (int i = 0; i < dataTracks.size(); i++) {
+                addDataChannel(LocalDataChannel.create(
+                        getContext(), mediaExecutor, dataTracks.getMap(i), dataChannelListener));
+            }
+        }
+        if (enableDataTrack && !dataChannels.containsKey(TRACK_NAME_DATA)) {
+            addDataChannel(LocalDataChannel.create(getContext(), mediaExecutor, TRACK_NAME_DATA, dataChannelListener));
         }
 
+        session.joinTimeline.mark(JoinTimeline.PHASE_LOCAL_TRACKS_CREATED);
+
         setAudioFocus(enableAudio);
         connectToRoom();
     }
@@ -776,31 +1242,17 @@ public class CustomTwilioVideoView extends View
             connectOptionsBuilder.videoTracks(Collections.singletonList(localVideoTrack));
         }
 
-        if (localDataTrack != null) {
-            connectOptionsBuilder.dataTracks(Collections.singletonList(localDataTrack));
-        }
-
-        // H264 Codec Support Detection:
-        // https://www.twilio.com/docs/video/managing-codecs
-        HardwareVideoEncoderFactory hardwareVideoEncoderFactory = new HardwareVideoEncoderFactory(null, true, true);
-        HardwareVideoDecoderFactory hardwareVideoDecoderFactory = new HardwareVideoDecoderFactory(null);
-
-        boolean h264EncoderSupported = false;
-        for (VideoCodecInfo videoCodecInfo : hardwareVideoEncoderFactory.getSupportedCodecs()) {
-            if (videoCodecInfo.name.equalsIgnoreCase("h264")) {
-                h264EncoderSupported = true;
-                break;
-            }
-        }
-        boolean h264DecoderSupported = false;
-        for (VideoCodecInfo videoCodecInfo : hardwareVideoDecoderFactory.getSupportedCodecs()) {
-            if (videoCodecInfo.name.equalsIgnoreCase("h264")) {
-                h264DecoderSupported = true;
-                break;
+        if (!dataChannels.isEmpty()) {
+            List<LocalDataTrack> localDataTracks = new ArrayList<>();
+            for (LocalDataChannel channel : dataChannels.values()) {
+                localDataTracks.add(channel.getTrack());
             }
+            connectOptionsBuilder.dataTracks(localDataTracks);
         }
 
-        boolean isH264Supported = h264EncoderSupported && h264DecoderSupported;
+        // Probed once per process, normally ahead of time by TwilioPackage
+        boolean isH264Supported = CodecCapabilities.get().isH264Supported();
+        session.joinTimeline.mark(JoinTimeline.PHASE_CODECS_DETECTED);
 
         Log.d("RNTwilioVideo", "H264 supported by hardware: " + isH264Supported);
 
@@ -834,6 +1286,20 @@ public class CustomTwilioVideoView extends View
 
         connectOptionsBuilder.receiveTranscriptions(this.receiveTranscriptions);
 
+        /*
+         * Let the views rendering each remote track decide whether it is switched on and at what
+         * size, instead of receiving whatever the publisher sends.
+         */
+        if (enableBandwidthHints) {
+            VideoBandwidthProfileOptions videoBandwidthProfileOptions = new VideoBandwidthProfileOptions.Builder()
+                    .clientTrackSwitchOffControl(ClientTrackSwitchOffControl.MANUAL)
+                    .videoContentPreferencesMode(VideoContentPreferencesMode.MANUAL)
+                    .build();
+            connectOptionsBuilder.bandwidthProfile(new BandwidthProfileOptions(videoBandwidthProfileOptions));
+        }
+        session.trackRegistry.setBandwidthHintsEnabled(enableBandwidthHints);
+
+        session.joinTimeline.mark(JoinTimeline.PHASE_CONNECT_STARTED);
         room = Video.connect(getContext(), connectOptionsBuilder.build(), roomListener());
     }
 
@@ -939,23 +1405,20 @@ public class CustomTwilioVideoView extends View
             audioManager.stopBluetoothSco();
         }
         if (screenVideoTrack != null) {
+            PatchedVideoView screenSharePreviewView = session.getScreenSharePreviewView();
             if (screenSharePreviewView != null) {
                 screenVideoTrack.removeSink(screenSharePreviewView);
             }
             screenVideoTrack.release();
             screenVideoTrack = null;
         }
-        if (localDataTrack != null) {
-            if (localParticipant != null) {
-                localParticipant.unpublishTrack(localDataTrack);
-            }
-            localDataTrack.release();
-            localDataTrack = null;
-        }
+        releaseDataChannels();
         setAudioFocus(false);
         if (cameraCapturer != null) {
-            cameraCapturer.stopCapture();
+            stopCameraCapture();
             cameraCapturer = null;
+            cameraPaused = false;
+            videoAdaptation.setCapturer(null, null);
         }
         if (screenCapturer != null) {
             screenCapturer.stopCapture();
@@ -964,39 +1427,156 @@ public class CustomTwilioVideoView extends View
     }
 
     // ===== SEND STRING ON DATA TRACK ======================================================================
-    public void sendString(String message) {
-        if (localDataTrack != null) {
-            localDataTrack.send(message);
+    /*
+     * Send the message on the named data track, TRACK_NAME_DATA when null. The key identifies
+     * the state the message updates, for the latestPerKey policy of the send queue.
+     */
+    public void sendString(String message, @Nullable String key, @Nullable String trackName) {
+        LocalDataChannel channel = getDataChannel(trackName);
+        if (channel == null || message == null) {
+            return;
         }
+        channel.sendString(message, key);
     }
 
-    public void sendBinary(String base64Payload) {
-        if (localDataTrack == null || base64Payload == null) {
+    public void sendBinary(String base64Payload, @Nullable String key, @Nullable String trackName) {
+        LocalDataChannel channel = getDataChannel(trackName);
+        if (channel == null || base64Payload == null) {
             return;
         }
-        try {
-            byte[] bytes = Base64.decode(base64Payload, Base64.DEFAULT);
-            if (bytes == null) {
-                return;
+        channel.sendBinary(base64Payload, key);
+    }
+
+    @Nullable
+    private LocalDataChannel getDataChannel(@Nullable String trackName) {
+        String name = trackName != null ? trackName : TRACK_NAME_DATA;
+        LocalDataChannel channel = dataChannels.get(name);
+        if (channel == null && trackName != null) {
+            Log.w(TAG, "No local data track named " + trackName);
+        }
+        return channel;
+    }
+
+    /*
+     * Collect the messages sent within the window into one data track message, and unpack the
+     * ones received. 0 sends and receives each message on its own.
+     */
+    public void setDataTrackBatchWindowMs(final int windowMs) {
+        mediaExecutor.execute("setDataTrackBatchWindowMs", () -> {
+            dataTrackBatchWindowMs = Math.max(0, windowMs);
+            dataTrackFramingEnabled = dataTrackBatchWindowMs > 0;
+            for (LocalDataChannel channel : dataChannels.values()) {
+                channel.setBatchWindowMs(dataTrackBatchWindowMs);
+            }
+        });
+    }
+
+    /*
+     * Queue what JS sends, with the given caps and drop policy; null sends straight away again.
+     */
+    public void setDataTrackSendQueue(@Nullable ReadableMap options) {
+        final DataTrackSendQueue.Options sendQueueOptions = DataTrackSendQueue.Options.fromMap(options);
+        mediaExecutor.execute("setDataTrackSendQueue", () -> {
+            dataTrackSendQueueOptions = sendQueueOptions;
+            for (LocalDataChannel channel : dataChannels.values()) {
+                channel.setSendQueueOptions(sendQueueOptions);
             }
-            ByteBuffer buffer = ByteBuffer.wrap(bytes);
-            localDataTrack.send(buffer);
-        } catch (Exception exception) {
-            Log.e(TAG, "Failed to decode base64 binary payload", exception);
+        });
+    }
+
+    /*
+     * Create a data track from a dataTracks entry and publish it if connected. An existing track
+     * with the same name is replaced.
+     */
+    public void addDataTrack(ReadableMap spec) {
+        LocalDataChannel channel = LocalDataChannel.create(getContext(), mediaExecutor, spec, dataChannelListener);
+        if (channel == null) {
+            return;
+        }
+        addDataChannel(channel);
+        if (localParticipant != null) {
+            localParticipant.publishTrack(channel.getTrack());
         }
     }
 
-    private static boolean isCurrentCameraSourceBackFacing() {
-        return cameraCapturer != null && cameraCapturer.getCameraId() == backFacingDevice;
+    /*
+     * Unpublish and release the named data track.
+     */
+    public void removeDataTrack(String name) {
+        LocalDataChannel channel = dataChannels.remove(name);
+        if (channel != null) {
+            channel.release(localParticipant);
+        }
+    }
+
+    private void addDataChannel(@Nullable LocalDataChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        removeDataTrack(channel.name);
+        channel.setBatchWindowMs(dataTrackBatchWindowMs);
+        channel.setSendQueueOptions(dataTrackSendQueueOptions);
+        dataChannels.put(channel.name, channel);
+    }
+
+    private void releaseDataChannels() {
+        for (LocalDataChannel channel : dataChannels.values()) {
+            channel.release(localParticipant);
+        }
+        dataChannels.clear();
+    }
+
+    /*
+     * Only deliver received messages of the given topics, see DataTrackMessageFilter; null
+     * delivers every message.
+     */
+    public void setDataTrackMessageFilter(@Nullable ReadableMap options) {
+        dataTrackMessageFilter = DataTrackMessageFilter.fromMap(options);
+    }
+
+    public void getDataTrackStats() {
+        WritableArray tracks = new WritableNativeArray();
+        for (LocalDataChannel channel : dataChannels.values()) {
+            tracks.pushMap(channel.buildStats());
+        }
+        WritableMap stats = new WritableNativeMap();
+        stats.putArray("tracks", tracks);
+        stats.putDouble("envelopesReceived", dataTrackEnvelopesReceived.get());
+        stats.putDouble("messagesUnpacked", dataTrackMessagesUnpacked.get());
+        DataTrackMessageFilter filter = dataTrackMessageFilter;
+        if (filter != null) {
+            stats.putMap("filter", filter.buildStats());
+        }
+        stats.putMap("remote", remoteDataTracks.buildStats());
+        pushEvent(CustomTwilioVideoView.this, ON_DATA_TRACK_STATS, stats);
+    }
+
+    private void stopCameraCapture() {
+        try {
+            cameraCapturer.stopCapture();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isCurrentCameraSourceBackFacing() {
+        return cameraCapturer != null && backFacingDevice != null
+                && backFacingDevice.equals(getCameraId(cameraCapturer));
     }
 
     // ===== BUTTON LISTENERS ======================================================================
-    private static void setThumbnailMirror() {
+    private void setThumbnailMirror() {
         if (cameraCapturer != null) {
             final boolean isBackCamera = isCurrentCameraSourceBackFacing();
-            if (thumbnailVideoView != null && thumbnailVideoView.getVisibility() == View.VISIBLE) {
-                thumbnailVideoView.setMirror(!isBackCamera);
-            }
+            UiThreadUtil.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    PatchedVideoView thumbnailVideoView = session.getThumbnailVideoView();
+                    if (thumbnailVideoView != null && thumbnailVideoView.getVisibility() == View.VISIBLE) {
+                        thumbnailVideoView.setMirror(!isBackCamera);
+                    }
+                }
+            });
         }
     }
 
@@ -1004,15 +1584,23 @@ public class CustomTwilioVideoView extends View
         if (cameraCapturer != null) {
             final boolean isBackCamera = isCurrentCameraSourceBackFacing();
             if (frontFacingDevice != null && (isBackCamera || backFacingDevice == null)) {
-                cameraCapturer.switchCamera(frontFacingDevice);
+                switchCameraCapturer(frontFacingDevice);
                 cameraType = CustomTwilioVideoView.FRONT_CAMERA_TYPE;
             } else {
-                cameraCapturer.switchCamera(backFacingDevice);
+                switchCameraCapturer(backFacingDevice);
                 cameraType = CustomTwilioVideoView.BACK_CAMERA_TYPE;
             }
         }
     }
 
+    private void switchCameraCapturer(String cameraId) {
+        if (cameraCapturer instanceof Camera2Capturer) {
+            ((Camera2Capturer) cameraCapturer).switchCamera(cameraId);
+        } else {
+            ((CameraCapturer) cameraCapturer).switchCamera(cameraId);
+        }
+    }
+
     public void toggleVideo(boolean enabled) {
         isVideoEnabled = enabled;
         boolean trackWasJustCreated = false;
@@ -1053,6 +1641,7 @@ public class CustomTwilioVideoView extends View
                 }
                 Activity currentActivity = this.themedReactContext.getCurrentActivity();
 
+                screenCapturePermissionRequested = true;
                 UiThreadUtil.runOnUiThread(new Runnable() {
                     @Override
                     public void run() {
@@ -1080,6 +1669,7 @@ public class CustomTwilioVideoView extends View
         screenVideoTrack = LocalVideoTrack.create(getContext(), true, screenCapturer, TRACK_NAME_SCREEN);
 
         // Attach preview sink
+        PatchedVideoView screenSharePreviewView = session.getScreenSharePreviewView();
         if (screenSharePreviewView != null && screenVideoTrack != null) {
             screenVideoTrack.addSink(screenSharePreviewView);
         }
@@ -1108,6 +1698,7 @@ public class CustomTwilioVideoView extends View
 
             screenCapturer.stopCapture();
 
+            PatchedVideoView screenSharePreviewView = session.getScreenSharePreviewView();
             if (screenSharePreviewView != null) {
                 screenVideoTrack.removeSink(screenSharePreviewView);
             }
@@ -1160,24 +1751,19 @@ public class CustomTwilioVideoView extends View
     public void toggleDataTrack(boolean enabled) {
         isDataEnabled = enabled;
         if (enabled) {
-            if (localDataTrack != null) {
+            if (dataChannels.containsKey(TRACK_NAME_DATA)) {
                 // Track already exists, just publish if in room
                 publishLocalDataTrack(true);
             } else {
                 // Create a new local data track and publish it
-                DataTrackOptions dataTrackOptions =
-                        new DataTrackOptions.Builder().name(TRACK_NAME_DATA).build();
-                localDataTrack = LocalDataTrack.create(getContext(), dataTrackOptions);
-                if (localDataTrack != null) {
-                    publishLocalDataTrack(true);
-                }
+                addDataChannel(LocalDataChannel.create(
+                        getContext(), mediaExecutor, TRACK_NAME_DATA, dataChannelListener));
+                publishLocalDataTrack(true);
             }
         } else {
-            if (localDataTrack != null) {
-                // Unpublish first, then release
-                publishLocalDataTrack(false);
-                localDataTrack.release();
-                localDataTrack = null;
+            if (dataChannels.containsKey(TRACK_NAME_DATA)) {
+                // Send what is pending, unpublish, then release
+                removeDataTrack(TRACK_NAME_DATA);
             } else {
                 // If localDataTrack doesn't exist and enabled is false, do nothing
                 return;
@@ -1200,29 +1786,11 @@ public class CustomTwilioVideoView extends View
     }
 
     public void toggleRemoteAudio(boolean enabled) {
-        if (room != null) {
-            for (RemoteParticipant rp : room.getRemoteParticipants()) {
-                for (AudioTrackPublication at : rp.getAudioTracks()) {
-                    if (at.getAudioTrack() != null) {
-                        ((RemoteAudioTrack) at.getAudioTrack()).enablePlayback(enabled);
-                    }
-                }
-            }
-        }
+        session.trackRegistry.setAudioPlayback(enabled);
     }
 
     public void setRemoteAudioPlayback(String participant, boolean enabled) {
-        if (room != null) {
-            for (RemoteParticipant rp : room.getRemoteParticipants()) {
-                if (rp.getSid().equals(participant)) {
-                    for (AudioTrackPublication at : rp.getAudioTracks()) {
-                        if (at.getAudioTrack() != null) {
-                            ((RemoteAudioTrack) at.getAudioTrack()).enablePlayback(enabled);
-                        }
-                    }
-                }
-            }
-        }
+        session.trackRegistry.setAudioPlayback(participant, enabled);
     }
 
     public void publishLocalVideo(boolean enabled) {
@@ -1263,11 +1831,12 @@ public class CustomTwilioVideoView extends View
     }
 
     public void publishLocalDataTrack(boolean enabled) {
-        if (localParticipant != null && localDataTrack != null) {
+        LocalDataChannel channel = dataChannels.get(TRACK_NAME_DATA);
+        if (localParticipant != null && channel != null) {
             if (enabled) {
-                localParticipant.publishTrack(localDataTrack);
+                localParticipant.publishTrack(channel.getTrack());
             } else {
-                localParticipant.unpublishTrack(localDataTrack);
+                localParticipant.unpublishTrack(channel.getTrack());
             }
         }
     }
@@ -1372,11 +1941,45 @@ public class CustomTwilioVideoView extends View
         }
     }
 
+    /*
+     * Sample stats every intervalMs and send only what changed, see StatsSampler
+     */
+    public void startStatsSampling(int intervalMs, int historySeconds, boolean emitSamples) {
+        if (room != null) {
+            statsSampler.start(room, intervalMs, historySeconds, emitSamples);
+        }
+    }
+
+    public void getStatsHistorySummary() {
+        statsSampler.requestHistorySummary();
+    }
+
+    public void getCodecCapabilities() {
+        CodecCapabilities.fetch(new CodecCapabilities.Callback() {
+            @Override
+            public void onCodecCapabilities(CodecCapabilities capabilities) {
+                pushEvent(CustomTwilioVideoView.this, ON_CODEC_CAPABILITIES, capabilities.toWritableMap());
+            }
+        });
+    }
+
+    public void stopStatsSampling() {
+        statsSampler.stop();
+    }
+
     public void fetchRoom() {
         WritableMap roomMap = buildRoom(room);
         pushEvent(CustomTwilioVideoView.this, ON_ROOM_FETCHED, roomMap);
     }
 
+    public void setEventBatchWindowMs(int windowMs) {
+        eventBatcher.setWindowMs(windowMs);
+    }
+
+    public void getEventDispatchStats() {
+        pushEvent(CustomTwilioVideoView.this, ON_EVENT_DISPATCH_STATS, eventBatcher.buildStats());
+    }
+
     // ====== ROOM LISTENER ========================================================================
 
     /*
@@ -1393,6 +1996,7 @@ public class CustomTwilioVideoView extends View
                     themedReactContext.getCurrentActivity().setVolumeControlStream(AudioManager.STREAM_VOICE_CALL);
                 }
 
+                session.joinTimeline.mark(JoinTimeline.PHASE_CONNECTED);
                 localParticipant = room.getLocalParticipant();
                 localParticipant.setListener(localListener());
 
@@ -1411,8 +2015,12 @@ public class CustomTwilioVideoView extends View
 
                 pushEvent(CustomTwilioVideoView.this, ON_CONNECTED, event);
 
-                if (localDataTrack != null) {
-                    localParticipant.publishTrack(localDataTrack);
+                for (LocalDataChannel channel : dataChannels.values()) {
+                    localParticipant.publishTrack(channel.getTrack());
+                }
+
+                if (enableVideoAdaptation) {
+                    videoAdaptation.start(room);
                 }
 
                 for (RemoteParticipant participant : participants) {
@@ -1422,6 +2030,7 @@ public class CustomTwilioVideoView extends View
 
             @Override
             public void onConnectFailure(Room room, TwilioException e) {
+                session.joinTimeline.finish(JoinTimeline.OUTCOME_CONNECT_FAILURE);
                 WritableMap event = new WritableNativeMap();
                 event.putString("roomName", room.getName());
                 event.putString("roomSid", room.getSid());
@@ -1473,7 +2082,12 @@ public class CustomTwilioVideoView extends View
                 roomName = null;
                 accessToken = null;
 
-                CustomTwilioVideoView.room = null;
+                CustomTwilioVideoView.this.room = null;
+                session.joinTimeline.finish(JoinTimeline.OUTCOME_DISCONNECTED);
+                session.trackRegistry.clear();
+                dataTrackMessageThreadHandler.post(remoteDataTracks::clear);
+                statsSampler.stop();
+                videoAdaptation.stop();
                 // Only reinitialize the UI if disconnect was not called from onDestroy()
                 if (!disconnectedFromOnDestroy) {
                     setAudioFocus(false);
@@ -1519,7 +2133,7 @@ public class CustomTwilioVideoView extends View
                     event.putMap("participant", buildParticipant(remoteParticipant));
                 }
 
-                pushEvent(CustomTwilioVideoView.this, ON_DOMINANT_SPEAKER_CHANGED, event);
+                pushEvent(CustomTwilioVideoView.this, ON_DOMINANT_SPEAKER_CHANGED, event, "dominantSpeaker");
             }
 
             @Override
@@ -1556,6 +2170,9 @@ public class CustomTwilioVideoView extends View
 
         pushEvent(this, ON_PARTICIPANT_CONNECTED, event);
 
+        session.joinTimeline.markParticipantConnected(remoteParticipant.getSid());
+        session.trackRegistry.addParticipant(remoteParticipant);
+
         /*
          * Start listening for participant media events
          */
@@ -1583,12 +2200,15 @@ public class CustomTwilioVideoView extends View
         event.putString("roomSid", room.getSid());
         event.putMap("participant", buildParticipant(participant));
         pushEvent(this, ON_PARTICIPANT_DISCONNECTED, event);
+        session.trackRegistry.removeParticipant(participant);
+        final String participantSid = participant.getSid();
+        dataTrackMessageThreadHandler.post(() -> remoteDataTracks.removeParticipant(participantSid));
         // something about this breaking.
         // participant.setListener(null);
     }
 
     private void addRemoteDataTrack(RemoteParticipant remoteParticipant, RemoteDataTrack remoteDataTrack) {
-        dataTrackRemoteParticipantMap.put(remoteDataTrack, remoteParticipant);
+        remoteDataTracks.addTrack(remoteParticipant, remoteDataTrack);
         remoteDataTrack.setListener(remoteDataTrackListener());
     }
 
@@ -1647,6 +2267,7 @@ public class CustomTwilioVideoView extends View
                                                 RemoteDataTrackPublication remoteDataTrackPublication, RemoteDataTrack remoteDataTrack) {
                 WritableMap event = buildParticipantDataEvent(remoteParticipant, remoteDataTrackPublication);
                 pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_REMOVED_DATA_TRACK, event);
+                dataTrackMessageThreadHandler.post(() -> remoteDataTracks.removeTrack(remoteDataTrack));
             }
 
             @Override
@@ -1674,12 +2295,15 @@ public class CustomTwilioVideoView extends View
             @Override
             public void onVideoTrackSubscribed(RemoteParticipant participant, RemoteVideoTrackPublication publication,
                                                RemoteVideoTrack videoTrack) {
+                session.joinTimeline.markVideoTrackSubscribed(participant.getSid(), publication.getTrackSid());
+                session.trackRegistry.addVideoTrack(publication.getTrackSid(), videoTrack);
                 addParticipantVideo(participant, publication);
             }
 
             @Override
             public void onVideoTrackUnsubscribed(RemoteParticipant participant,
                                                  RemoteVideoTrackPublication publication, RemoteVideoTrack track) {
+                session.trackRegistry.removeVideoTrack(publication.getTrackSid());
                 removeParticipantVideo(participant, publication);
             }
 
@@ -1709,25 +2333,31 @@ public class CustomTwilioVideoView extends View
             @Override
             public void onAudioTrackEnabled(RemoteParticipant participant, RemoteAudioTrackPublication publication) {
                 WritableMap event = buildParticipantVideoEvent(participant, publication);
-                pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_ENABLED_AUDIO_TRACK, event);
+                pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_ENABLED_AUDIO_TRACK, event,
+                        "trackEnabled:" + publication.getTrackSid());
             }
 
             @Override
             public void onAudioTrackDisabled(RemoteParticipant participant, RemoteAudioTrackPublication publication) {
                 WritableMap event = buildParticipantVideoEvent(participant, publication);
-                pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_DISABLED_AUDIO_TRACK, event);
+                pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_DISABLED_AUDIO_TRACK, event,
+                        "trackEnabled:" + publication.getTrackSid());
             }
 
             @Override
             public void onVideoTrackEnabled(RemoteParticipant participant, RemoteVideoTrackPublication publication) {
                 WritableMap event = buildParticipantVideoEvent(participant, publication);
-                pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_ENABLED_VIDEO_TRACK, event);
+                session.trackRegistry.setVideoTrackEnabled(publication.getTrackSid(), true);
+                pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_ENABLED_VIDEO_TRACK, event,
+                        "trackEnabled:" + publication.getTrackSid());
             }
 
             @Override
             public void onVideoTrackDisabled(RemoteParticipant participant, RemoteVideoTrackPublication publication) {
                 WritableMap event = buildParticipantVideoEvent(participant, publication);
-                pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_DISABLED_VIDEO_TRACK, event);
+                session.trackRegistry.setVideoTrackEnabled(publication.getTrackSid(), false);
+                pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_DISABLED_VIDEO_TRACK, event,
+                        "trackEnabled:" + publication.getTrackSid());
             }
 
             @Override
@@ -1741,7 +2371,8 @@ public class CustomTwilioVideoView extends View
                 // one to get the correct quality level as an integer
                 event.putInt("quality", networkQualityLevel.ordinal() - 1);
 
-                pushEvent(CustomTwilioVideoView.this, ON_NETWORK_QUALITY_LEVELS_CHANGED, event);
+                pushEvent(CustomTwilioVideoView.this, ON_NETWORK_QUALITY_LEVELS_CHANGED, event,
+                        "networkQuality:" + remoteParticipant.getSid());
             }
         };
     }
@@ -1772,6 +2403,9 @@ public class CustomTwilioVideoView extends View
             @Override
             public void onVideoTrackPublished(LocalParticipant localParticipant,
                                               LocalVideoTrackPublication localVideoTrackPublication) {
+                if (TRACK_NAME_CAMERA.equals(localVideoTrackPublication.getTrackName())) {
+                    videoAdaptation.setTrackSid(localVideoTrackPublication.getTrackSid());
+                }
                 WritableMap event = new WritableNativeMap();
                 event.putMap("participant", buildParticipant(localParticipant));
                 event.putMap("track", buildTrack(localVideoTrackPublication));
@@ -1819,8 +2453,10 @@ public class CustomTwilioVideoView extends View
                 // Twilio SDK defines Enum 0 as UNKNOWN and 1 as Quality ZERO, so we subtract
                 // one to get the correct quality level as an integer
                 event.putInt("quality", networkQualityLevel.ordinal() - 1);
+                videoAdaptation.onNetworkQualityLevel(networkQualityLevel.ordinal() - 1);
 
-                pushEvent(CustomTwilioVideoView.this, ON_NETWORK_QUALITY_LEVELS_CHANGED, event);
+                pushEvent(CustomTwilioVideoView.this, ON_NETWORK_QUALITY_LEVELS_CHANGED, event,
+                        "networkQuality:" + localParticipant.getSid());
             }
         };
     }
@@ -1919,6 +2555,7 @@ public class CustomTwilioVideoView extends View
     private WritableMap buildDataTrackEvent(RemoteDataTrack remoteDataTrack) {
         WritableMap event = new WritableNativeMap();
         event.putString("trackSid", remoteDataTrack.getSid());
+        event.putString("trackName", remoteDataTrack.getName());
         return event;
     }
 
@@ -1934,62 +2571,117 @@ public class CustomTwilioVideoView extends View
     // ===== EVENTS TO RN ==========================================================================
 
     void pushEvent(View view, String name, WritableMap data) {
-        eventEmitter.receiveEvent(view.getId(), name, data);
+        eventBatcher.enqueue(name, data, null);
     }
 
-    public static void registerPrimaryVideoView(PatchedVideoView v, String trackSid) {
-        if (room != null) {
+    /*
+     * Events pushed with a coalesce key only deliver the latest pending event for that key when
+     * batching is enabled
+     */
+    void pushEvent(View view, String name, WritableMap data, String coalesceKey) {
+        eventBatcher.enqueue(name, data, coalesceKey);
+    }
 
-            for (RemoteParticipant participant : room.getRemoteParticipants()) {
-                for (RemoteVideoTrackPublication publication : participant.getRemoteVideoTracks()) {
-                    RemoteVideoTrack track = publication.getRemoteVideoTrack();
-                    if (track == null) {
-                        continue;
-                    }
-                    if (publication.getTrackSid().equals(trackSid)) {
-                        track.addSink(v);
-                    } else {
-                        track.removeSink(v);
-                    }
+    private RemoteDataTrack.Listener remoteDataTrackListener() {
+        return new RemoteDataTrackListener();
+    }
+
+    /*
+     * Messages of a track are delivered on the data track message thread, one at a time, so the
+     * listener doubles as the receiver of unpacked envelopes. The filter and the array of
+     * messages are only set for the envelope being unpacked, and the array is only created once
+     * a message passes the filter.
+     */
+    private final class RemoteDataTrackListener implements RemoteDataTrack.Listener, DataTrackFramer.Receiver {
+        @Nullable
+        private DataTrackMessageFilter filter;
+        @Nullable
+        private WritableArray messages;
+
+        @Override
+        public void onMessage(RemoteDataTrack remoteDataTrack, ByteBuffer byteBuffer) {
+            remoteDataTracks.recordMessage(remoteDataTrack, byteBuffer.remaining());
+            DataTrackMessageFilter filter = dataTrackMessageFilter;
+            this.filter = filter;
+            this.messages = null;
+            int unpacked = dataTrackFramingEnabled ? DataTrackFramer.unpack(byteBuffer, this) : -1;
+            WritableArray messages = this.messages;
+            this.filter = null;
+            this.messages = null;
+            if (unpacked >= 0) {
+                dataTrackEnvelopesReceived.incrementAndGet();
+                dataTrackMessagesUnpacked.addAndGet(unpacked);
+                if (messages == null) {
+                    return;
                 }
+                WritableMap event = buildDataTrackEvent(remoteDataTrack);
+                event.putArray("messages", messages);
+                pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_MESSAGES_RECEIVED, event);
+                return;
             }
+            int topic = filter != null ? filter.matchBinary(byteBuffer) : DataTrackMessageFilter.UNFILTERED;
+            if (topic == DataTrackMessageFilter.DROP) {
+                return;
+            }
+            WritableMap event = buildDataTrackEvent(remoteDataTrack);
+            event.putString("payloadBase64", dataTrackPayloadCodec.encode(byteBuffer));
+            event.putBoolean("isBinary", true);
+            putTopic(event, filter, topic);
+            pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_MESSAGE_RECEIVED, event);
         }
-    }
 
-    public static void registerThumbnailVideoView(PatchedVideoView v) {
-        thumbnailVideoView = v;
-        if (localVideoTrack != null) {
-            localVideoTrack.addSink(v);
+        @Override
+        public void onMessage(RemoteDataTrack remoteDataTrack, String message) {
+            remoteDataTracks.recordMessage(remoteDataTrack, DataTrackSendQueue.utf8Length(message));
+            DataTrackMessageFilter filter = dataTrackMessageFilter;
+            int topic = filter != null ? filter.matchString(message) : DataTrackMessageFilter.UNFILTERED;
+            if (topic == DataTrackMessageFilter.DROP) {
+                return;
+            }
+            WritableMap event = buildDataTrackEvent(remoteDataTrack);
+            event.putString("message", message);
+            event.putBoolean("isBinary", false);
+            putTopic(event, filter, topic);
+            pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_MESSAGE_RECEIVED, event);
         }
-        setThumbnailMirror();
-    }
 
-    public static void registerScreenShareVideoView(PatchedVideoView v) {
-        screenSharePreviewView = v;
-        if (screenVideoTrack != null) {
-            screenVideoTrack.addSink(v);
+        @Override
+        public void onStringMessage(String message) {
+            int topic = filter != null ? filter.matchString(message) : DataTrackMessageFilter.UNFILTERED;
+            if (topic == DataTrackMessageFilter.DROP) {
+                return;
+            }
+            WritableMap entry = new WritableNativeMap();
+            entry.putString("message", message);
+            entry.putBoolean("isBinary", false);
+            putTopic(entry, filter, topic);
+            pendingMessages().pushMap(entry);
         }
-    }
 
-    private RemoteDataTrack.Listener remoteDataTrackListener() {
-        return new RemoteDataTrack.Listener() {
-            @Override
-            public void onMessage(RemoteDataTrack remoteDataTrack, ByteBuffer byteBuffer) {
-                byte[] bytes = new byte[byteBuffer.remaining()];
-                byteBuffer.get(bytes);
-                WritableMap event = buildDataTrackEvent(remoteDataTrack);
-                event.putString("payloadBase64", Base64.encodeToString(bytes, Base64.NO_WRAP));
-                event.putBoolean("isBinary", true);
-                pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_MESSAGE_RECEIVED, event);
+        @Override
+        public void onBinaryMessage(ByteBuffer payload) {
+            int topic = filter != null ? filter.matchBinary(payload) : DataTrackMessageFilter.UNFILTERED;
+            if (topic == DataTrackMessageFilter.DROP) {
+                return;
             }
+            WritableMap entry = new WritableNativeMap();
+            entry.putString("payloadBase64", dataTrackPayloadCodec.encode(payload));
+            entry.putBoolean("isBinary", true);
+            putTopic(entry, filter, topic);
+            pendingMessages().pushMap(entry);
+        }
 
-            @Override
-            public void onMessage(RemoteDataTrack remoteDataTrack, String message) {
-                WritableMap event = buildDataTrackEvent(remoteDataTrack);
-                event.putString("message", message);
-                event.putBoolean("isBinary", false);
-                pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_MESSAGE_RECEIVED, event);
+        private WritableArray pendingMessages() {
+            if (messages == null) {
+                messages = new WritableNativeArray();
             }
-        };
+            return messages;
+        }
+    }
+
+    private static void putTopic(WritableMap message, @Nullable DataTrackMessageFilter filter, int topic) {
+        if (filter != null && topic >= 0) {
+            message.putString("topic", filter.topicName(topic));
+        }
     }
 }
@@ -12,14 +12,22 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_AUDIO_CHANGED
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_DID_START;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_DID_STOP_RUNNING;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_INTERRUPTION_ENDED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_RESUMED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_SWITCHED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_WAS_INTERRUPTED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CODEC_CAPABILITIES;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECT_FAILURE;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_MESSAGE_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_MESSAGES_RECEIVED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATA_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATA_TRACK_BACKPRESSURE;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATA_TRACK_STATS;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DISCONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DOMINANT_SPEAKER_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_EVENT_BATCH;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_EVENT_DISPATCH_STATS;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_JOIN_TIMELINE;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_AUDIO_TRACK_PUBLICATION_FAILED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_AUDIO_TRACK_PUBLISHED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_DATA_TRACK_PUBLICATION_FAILED;
@@ -27,6 +35,7 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_DATA_TR
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_PARTICIPANT_SUPPORTED_CODECS;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_VIDEO_TRACK_PUBLICATION_FAILED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_VIDEO_TRACK_PUBLISHED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_MEDIA_EXECUTOR_STATS;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_NETWORK_QUALITY_LEVELS_CHANGED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_AUDIO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_DATA_TRACK;
@@ -40,6 +49,7 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_E
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_AUDIO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_DATA_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_VIDEO_TRACK;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PREPARED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTING;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECORDING_STARTED;
@@ -56,7 +66,10 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_REMOTE_VIDEO_
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_ROOM_FETCHED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_SCREEN_SHARE_CHANGED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS_HISTORY_SUMMARY;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS_SAMPLE;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_TRANSCRIPTION_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_ADAPTATION_CHANGED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_CHANGED;
 
 import androidx.annotation.Nullable;
@@ -66,6 +79,7 @@ import com.facebook.react.common.MapBuilder;
 import com.facebook.react.uimanager.SimpleViewManager;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.annotations.ReactProp;
+import java.util.HashMap;
 import java.util.Map;
 
 public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilioVideoView> {
@@ -89,19 +103,86 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
     private static final int TOGGLE_SCREEN_SHARING = 16;
     private static final int TOGGLE_DATA_TRACK = 17;
     private static final int FETCH_ROOM = 19;
+    private static final int GET_EVENT_DISPATCH_STATS = 20;
+    private static final int START_STATS_SAMPLING = 21;
+    private static final int STOP_STATS_SAMPLING = 22;
+    private static final int GET_STATS_HISTORY_SUMMARY = 23;
+    private static final int GET_CODEC_CAPABILITIES = 24;
+    private static final int PREPARE = 25;
+    private static final int GET_JOIN_TIMELINE = 26;
+    private static final int GET_MEDIA_EXECUTOR_STATS = 27;
+    private static final int GET_DATA_TRACK_STATS = 28;
+    private static final int ADD_DATA_TRACK = 29;
+    private static final int REMOVE_DATA_TRACK = 30;
+
+    // Command names by id, to label the commands in the media executor stats
+    private Map<Integer, String> commandNames;
 
     @Override
     public String getName() {
         return REACT_CLASS;
     }
 
+    @ReactProp(name = "sessionId")
+    public void setSessionId(CustomTwilioVideoView view, @Nullable String sessionId) {
+        view.setSessionId(sessionId);
+    }
+
+    @ReactProp(name = "eventBatchWindowMs", defaultInt = 0)
+    public void setEventBatchWindowMs(CustomTwilioVideoView view, int windowMs) {
+        view.setEventBatchWindowMs(windowMs);
+    }
+
+    @ReactProp(name = "dataTrackBatchWindowMs", defaultInt = 0)
+    public void setDataTrackBatchWindowMs(CustomTwilioVideoView view, int windowMs) {
+        view.setDataTrackBatchWindowMs(windowMs);
+    }
+
+    @ReactProp(name = "dataTrackSendQueue")
+    public void setDataTrackSendQueue(CustomTwilioVideoView view, @Nullable ReadableMap options) {
+        view.setDataTrackSendQueue(options);
+    }
+
+    @ReactProp(name = "dataTrackMessageFilter")
+    public void setDataTrackMessageFilter(CustomTwilioVideoView view, @Nullable ReadableMap options) {
+        view.setDataTrackMessageFilter(options);
+    }
+
     @Override
     protected CustomTwilioVideoView createViewInstance(ThemedReactContext reactContext) {
         return new CustomTwilioVideoView(reactContext);
     }
 
+    /*
+     * Commands run in order on the view's media executor, off the UI thread. The executor stats
+     * are read right away so they are not held up by the commands they measure.
+     */
     @Override
-    public void receiveCommand(CustomTwilioVideoView view, int commandId, @Nullable ReadableArray args) {
+    public void receiveCommand(final CustomTwilioVideoView view, final int commandId, @Nullable final ReadableArray args) {
+        if (commandId == GET_MEDIA_EXECUTOR_STATS) {
+            view.getMediaExecutorStats();
+            return;
+        }
+        view.executeMediaCommand(getCommandName(commandId), new Runnable() {
+            @Override
+            public void run() {
+                dispatchCommand(view, commandId, args);
+            }
+        });
+    }
+
+    private String getCommandName(int commandId) {
+        if (commandNames == null) {
+            commandNames = new HashMap<>();
+            for (Map.Entry<String, Integer> command : getCommandsMap().entrySet()) {
+                commandNames.put(command.getValue(), command.getKey());
+            }
+        }
+        String name = commandNames.get(commandId);
+        return name != null ? name : "command" + commandId;
+    }
+
+    private void dispatchCommand(CustomTwilioVideoView view, int commandId, @Nullable ReadableArray args) {
         switch (commandId) {
             case CONNECT_TO_ROOM:
                 String roomName = args.getString(0);
@@ -143,6 +224,12 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
                     }
                 }
 
+                boolean enableBandwidthHints = args.size() > 14 && !args.isNull(14) && args.getBoolean(14);
+                boolean enableCamera2 = args.size() > 15 && !args.isNull(15) && args.getBoolean(15);
+                boolean enableVideoAdaptation = args.size() > 16 && !args.isNull(16) && args.getBoolean(16);
+                String backgroundVideoPolicy = args.size() > 17 && !args.isNull(17) ? args.getString(17) : null;
+                ReadableArray dataTracks = args.size() > 18 && !args.isNull(18) ? args.getArray(18) : null;
+
                 view.connectToRoomWrapper(
                         roomName,
                         accessToken,
@@ -160,7 +247,12 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
                         receiveTranscriptions,
                         videoWidth,
                         videoHeight,
-                        videoFrameRate);
+                        videoFrameRate,
+                        enableBandwidthHints,
+                        enableCamera2,
+                        enableVideoAdaptation,
+                        backgroundVideoPolicy,
+                        dataTracks);
                 break;
             case DISCONNECT:
                 view.disconnect();
@@ -200,10 +292,14 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
                 view.toggleBluetoothHeadset(headsetEnabled);
                 break;
             case SEND_STRING:
-                view.sendString(args.getString(0));
+                view.sendString(args.getString(0),
+                        args.size() > 1 && !args.isNull(1) ? args.getString(1) : null,
+                        args.size() > 2 && !args.isNull(2) ? args.getString(2) : null);
                 break;
             case SEND_BINARY:
-                view.sendBinary(args.getString(0));
+                view.sendBinary(args.getString(0),
+                        args.size() > 1 && !args.isNull(1) ? args.getString(1) : null,
+                        args.size() > 2 && !args.isNull(2) ? args.getString(2) : null);
                 break;
             case PUBLISH_VIDEO:
                 view.publishLocalVideo(args.getBoolean(0));
@@ -223,6 +319,45 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
             case FETCH_ROOM:
                 view.fetchRoom();
                 break;
+            case GET_EVENT_DISPATCH_STATS:
+                view.getEventDispatchStats();
+                break;
+            case START_STATS_SAMPLING:
+                int historySeconds = args.size() > 1 && !args.isNull(1) ? args.getInt(1) : 0;
+                boolean emitSamples = args.size() <= 2 || args.isNull(2) || args.getBoolean(2);
+                view.startStatsSampling(args.getInt(0), historySeconds, emitSamples);
+                break;
+            case STOP_STATS_SAMPLING:
+                view.stopStatsSampling();
+                break;
+            case GET_STATS_HISTORY_SUMMARY:
+                view.getStatsHistorySummary();
+                break;
+            case GET_CODEC_CAPABILITIES:
+                view.getCodecCapabilities();
+                break;
+            case PREPARE:
+                view.prepare(
+                        args.getString(0),
+                        args.getBoolean(1),
+                        args.getBoolean(2),
+                        args.getInt(3),
+                        args.getInt(4),
+                        args.getInt(5),
+                        args.getBoolean(6));
+                break;
+            case GET_JOIN_TIMELINE:
+                view.getJoinTimeline();
+                break;
+            case GET_DATA_TRACK_STATS:
+                view.getDataTrackStats();
+                break;
+            case ADD_DATA_TRACK:
+                view.addDataTrack(args.getMap(0));
+                break;
+            case REMOVE_DATA_TRACK:
+                view.removeDataTrack(args.getString(0));
+                break;
         }
     }
 
@@ -302,6 +437,23 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
         map.putAll(MapBuilder.of(
                 ON_TRANSCRIPTION_RECEIVED, MapBuilder.of("registrationName", ON_TRANSCRIPTION_RECEIVED)));
 
+        map.putAll(MapBuilder.of(
+                ON_EVENT_BATCH, MapBuilder.of("registrationName", ON_EVENT_BATCH),
+                ON_EVENT_DISPATCH_STATS, MapBuilder.of("registrationName", ON_EVENT_DISPATCH_STATS),
+                ON_STATS_SAMPLE, MapBuilder.of("registrationName", ON_STATS_SAMPLE),
+                ON_STATS_HISTORY_SUMMARY, MapBuilder.of("registrationName", ON_STATS_HISTORY_SUMMARY),
+                ON_CODEC_CAPABILITIES, MapBuilder.of("registrationName", ON_CODEC_CAPABILITIES),
+                ON_VIDEO_ADAPTATION_CHANGED, MapBuilder.of("registrationName", ON_VIDEO_ADAPTATION_CHANGED),
+                ON_CAMERA_RESUMED, MapBuilder.of("registrationName", ON_CAMERA_RESUMED)));
+
+        map.putAll(MapBuilder.of(
+                ON_PREPARED, MapBuilder.of("registrationName", ON_PREPARED),
+                ON_JOIN_TIMELINE, MapBuilder.of("registrationName", ON_JOIN_TIMELINE),
+                ON_MEDIA_EXECUTOR_STATS, MapBuilder.of("registrationName", ON_MEDIA_EXECUTOR_STATS),
+                ON_DATATRACK_MESSAGES_RECEIVED, MapBuilder.of("registrationName", ON_DATATRACK_MESSAGES_RECEIVED),
+                ON_DATA_TRACK_STATS, MapBuilder.of("registrationName", ON_DATA_TRACK_STATS),
+                ON_DATA_TRACK_BACKPRESSURE, MapBuilder.of("registrationName", ON_DATA_TRACK_BACKPRESSURE)));
+
         return map;
     }
 
@@ -322,6 +474,17 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
                 .put("toggleScreenSharing", TOGGLE_SCREEN_SHARING)
                 .put("toggleDataTrack", TOGGLE_DATA_TRACK)
                 .put("fetchRoom", FETCH_ROOM)
+                .put("getEventDispatchStats", GET_EVENT_DISPATCH_STATS)
+                .put("startStatsSampling", START_STATS_SAMPLING)
+                .put("stopStatsSampling", STOP_STATS_SAMPLING)
+                .put("getStatsHistorySummary", GET_STATS_HISTORY_SUMMARY)
+                .put("getCodecCapabilities", GET_CODEC_CAPABILITIES)
+                .put("prepare", PREPARE)
+                .put("getJoinTimeline", GET_JOIN_TIMELINE)
+                .put("getMediaExecutorStats", GET_MEDIA_EXECUTOR_STATS)
+                .put("getDataTrackStats", GET_DATA_TRACK_STATS)
+                .put("addDataTrack", ADD_DATA_TRACK)
+                .put("removeDataTrack", REMOVE_DATA_TRACK)
                 .build();
     }
 }
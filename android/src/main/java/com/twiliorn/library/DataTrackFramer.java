@@ -0,0 +1,273 @@
+/**
+ * Packs data track messages sent within a window into one length-prefixed envelope, and unpacks
+ * received envelopes.
+ */
+
+package com.twiliorn.library;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Every LocalDataTrack.send is its own SCTP message, and every received message its own event
+ * across the bridge, which is costly for features sending many tiny messages per frame. In
+ * framed mode the messages are appended to an envelope that is sent as a single binary message
+ * when the window ends, or earlier when it is full.
+ *
+ * Envelope layout:
+ *
+ *   magic    4 bytes  0xC1 'R' 'N' 'F'
+ *   message  repeated until the end of the envelope:
+ *     kind   1 byte   0 = string (UTF-8), 1 = binary
+ *     length varint   unsigned LEB128, 1 byte for payloads under 128 bytes
+ *     payload
+ *
+ * Framing is not negotiated: it is enabled on both the sending and the receiving side with
+ * dataTrackBatchWindowMs, and every participant has to run this module with it set. iOS and web
+ * peers would receive the envelopes as opaque binary. A received binary message is only unpacked
+ * while framing is enabled and if it parses to the exact end, otherwise it is delivered as is.
+ * 0xC1 never occurs in UTF-8, so text sent as binary cannot be mistaken for an envelope.
+ * Messages that do not fit in an envelope on their own are sent unframed, after the pending
+ * envelope so the order is kept.
+ *
+ * An instance packs the messages of one local data track, on the media executor; unpacking
+ * holds no state and runs on the data track message thread.
+ */
+final class DataTrackFramer {
+    static final byte KIND_STRING = 0;
+    static final byte KIND_BINARY = 1;
+    // Larger messages are not delivered reliably by every browser
+    static final int MAX_ENVELOPE_BYTES = 16 * 1024;
+
+    private static final byte[] MAGIC = {(byte) 0xC1, 'R', 'N', 'F'};
+    private static final int MAX_VARINT_BYTES = 5;
+
+    interface Sink {
+        void sendEnvelope(ByteBuffer envelope);
+    }
+
+    interface Receiver {
+        void onStringMessage(String message);
+
+        /*
+         * The payload is a view into the envelope, only valid during the call.
+         */
+        void onBinaryMessage(ByteBuffer payload);
+    }
+
+    private final Sink sink;
+    private byte[] buffer = new byte[1024];
+    private int size = 0;
+    private int pendingMessages = 0;
+    private int pendingPayloadBytes = 0;
+
+    private long messagesFramed = 0;
+    private long messagesSentAlone = 0;
+    private long envelopesSent = 0;
+    private long payloadBytesFramed = 0;
+    private long envelopeBytesSent = 0;
+
+    DataTrackFramer(Sink sink) {
+        this.sink = sink;
+    }
+
+    /*
+     * Append a string message, sending the pending envelope first if the message does not fit
+     * in it. Returns false if the message is too large for any envelope.
+     */
+    boolean appendString(String message) {
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        if (!reserve(KIND_STRING, payload.length)) {
+            return false;
+        }
+        System.arraycopy(payload, 0, buffer, size, payload.length);
+        size += payload.length;
+        return true;
+    }
+
+    /*
+     * Append a binary message of decodedLength bytes, decoding the Base64 payload straight into
+     * the envelope. Returns false if the message is too large for any envelope.
+     */
+    boolean appendBinary(String base64Payload, int decodedLength) {
+        if (!reserve(KIND_BINARY, decodedLength)) {
+            return false;
+        }
+        DataTrackPayloadCodec.decodeInto(base64Payload, buffer, size);
+        size += decodedLength;
+        return true;
+    }
+
+    /*
+     * Send the pending envelope, if any.
+     */
+    void flush() {
+        if (pendingMessages == 0) {
+            return;
+        }
+        // LocalDataTrack sends the whole backing array, so the envelope gets an exact copy
+        ByteBuffer envelope = ByteBuffer.wrap(Arrays.copyOf(buffer, size));
+        envelopesSent++;
+        envelopeBytesSent += size;
+        payloadBytesFramed += pendingPayloadBytes;
+        size = 0;
+        pendingMessages = 0;
+        pendingPayloadBytes = 0;
+        sink.sendEnvelope(envelope);
+    }
+
+    void countSentAlone() {
+        messagesSentAlone++;
+    }
+
+    /*
+     * Deliver the messages of a received envelope to the receiver and return how many there
+     * were. Returns -1 without delivering anything if the buffer is not an envelope. The buffer
+     * position is left untouched.
+     */
+    static int unpack(ByteBuffer envelope, Receiver receiver) {
+        int start = envelope.position();
+        int end = envelope.limit();
+        int messages = count(envelope, start, end);
+        if (messages < 0) {
+            return -1;
+        }
+        int position = start + MAGIC.length;
+        while (position < end) {
+            byte kind = envelope.get(position++);
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = envelope.get(position++);
+                length |= (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            if (kind == KIND_STRING) {
+                receiver.onStringMessage(decodeString(envelope, position, length));
+            } else {
+                ByteBuffer payload = envelope.duplicate();
+                payload.limit(position + length);
+                payload.position(position);
+                receiver.onBinaryMessage(payload);
+            }
+            position += length;
+        }
+        return messages;
+    }
+
+    WritableMap buildStats() {
+        long messagesSent = messagesFramed + messagesSentAlone;
+        long dataTrackMessagesSent = envelopesSent + messagesSentAlone;
+        WritableMap stats = new WritableNativeMap();
+        stats.putDouble("messagesSent", messagesSent);
+        stats.putDouble("messagesFramed", messagesFramed);
+        stats.putDouble("messagesSentAlone", messagesSentAlone);
+        stats.putDouble("envelopesSent", envelopesSent);
+        stats.putDouble("dataTrackMessagesSent", dataTrackMessagesSent);
+        stats.putDouble("messagesPerDataTrackMessage",
+                dataTrackMessagesSent > 0 ? (double) messagesSent / dataTrackMessagesSent : 0);
+        stats.putDouble("envelopeBytesSent", envelopeBytesSent);
+        long messagesInEnvelopes = messagesFramed - pendingMessages;
+        stats.putDouble("framingOverheadBytesPerMessage", messagesInEnvelopes > 0
+                ? (double) (envelopeBytesSent - payloadBytesFramed) / messagesInEnvelopes : 0);
+        return stats;
+    }
+
+    /*
+     * Write the header of a message of the given length, sending the pending envelope first if
+     * it does not fit, and make room for the payload.
+     */
+    private boolean reserve(byte kind, int length) {
+        int header = 1 + varintLength(length);
+        if (MAGIC.length + header + length > MAX_ENVELOPE_BYTES) {
+            return false;
+        }
+        if (size + header + length > MAX_ENVELOPE_BYTES) {
+            flush();
+        }
+        if (size == 0) {
+            System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+            size = MAGIC.length;
+        }
+        int required = size + header + length;
+        if (buffer.length < required) {
+            buffer = Arrays.copyOf(buffer, Math.min(MAX_ENVELOPE_BYTES, Math.max(required, buffer.length * 2)));
+        }
+        buffer[size++] = kind;
+        int remaining = length;
+        while (remaining >= 0x80) {
+            buffer[size++] = (byte) ((remaining & 0x7f) | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[size++] = (byte) remaining;
+        pendingMessages++;
+        messagesFramed++;
+        pendingPayloadBytes += length;
+        return true;
+    }
+
+    /*
+     * Returns the number of messages in the envelope, or -1 if it is not a well-formed envelope.
+     */
+    private static int count(ByteBuffer envelope, int start, int end) {
+        if (end - start <= MAGIC.length) {
+            return -1;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (envelope.get(start + i) != MAGIC[i]) {
+                return -1;
+            }
+        }
+        int messages = 0;
+        int position = start + MAGIC.length;
+        while (position < end) {
+            byte kind = envelope.get(position++);
+            if (kind != KIND_STRING && kind != KIND_BINARY) {
+                return -1;
+            }
+            long length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= end || shift >= 7 * MAX_VARINT_BYTES) {
+                    return -1;
+                }
+                b = envelope.get(position++);
+                length |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            if (length > end - position) {
+                return -1;
+            }
+            position += (int) length;
+            messages++;
+        }
+        return messages;
+    }
+
+    private static String decodeString(ByteBuffer envelope, int position, int length) {
+        if (envelope.hasArray()) {
+            return new String(envelope.array(), envelope.arrayOffset() + position, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = envelope.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while (value >= 0x80) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
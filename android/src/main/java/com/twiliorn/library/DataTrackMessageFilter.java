@@ -0,0 +1,178 @@
+/**
+ * Topic filter applied to received data track messages before they cross the bridge.
+ */
+
+package com.twiliorn.library;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * In rooms where many peers broadcast, e.g. presence updates, every received message used to
+ * be turned into a WritableMap and handled on the JS thread, only for most to be ignored there.
+ * With a filter set, messages are matched on the data track message thread and the ones no
+ * topic asks for are dropped before any bridge work:
+ *
+ * - topics: string messages are delivered if they start with one of these prefixes
+ * - binaryTopics: binary messages are delivered if the byte at offset equals value
+ *
+ * The first matching topic wins and is passed along with the message. A kind of message
+ * without any topics is not filtered. Messages in an envelope are matched one by one.
+ * Malformed topics, e.g. a binary one without a name or with a value outside 0-255, are
+ * logged and ignored.
+ *
+ * The filter is immutable and replaced as a whole when the prop changes; its counters start
+ * over with it.
+ */
+final class DataTrackMessageFilter {
+    private static final String TAG = "RNTwilioVideo";
+
+    // Returned by the match methods
+    static final int DROP = -1;
+    static final int UNFILTERED = -2;
+
+    private final String[] prefixes;
+    private final String[] binaryTopicNames;
+    private final int[] binaryOffsets;
+    private final byte[] binaryValues;
+
+    // Indexed by topic: the string topics, then the binary ones
+    private final AtomicLongArray topicMessages;
+    private final AtomicLongArray topicBytes;
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+
+    private DataTrackMessageFilter(ReadableMap options) {
+        ReadableArray topics = options.hasKey("topics") && !options.isNull("topics")
+                ? options.getArray("topics") : null;
+        int topicCount = topics != null ? topics.size() : 0;
+        String[] prefixes = new String[topicCount];
+        int count = 0;
+        for (int i = 0; i < topicCount; i++) {
+            if (topics.isNull(i)) {
+                Log.w(TAG, "Ignoring null data track topic");
+                continue;
+            }
+            prefixes[count++] = topics.getString(i);
+        }
+        this.prefixes = Arrays.copyOf(prefixes, count);
+
+        ReadableArray binaryTopics = options.hasKey("binaryTopics") && !options.isNull("binaryTopics")
+                ? options.getArray("binaryTopics") : null;
+        int binaryTopicCount = binaryTopics != null ? binaryTopics.size() : 0;
+        String[] binaryTopicNames = new String[binaryTopicCount];
+        int[] binaryOffsets = new int[binaryTopicCount];
+        byte[] binaryValues = new byte[binaryTopicCount];
+        count = 0;
+        for (int i = 0; i < binaryTopicCount; i++) {
+            ReadableMap topic = binaryTopics.isNull(i) ? null : binaryTopics.getMap(i);
+            if (topic == null || !topic.hasKey("name") || topic.isNull("name")) {
+                Log.w(TAG, "Ignoring binary data track topic without a name");
+                continue;
+            }
+            String name = topic.getString("name");
+            int value = topic.hasKey("value") && !topic.isNull("value") ? topic.getInt("value") : -1;
+            if (value < 0 || value > 255) {
+                Log.w(TAG, "Ignoring binary data track topic " + name + " without a byte value");
+                continue;
+            }
+            binaryTopicNames[count] = name;
+            binaryOffsets[count] = topic.hasKey("offset") && !topic.isNull("offset")
+                    ? Math.max(0, topic.getInt("offset")) : 0;
+            binaryValues[count] = (byte) value;
+            count++;
+        }
+        this.binaryTopicNames = Arrays.copyOf(binaryTopicNames, count);
+        this.binaryOffsets = Arrays.copyOf(binaryOffsets, count);
+        this.binaryValues = Arrays.copyOf(binaryValues, count);
+        int binaryCount = count;
+
+        topicMessages = new AtomicLongArray(this.prefixes.length + binaryCount);
+        topicBytes = new AtomicLongArray(this.prefixes.length + binaryCount);
+    }
+
+    @Nullable
+    static DataTrackMessageFilter fromMap(@Nullable ReadableMap options) {
+        return options != null ? new DataTrackMessageFilter(options) : null;
+    }
+
+    /*
+     * Returns the index of the topic the message belongs to, UNFILTERED without string topics,
+     * or DROP.
+     */
+    int matchString(String message) {
+        if (prefixes.length == 0) {
+            return UNFILTERED;
+        }
+        for (int i = 0; i < prefixes.length; i++) {
+            if (message.startsWith(prefixes[i])) {
+                count(i, DataTrackSendQueue.utf8Length(message));
+                return i;
+            }
+        }
+        drop(DataTrackSendQueue.utf8Length(message));
+        return DROP;
+    }
+
+    /*
+     * As matchString, for the payload between position and limit of the buffer.
+     */
+    int matchBinary(ByteBuffer payload) {
+        if (binaryTopicNames.length == 0) {
+            return UNFILTERED;
+        }
+        int length = payload.remaining();
+        for (int i = 0; i < binaryTopicNames.length; i++) {
+            if (binaryOffsets[i] < length && payload.get(payload.position() + binaryOffsets[i]) == binaryValues[i]) {
+                count(prefixes.length + i, length);
+                return prefixes.length + i;
+            }
+        }
+        drop(length);
+        return DROP;
+    }
+
+    String topicName(int topic) {
+        return topic < prefixes.length ? prefixes[topic] : binaryTopicNames[topic - prefixes.length];
+    }
+
+    WritableMap buildStats() {
+        WritableArray topics = new WritableNativeArray();
+        for (int i = 0; i < topicMessages.length(); i++) {
+            WritableMap topic = new WritableNativeMap();
+            topic.putString("topic", topicName(i));
+            topic.putBoolean("isBinary", i >= prefixes.length);
+            topic.putDouble("messages", topicMessages.get(i));
+            topic.putDouble("bytes", topicBytes.get(i));
+            topics.pushMap(topic);
+        }
+        WritableMap stats = new WritableNativeMap();
+        stats.putArray("topics", topics);
+        stats.putDouble("droppedMessages", droppedMessages.get());
+        stats.putDouble("droppedBytes", droppedBytes.get());
+        return stats;
+    }
+
+    private void count(int topic, int bytes) {
+        topicMessages.incrementAndGet(topic);
+        topicBytes.addAndGet(topic, bytes);
+    }
+
+    private void drop(int bytes) {
+        droppedMessages.incrementAndGet();
+        droppedBytes.addAndGet(bytes);
+    }
+}
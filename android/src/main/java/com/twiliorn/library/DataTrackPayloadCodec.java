@@ -0,0 +1,187 @@
+/**
+ * Base64 codec for binary data track payloads that works directly against ByteBuffers.
+ */
+
+package com.twiliorn.library;
+
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+
+/*
+ * The React Native bridge can only carry strings, so binary data track payloads still travel
+ * between JS and native as Base64. What this codec removes is the intermediate copying:
+ * outgoing payloads are decoded straight into a single exactly-sized buffer (LocalDataTrack
+ * sends the whole backing array, so it cannot be pooled or oversized), and incoming payloads
+ * are encoded straight from the received ByteBuffer into a reusable scratch array.
+ *
+ * Encoding uses a scratch array owned by the instance and is therefore not thread safe; each
+ * receiving thread should own its own codec.
+ */
+class DataTrackPayloadCodec {
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int SKIP = -1;
+    private static final int INVALID = -2;
+    private static final int PAD = -3;
+    private static final int[] DECODE_TABLE = new int[128];
+
+    static {
+        for (int i = 0; i < DECODE_TABLE.length; i++) {
+            DECODE_TABLE[i] = INVALID;
+        }
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE_TABLE[ALPHABET[i]] = i;
+        }
+        // Accept the URL-safe alphabet as well as the standard one
+        DECODE_TABLE['-'] = 62;
+        DECODE_TABLE['_'] = 63;
+        DECODE_TABLE['='] = PAD;
+        DECODE_TABLE[' '] = SKIP;
+        DECODE_TABLE['\n'] = SKIP;
+        DECODE_TABLE['\r'] = SKIP;
+        DECODE_TABLE['\t'] = SKIP;
+    }
+
+    private char[] encodeScratch = new char[0];
+
+    /*
+     * Decodes a Base64 string into a ByteBuffer wrapping an exactly-sized array. Returns null
+     * if the payload is not valid Base64.
+     */
+    @Nullable
+    static ByteBuffer decode(String base64Payload) {
+        int length = decodedLength(base64Payload);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        decodeInto(base64Payload, bytes, 0);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /*
+     * Returns the number of bytes the Base64 string decodes to, or -1 if it is not valid Base64.
+     * Padding is optional, but only accepted at the end and only as much as completes the last
+     * quantum.
+     */
+    static int decodedLength(String base64Payload) {
+        int length = base64Payload.length();
+        int symbols = 0;
+        int padding = 0;
+        for (int i = 0; i < length; i++) {
+            int value = lookup(base64Payload.charAt(i));
+            if (value == INVALID) {
+                return -1;
+            }
+            if (value == PAD) {
+                padding++;
+            } else if (value != SKIP) {
+                if (padding > 0) {
+                    return -1;
+                }
+                symbols++;
+            }
+        }
+        if (symbols % 4 == 1 || (padding > 0 && (symbols + padding) % 4 != 0)) {
+            return -1;
+        }
+        return symbols * 3 / 4;
+    }
+
+    /*
+     * Decodes a Base64 string already checked with decodedLength into the array at the offset,
+     * e.g. straight into a data track envelope.
+     */
+    static void decodeInto(String base64Payload, byte[] bytes, int offset) {
+        int length = base64Payload.length();
+        int out = offset;
+        int i = 0;
+        // Whole quanta without whitespace or padding, the usual case, three bytes at a time
+        for (; i + 4 <= length; i += 4) {
+            int a = lookup(base64Payload.charAt(i));
+            int b = lookup(base64Payload.charAt(i + 1));
+            int c = lookup(base64Payload.charAt(i + 2));
+            int d = lookup(base64Payload.charAt(i + 3));
+            if ((a | b | c | d) < 0) {
+                break;
+            }
+            int quantum = (a << 18) | (b << 12) | (c << 6) | d;
+            bytes[out] = (byte) (quantum >> 16);
+            bytes[out + 1] = (byte) (quantum >> 8);
+            bytes[out + 2] = (byte) quantum;
+            out += 3;
+        }
+        int accumulator = 0;
+        int bits = 0;
+        for (; i < length; i++) {
+            int value = lookup(base64Payload.charAt(i));
+            if (value == SKIP || value == PAD) {
+                continue;
+            }
+            accumulator = (accumulator << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                bytes[out++] = (byte) (accumulator >> bits);
+            }
+        }
+    }
+
+    /*
+     * Encodes the remaining bytes of the buffer without wrapping. The buffer position is left
+     * untouched.
+     */
+    String encode(ByteBuffer buffer) {
+        int start = buffer.position();
+        int length = buffer.remaining();
+        int encodedLength = ((length + 2) / 3) * 4;
+        if (encodeScratch.length < encodedLength) {
+            encodeScratch = new char[encodedLength];
+        }
+
+        char[] out = encodeScratch;
+        int o = 0;
+        int i = 0;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + start;
+            for (; i + 2 < length; i += 3) {
+                o = encodeTriple(out, o,
+                        array[offset + i] & 0xff,
+                        array[offset + i + 1] & 0xff,
+                        array[offset + i + 2] & 0xff);
+            }
+        } else {
+            for (; i + 2 < length; i += 3) {
+                o = encodeTriple(out, o,
+                        buffer.get(start + i) & 0xff,
+                        buffer.get(start + i + 1) & 0xff,
+                        buffer.get(start + i + 2) & 0xff);
+            }
+        }
+
+        int tail = length - i;
+        if (tail > 0) {
+            int b0 = buffer.get(start + i) & 0xff;
+            int b1 = tail == 2 ? buffer.get(start + i + 1) & 0xff : 0;
+            out[o++] = ALPHABET[b0 >> 2];
+            out[o++] = ALPHABET[((b0 & 0x03) << 4) | (b1 >> 4)];
+            out[o++] = tail == 2 ? ALPHABET[(b1 & 0x0f) << 2] : '=';
+            out[o++] = '=';
+        }
+        return new String(out, 0, o);
+    }
+
+    private static int encodeTriple(char[] out, int o, int b0, int b1, int b2) {
+        out[o] = ALPHABET[b0 >> 2];
+        out[o + 1] = ALPHABET[((b0 & 0x03) << 4) | (b1 >> 4)];
+        out[o + 2] = ALPHABET[((b1 & 0x0f) << 2) | (b2 >> 6)];
+        out[o + 3] = ALPHABET[b2 & 0x3f];
+        return o + 4;
+    }
+
+    private static int lookup(char c) {
+        return c < DECODE_TABLE.length ? DECODE_TABLE[c] : INVALID;
+    }
+}
@@ -0,0 +1,346 @@
+/**
+ * Bounded queue in front of a local data track, with drop policies and optional pacing.
+ */
+
+package com.twiliorn.library;
+
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/*
+ * LocalDataTrack.send hands every message to the data channel right away and does not expose
+ * how much it has buffered, so a burst from JS builds up unbounded buffering and fresh messages
+ * wait behind stale ones. Messages are held here instead, up to maxMessages and maxBytes, and
+ * drained on the media executor: after the commands already queued there, so a burst is seen
+ * as a whole, and no faster than maxBytesPerSecond when it is set.
+ *
+ * When the queue is full:
+ *
+ * - dropOldest: the oldest messages are dropped to make room
+ * - dropNewest: the new message is dropped
+ * - latestPerKey: a message with the key of a queued one replaces it in place, e.g. for state
+ *   updates where only the latest value matters; otherwise as dropOldest
+ *
+ * The listener is told when the queue goes above 3/4 of either cap, and again when it is back
+ * under 1/4, so the app can slow its producer down.
+ *
+ * Only used on the media executor.
+ */
+final class DataTrackSendQueue {
+    static final String DROP_OLDEST = "dropOldest";
+    static final String DROP_NEWEST = "dropNewest";
+    static final String LATEST_PER_KEY = "latestPerKey";
+
+    private static final String DRAIN_TASK = "dataTrackDrain";
+
+    static final class Message {
+        final boolean isBinary;
+        // The string, or the Base64 payload of a binary message
+        String payload;
+        int length;
+        @Nullable
+        final String key;
+
+        Message(boolean isBinary, String payload, int length, @Nullable String key) {
+            this.isBinary = isBinary;
+            this.payload = payload;
+            this.length = length;
+            this.key = key;
+        }
+    }
+
+    /*
+     * The dataTrackSendQueue prop, read on the UI thread.
+     */
+    static final class Options {
+        final int maxMessages;
+        final int maxBytes;
+        final String policy;
+        final int maxBytesPerSecond;
+
+        private Options(ReadableMap options) {
+            maxMessages = getLimit(options, "maxMessages");
+            maxBytes = getLimit(options, "maxBytes");
+            policy = options.hasKey("dropPolicy") && !options.isNull("dropPolicy")
+                    ? options.getString("dropPolicy")
+                    : DROP_OLDEST;
+            maxBytesPerSecond = getLimit(options, "maxBytesPerSecond");
+        }
+
+        // Missing and null both mean no limit
+        private static int getLimit(ReadableMap options, String key) {
+            return options.hasKey(key) && !options.isNull(key) ? options.getInt(key) : 0;
+        }
+
+        @Nullable
+        static Options fromMap(@Nullable ReadableMap options) {
+            return options != null ? new Options(options) : null;
+        }
+    }
+
+    interface Sender {
+        void send(Message message);
+    }
+
+    interface Listener {
+        void onBackpressureChanged(WritableMap stats);
+    }
+
+    private final MediaExecutor executor;
+    private final Sender sender;
+    private final Listener listener;
+    private final ArrayDeque<Message> queue = new ArrayDeque<>();
+    private final Map<String, Message> queuedByKey = new HashMap<>();
+
+    private boolean enabled = false;
+    private int maxMessages = 0;
+    private int maxBytes = 0;
+    private String policy = DROP_OLDEST;
+    private int maxBytesPerSecond = 0;
+
+    private int queuedBytes = 0;
+    private boolean drainScheduled = false;
+    private boolean backpressure = false;
+    private double tokens = 0;
+    private long tokensUpdatedAtMs = 0;
+
+    private long enqueued = 0;
+    private long sent = 0;
+    private long droppedOldest = 0;
+    private long droppedNewest = 0;
+    private long superseded = 0;
+    private int maxQueuedMessages = 0;
+    private int maxQueuedBytes = 0;
+
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drainScheduled = false;
+            drain();
+        }
+    };
+
+    DataTrackSendQueue(MediaExecutor executor, Sender sender, Listener listener) {
+        this.executor = executor;
+        this.sender = sender;
+        this.listener = listener;
+    }
+
+    /*
+     * Queue with the given caps, 0 meaning unbounded, or send straight away again when null.
+     * Messages already queued are kept.
+     */
+    void configure(@Nullable Options options) {
+        if (options == null) {
+            disable();
+            return;
+        }
+        this.enabled = true;
+        this.maxMessages = Math.max(0, options.maxMessages);
+        this.maxBytes = Math.max(0, options.maxBytes);
+        this.policy = options.policy;
+        this.maxBytesPerSecond = Math.max(0, options.maxBytesPerSecond);
+        this.tokens = this.maxBytesPerSecond;
+        this.tokensUpdatedAtMs = SystemClock.elapsedRealtime();
+        if (!LATEST_PER_KEY.equals(this.policy)) {
+            queuedByKey.clear();
+        }
+        scheduleDrain(0);
+    }
+
+    /*
+     * Send the queued messages right away and stop queueing.
+     */
+    private void disable() {
+        enabled = false;
+        maxBytesPerSecond = 0;
+        drain();
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void enqueue(boolean isBinary, String payload, int length, @Nullable String key) {
+        enqueued++;
+        if (key != null && LATEST_PER_KEY.equals(policy)) {
+            Message queued = queuedByKey.get(key);
+            if (queued != null && queued.isBinary == isBinary) {
+                queuedBytes += length - queued.length;
+                queued.payload = payload;
+                queued.length = length;
+                superseded++;
+                trimBytes(queued);
+                updateBackpressure();
+                return;
+            }
+        }
+
+        if (isFull(length)) {
+            if (DROP_NEWEST.equals(policy)) {
+                droppedNewest++;
+                updateBackpressure();
+                return;
+            }
+            makeRoom(length);
+        }
+        Message message = new Message(isBinary, payload, length, key);
+        queue.addLast(message);
+        queuedBytes += length;
+        if (key != null && LATEST_PER_KEY.equals(policy)) {
+            queuedByKey.put(key, message);
+        }
+        maxQueuedMessages = Math.max(maxQueuedMessages, queue.size());
+        maxQueuedBytes = Math.max(maxQueuedBytes, queuedBytes);
+        updateBackpressure();
+        scheduleDrain(0);
+    }
+
+    /*
+     * Drop the queued messages, e.g. when the data track is released.
+     */
+    void clear() {
+        queue.clear();
+        queuedByKey.clear();
+        queuedBytes = 0;
+        updateBackpressure();
+    }
+
+    /*
+     * The size of the string once sent, without encoding it.
+     */
+    static int utf8Length(String message) {
+        int length = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < message.length()
+                    && Character.isLowSurrogate(message.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    WritableMap buildStats() {
+        WritableMap stats = new WritableNativeMap();
+        stats.putBoolean("enabled", enabled);
+        stats.putString("policy", policy);
+        stats.putInt("queuedMessages", queue.size());
+        stats.putInt("queuedBytes", queuedBytes);
+        stats.putInt("maxQueuedMessages", maxQueuedMessages);
+        stats.putInt("maxQueuedBytes", maxQueuedBytes);
+        stats.putBoolean("backpressure", backpressure);
+        stats.putDouble("enqueued", enqueued);
+        stats.putDouble("sent", sent);
+        stats.putDouble("droppedOldest", droppedOldest);
+        stats.putDouble("droppedNewest", droppedNewest);
+        stats.putDouble("superseded", superseded);
+        return stats;
+    }
+
+    private void drain() {
+        while (!queue.isEmpty()) {
+            Message message = queue.peekFirst();
+            if (maxBytesPerSecond > 0) {
+                refillTokens();
+                // A message larger than a second's worth goes out once the bucket is full
+                double needed = Math.min(message.length, maxBytesPerSecond);
+                if (tokens < needed) {
+                    scheduleDrain((long) Math.ceil((needed - tokens) * 1000 / maxBytesPerSecond));
+                    break;
+                }
+                tokens -= message.length;
+            }
+            forget(queue.pollFirst());
+            sent++;
+            sender.send(message);
+        }
+        updateBackpressure();
+    }
+
+    private void refillTokens() {
+        long now = SystemClock.elapsedRealtime();
+        tokens = Math.min(maxBytesPerSecond, tokens + (now - tokensUpdatedAtMs) * maxBytesPerSecond / 1000.0);
+        tokensUpdatedAtMs = now;
+    }
+
+    private void scheduleDrain(long delayMs) {
+        if (drainScheduled || queue.isEmpty()) {
+            return;
+        }
+        drainScheduled = true;
+        if (delayMs > 0) {
+            executor.executeDelayed(DRAIN_TASK, drainRunnable, delayMs);
+        } else {
+            executor.execute(DRAIN_TASK, drainRunnable);
+        }
+    }
+
+    private boolean isFull(int additionalBytes) {
+        return (maxMessages > 0 && queue.size() + 1 > maxMessages)
+                || (maxBytes > 0 && queuedBytes + additionalBytes > maxBytes);
+    }
+
+    /*
+     * Drop the oldest messages until a message of the given length fits.
+     */
+    private void makeRoom(int length) {
+        while (!queue.isEmpty() && isFull(length)) {
+            forget(queue.pollFirst());
+            droppedOldest++;
+        }
+    }
+
+    /*
+     * Drop the oldest messages other than keep, which grew in place, until within maxBytes.
+     */
+    private void trimBytes(Message keep) {
+        Iterator<Message> iterator = queue.iterator();
+        while (maxBytes > 0 && queuedBytes > maxBytes && iterator.hasNext()) {
+            Message oldest = iterator.next();
+            if (oldest != keep) {
+                iterator.remove();
+                forget(oldest);
+                droppedOldest++;
+            }
+        }
+    }
+
+    private void forget(Message message) {
+        queuedBytes -= message.length;
+        if (message.key != null && queuedByKey.get(message.key) == message) {
+            queuedByKey.remove(message.key);
+        }
+    }
+
+    private void updateBackpressure() {
+        boolean high = (maxMessages > 0 && queue.size() * 4 > maxMessages * 3)
+                || (maxBytes > 0 && queuedBytes * 4 > maxBytes * 3);
+        boolean low = (maxMessages <= 0 || queue.size() * 4 < maxMessages)
+                && (maxBytes <= 0 || queuedBytes * 4 < maxBytes);
+        if (!backpressure && high) {
+            backpressure = true;
+            listener.onBackpressureChanged(buildStats());
+        } else if (backpressure && low) {
+            backpressure = false;
+            listener.onBackpressureChanged(buildStats());
+        }
+    }
+}
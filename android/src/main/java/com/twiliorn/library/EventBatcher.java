@@ -0,0 +1,166 @@
+/**
+ * Batches and coalesces events sent from CustomTwilioVideoView to JS.
+ */
+
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * With a window of 0 (the default) every event is dispatched as soon as it is produced. With a
+ * positive window, events produced within the window are delivered to JS in a single batch
+ * event, in the order they were produced. An event enqueued with a coalesce key supersedes any
+ * pending event with the same key: it takes the superseded event's place in the batch, so JS
+ * only sees the latest state for that key, and still sees it before any event produced after
+ * the first change, e.g. a participant's trackEnabled before its later participantDisconnected.
+ */
+class EventBatcher {
+    private final RCTEventEmitter eventEmitter;
+    private final View view;
+    private final String batchEventName;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+
+    private final List<PendingEvent> pending = new ArrayList<>();
+    private final Map<String, PendingEvent> pendingByKey = new HashMap<>();
+    private int windowMs = 0;
+    private boolean flushScheduled = false;
+
+    private long eventsProduced = 0;
+    private long eventsCoalesced = 0;
+    private long bridgeCrossings = 0;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private static class PendingEvent {
+        String name;
+        WritableMap data;
+
+        PendingEvent(String name, WritableMap data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    EventBatcher(RCTEventEmitter eventEmitter, View view, String batchEventName) {
+        this.eventEmitter = eventEmitter;
+        this.view = view;
+        this.batchEventName = batchEventName;
+    }
+
+    void setWindowMs(int windowMs) {
+        synchronized (lock) {
+            this.windowMs = Math.max(0, windowMs);
+        }
+        if (windowMs <= 0) {
+            flush();
+        }
+    }
+
+    void enqueue(String name, @Nullable WritableMap data, @Nullable String coalesceKey) {
+        boolean dispatchNow;
+        synchronized (lock) {
+            eventsProduced++;
+            dispatchNow = windowMs <= 0;
+            if (!dispatchNow) {
+                PendingEvent previous = coalesceKey != null ? pendingByKey.get(coalesceKey) : null;
+                if (previous != null) {
+                    previous.name = name;
+                    previous.data = data;
+                    eventsCoalesced++;
+                } else {
+                    PendingEvent event = new PendingEvent(name, data);
+                    if (coalesceKey != null) {
+                        pendingByKey.put(coalesceKey, event);
+                    }
+                    pending.add(event);
+                }
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    handler.postDelayed(flushRunnable, windowMs);
+                }
+            } else {
+                bridgeCrossings++;
+            }
+        }
+        if (dispatchNow) {
+            eventEmitter.receiveEvent(view.getId(), name, data);
+        }
+    }
+
+    /*
+     * Dispatches everything that is pending. Safe to call from any thread.
+     */
+    void flush() {
+        List<PendingEvent> events;
+        synchronized (lock) {
+            handler.removeCallbacks(flushRunnable);
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            events = new ArrayList<>(pending);
+            pending.clear();
+            pendingByKey.clear();
+            bridgeCrossings++;
+        }
+
+        // A lone event is sent as itself, there is nothing to save by wrapping it
+        if (events.size() == 1) {
+            PendingEvent event = events.get(0);
+            eventEmitter.receiveEvent(view.getId(), event.name, event.data);
+            return;
+        }
+
+        WritableArray batch = new WritableNativeArray();
+        for (PendingEvent event : events) {
+            WritableMap entry = new WritableNativeMap();
+            entry.putString("name", event.name);
+            entry.putMap("data", event.data);
+            batch.pushMap(entry);
+        }
+        WritableMap payload = new WritableNativeMap();
+        payload.putArray("events", batch);
+        eventEmitter.receiveEvent(view.getId(), batchEventName, payload);
+    }
+
+    void release() {
+        synchronized (lock) {
+            handler.removeCallbacks(flushRunnable);
+            flushScheduled = false;
+            pending.clear();
+            pendingByKey.clear();
+        }
+    }
+
+    WritableMap buildStats() {
+        WritableMap stats = new WritableNativeMap();
+        synchronized (lock) {
+            stats.putInt("windowMs", windowMs);
+            stats.putDouble("eventsProduced", eventsProduced);
+            stats.putDouble("eventsCoalesced", eventsCoalesced);
+            stats.putDouble("bridgeCrossings", bridgeCrossings);
+        }
+        return stats;
+    }
+}
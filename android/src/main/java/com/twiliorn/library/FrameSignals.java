@@ -0,0 +1,266 @@
+/**
+ * First frame, freeze and frame rate decisions of a PatchedVideoView.
+ */
+
+package com.twiliorn.library;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Frames can be delivered from any thread, including briefly from two tracks' threads while the
+ * view is rebound, so every transition is an atomic. Each armed first frame and each freeze start
+ * and end is signalled exactly once, through preallocated runnables on the UI thread, without
+ * allocating on the render thread. A freeze can only start from the UI thread check, after the
+ * previous end has been delivered, so a single pending duration is enough. The frame rate cap
+ * claims each rendered timestamp with a compare and set, so a frame delivered twice renders once.
+ *
+ * A view that has rendered and is neither paused nor bound to a disabled track is expected to
+ * keep receiving frames; once none has arrived for the freeze threshold, the video is frozen
+ * until the next one.
+ *
+ * Pure Java with the UI thread and the clock behind interfaces, so the handoffs can be exercised
+ * off the device with time advanced by hand.
+ */
+final class FrameSignals {
+    static final int RENDER = 0;
+    static final int SKIP_PAUSED = 1;
+    static final int DROP_FRAME_RATE = 2;
+
+    interface Clock {
+        long nanoTime();
+    }
+
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    interface UiThread {
+        void post(Runnable runnable);
+
+        void postDelayed(Runnable runnable, long delayMs);
+    }
+
+    /*
+     * Called on the UI thread.
+     */
+    interface Callbacks {
+        void onFirstFrame();
+
+        void onFreezeStarted();
+
+        void onFreezeEnded(long durationMs);
+    }
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long MIN_FREEZE_CHECK_INTERVAL_MS = 50;
+    private static final long MAX_FREEZE_CHECK_INTERVAL_MS = 250;
+
+    private final UiThread uiThread;
+    private final Clock clock;
+    private final Callbacks callbacks;
+
+    private final AtomicBoolean notifyFrameRendered = new AtomicBoolean(false);
+    private volatile boolean renderingPaused = false;
+
+    private volatile long minFrameIntervalNs = 0;
+    private final AtomicLong lastRenderedTimestampNs = new AtomicLong(-1);
+
+    private volatile long freezeThresholdMs = 0;
+    private volatile boolean trackEnabled = true;
+    private final AtomicBoolean frozen = new AtomicBoolean(false);
+    private final AtomicLong freezeWatchFromNs = new AtomicLong(-1);
+    private final AtomicBoolean freezeCheckScheduled = new AtomicBoolean(false);
+    private final AtomicLong freezeStartedNs = new AtomicLong();
+    private final AtomicLong freezeCount = new AtomicLong();
+    private final AtomicLong totalFreezeNs = new AtomicLong();
+    private final AtomicLong endedFreezeNs = new AtomicLong();
+    private final AtomicBoolean freezeEndPending = new AtomicBoolean(false);
+
+    private final Runnable firstFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            callbacks.onFirstFrame();
+        }
+    };
+
+    private final Runnable freezeEndedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long durationNs = endedFreezeNs.get();
+            freezeEndPending.set(false);
+            callbacks.onFreezeEnded(durationNs / NANOS_PER_MILLI);
+        }
+    };
+
+    private final Runnable freezeCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            freezeCheckScheduled.set(false);
+            long thresholdMs = freezeThresholdMs;
+            long watchFromNs = freezeWatchFromNs.get();
+            if (thresholdMs <= 0 || watchFromNs < 0 || renderingPaused || !trackEnabled) {
+                return;
+            }
+            // The previous end is reported first
+            if (freezeEndPending.get()
+                    || clock.nanoTime() - watchFromNs <= thresholdMs * NANOS_PER_MILLI) {
+                scheduleFreezeCheck();
+                return;
+            }
+            // Published before frozen, so whoever ends the freeze sees when it started
+            freezeStartedNs.set(watchFromNs);
+            if (!frozen.compareAndSet(false, true)) {
+                return;
+            }
+            freezeCount.incrementAndGet();
+            callbacks.onFreezeStarted();
+            // A frame that arrived, or a stop, since the watch start was read ends it right away.
+            // The end is posted, so it is still reported after the start.
+            long latestNs = freezeWatchFromNs.get();
+            if (latestNs != watchFromNs) {
+                endFreeze(latestNs >= 0 ? latestNs : clock.nanoTime());
+            }
+        }
+    };
+
+    FrameSignals(UiThread uiThread, Clock clock, Callbacks callbacks) {
+        this.uiThread = uiThread;
+        this.clock = clock;
+        this.callbacks = callbacks;
+    }
+
+    /*
+     * Decide what becomes of a frame that reached the view at arrivalNs, on the clock's time
+     * base: RENDER, SKIP_PAUSED or DROP_FRAME_RATE. Called on the delivering thread.
+     */
+    int onFrame(long arrivalNs, long timestampNs) {
+        if (renderingPaused) {
+            return SKIP_PAUSED;
+        }
+        onFrameArrived(arrivalNs);
+        return shouldDropForFrameRate(timestampNs) ? DROP_FRAME_RATE : RENDER;
+    }
+
+    /*
+     * Start watching for a freeze on the first frame, end the current one, and signal the armed
+     * first frame.
+     */
+    private void onFrameArrived(long arrivalNs) {
+        if (freezeThresholdMs > 0 && trackEnabled) {
+            freezeWatchFromNs.set(arrivalNs);
+            if (frozen.get()) {
+                endFreeze(arrivalNs);
+            }
+            if (!freezeCheckScheduled.get()) {
+                scheduleFreezeCheck();
+            }
+        }
+        if (notifyFrameRendered.get() && notifyFrameRendered.compareAndSet(true, false)) {
+            uiThread.post(firstFrameRunnable);
+        }
+    }
+
+    private boolean shouldDropForFrameRate(long timestampNs) {
+        long interval = minFrameIntervalNs;
+        if (interval <= 0) {
+            return false;
+        }
+        while (true) {
+            long lastNs = lastRenderedTimestampNs.get();
+            // Allow some jitter so that e.g. a 30fps source capped at 15fps renders every other frame
+            if (lastNs >= 0
+                    && timestampNs >= lastNs
+                    && timestampNs - lastNs < interval - interval / 10) {
+                return true;
+            }
+            if (lastRenderedTimestampNs.compareAndSet(lastNs, timestampNs)) {
+                return false;
+            }
+        }
+    }
+
+    private void scheduleFreezeCheck() {
+        if (frozen.get() || !freezeCheckScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long intervalMs = Math.max(MIN_FREEZE_CHECK_INTERVAL_MS,
+                Math.min(MAX_FREEZE_CHECK_INTERVAL_MS, freezeThresholdMs / 4));
+        uiThread.postDelayed(freezeCheckRunnable, intervalMs);
+    }
+
+    private void endFreeze(long nowNs) {
+        if (!frozen.compareAndSet(true, false)) {
+            return;
+        }
+        long durationNs = Math.max(0, nowNs - freezeStartedNs.get());
+        totalFreezeNs.addAndGet(durationNs);
+        endedFreezeNs.set(durationNs);
+        freezeEndPending.set(true);
+        uiThread.post(freezeEndedRunnable);
+    }
+
+    /*
+     * Stop expecting frames, ending the current freeze. Watching resumes with the next frame.
+     */
+    private void stopFreezeWatch() {
+        freezeWatchFromNs.set(-1);
+        endFreeze(clock.nanoTime());
+    }
+
+    /*
+     * Signal the next frame that arrives. Can be called from any thread, and again before the
+     * previous first frame was signalled.
+     */
+    void armFirstFrame() {
+        notifyFrameRendered.set(true);
+    }
+
+    void setMaxFrameRate(int maxFrameRate) {
+        this.minFrameIntervalNs = maxFrameRate > 0 ? NANOS_PER_SECOND / maxFrameRate : 0;
+    }
+
+    void setRenderingPaused(boolean renderingPaused) {
+        this.renderingPaused = renderingPaused;
+        if (renderingPaused) {
+            stopFreezeWatch();
+        }
+    }
+
+    void setTrackEnabled(boolean trackEnabled) {
+        this.trackEnabled = trackEnabled;
+        if (!trackEnabled) {
+            stopFreezeWatch();
+        }
+    }
+
+    void setFreezeThresholdMs(int freezeThresholdMs) {
+        this.freezeThresholdMs = Math.max(0, freezeThresholdMs);
+        if (freezeThresholdMs <= 0) {
+            stopFreezeWatch();
+        }
+    }
+
+    boolean isFrozen() {
+        return frozen.get();
+    }
+
+    long getFreezeCount() {
+        return freezeCount.get();
+    }
+
+    /*
+     * Total duration of the freezes so far, including the current one.
+     */
+    long getTotalFreezeDurationMs() {
+        long totalNs = totalFreezeNs.get();
+        if (frozen.get()) {
+            totalNs += Math.max(0, clock.nanoTime() - freezeStartedNs.get());
+        }
+        return totalNs / NANOS_PER_MILLI;
+    }
+}
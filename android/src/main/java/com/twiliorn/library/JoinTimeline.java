@@ -0,0 +1,242 @@
+/**
+ * Monotonic timestamps of the phases of joining a room, reported once per join.
+ */
+
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * A join starts with prepare() when the app prepares ahead of time, otherwise with
+ * connectToRoom. Each phase keeps the first time it was reached, as an offset in milliseconds
+ * from the start of the join, so a prepared and an unprepared join can be compared phase by
+ * phase. Remote participants and video tracks get their own offsets: when the participant
+ * connected (or was found in the room on connect), when each video track was subscribed and
+ * when a view first rendered it.
+ *
+ * The report is delivered to the listener exactly once per join, when the first of these
+ * happens:
+ *
+ * - complete: connected, and every video track subscribed so far has rendered a frame
+ * - timeout: REPORT_TIMEOUT_MS after connecting, e.g. tracks nobody renders or an empty room
+ * - connectFailure / disconnected: the join ended before either of the above
+ */
+final class JoinTimeline {
+    static final String PHASE_PREPARE_STARTED = "prepareStarted";
+    static final String PHASE_PREPARED = "prepared";
+    static final String PHASE_CONNECT_INVOKED = "connectInvoked";
+    static final String PHASE_LOCAL_TRACKS_CREATED = "localTracksCreated";
+    static final String PHASE_CODECS_DETECTED = "codecsDetected";
+    static final String PHASE_CONNECT_STARTED = "connectStarted";
+    static final String PHASE_CONNECTED = "connected";
+    static final String PHASE_FIRST_REMOTE_FRAME = "firstRemoteFrame";
+
+    static final String OUTCOME_COMPLETE = "complete";
+    static final String OUTCOME_TIMEOUT = "timeout";
+    static final String OUTCOME_CONNECT_FAILURE = "connectFailure";
+    static final String OUTCOME_DISCONNECTED = "disconnected";
+
+    private static final long REPORT_TIMEOUT_MS = 15000;
+
+    interface Listener {
+        void onReport(WritableMap report);
+    }
+
+    private static class RemoteVideoTrackTiming {
+        String participantSid;
+        long subscribedMs = -1;
+        long firstFrameMs = -1;
+    }
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, Long> participantsConnected = new LinkedHashMap<>();
+    private final Map<String, RemoteVideoTrackTiming> videoTracks = new LinkedHashMap<>();
+    private final Handler timeoutHandler = new Handler(Looper.getMainLooper());
+    private Listener listener;
+    private long startedAtMs = 0;
+    private long startedAtWallClockMs = 0;
+    private boolean reported = false;
+
+    private final Runnable timeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            finish(OUTCOME_TIMEOUT);
+        }
+    };
+
+    /*
+     * Start a new join, unless the current one was prepared and has not connected yet.
+     */
+    synchronized void begin(boolean prepare) {
+        boolean preparedJoin = phases.containsKey(PHASE_PREPARE_STARTED)
+                && !phases.containsKey(PHASE_CONNECT_INVOKED);
+        if (prepare || !preparedJoin) {
+            timeoutHandler.removeCallbacks(timeoutRunnable);
+            phases.clear();
+            participantsConnected.clear();
+            videoTracks.clear();
+            reported = false;
+            startedAtMs = SystemClock.elapsedRealtime();
+            startedAtWallClockMs = System.currentTimeMillis();
+        }
+    }
+
+    synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /*
+     * Record the phase, unless it was already reached in this join.
+     */
+    synchronized void mark(String phase) {
+        if (startedAtMs == 0 || reported || phases.containsKey(phase)) {
+            return;
+        }
+        phases.put(phase, elapsed());
+        if (PHASE_CONNECTED.equals(phase)) {
+            timeoutHandler.postDelayed(timeoutRunnable, REPORT_TIMEOUT_MS);
+        }
+    }
+
+    synchronized void markParticipantConnected(String participantSid) {
+        if (startedAtMs == 0 || reported || participantsConnected.containsKey(participantSid)) {
+            return;
+        }
+        participantsConnected.put(participantSid, elapsed());
+    }
+
+    synchronized void markVideoTrackSubscribed(String participantSid, String trackSid) {
+        if (startedAtMs == 0 || reported) {
+            return;
+        }
+        RemoteVideoTrackTiming timing = getVideoTrack(trackSid);
+        if (timing.subscribedMs < 0) {
+            timing.participantSid = participantSid;
+            timing.subscribedMs = elapsed();
+        }
+    }
+
+    /*
+     * A view rendered its first frame of the track.
+     */
+    void markFirstFrame(String trackSid) {
+        boolean complete;
+        synchronized (this) {
+            if (startedAtMs == 0 || reported) {
+                return;
+            }
+            RemoteVideoTrackTiming timing = getVideoTrack(trackSid);
+            if (timing.firstFrameMs >= 0) {
+                return;
+            }
+            timing.firstFrameMs = elapsed();
+            if (!phases.containsKey(PHASE_FIRST_REMOTE_FRAME)) {
+                phases.put(PHASE_FIRST_REMOTE_FRAME, timing.firstFrameMs);
+            }
+            complete = phases.containsKey(PHASE_CONNECTED);
+            for (RemoteVideoTrackTiming track : videoTracks.values()) {
+                if (track.firstFrameMs < 0) {
+                    complete = false;
+                }
+            }
+        }
+        if (complete) {
+            finish(OUTCOME_COMPLETE);
+        }
+    }
+
+    /*
+     * Deliver the report of the current join, unless it was already delivered.
+     */
+    void finish(String outcome) {
+        WritableMap report;
+        Listener notify;
+        synchronized (this) {
+            if (startedAtMs == 0 || reported) {
+                return;
+            }
+            reported = true;
+            timeoutHandler.removeCallbacks(timeoutRunnable);
+            report = buildReport(outcome);
+            notify = listener;
+        }
+        if (notify != null) {
+            notify.onReport(report);
+        }
+    }
+
+    /*
+     * The join so far, without an outcome if it has not been reported yet.
+     */
+    synchronized WritableMap toWritableMap() {
+        return buildReport(null);
+    }
+
+    private WritableMap buildReport(String outcome) {
+        WritableMap offsets = new WritableNativeMap();
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            offsets.putDouble(phase.getKey(), phase.getValue());
+        }
+        WritableArray participants = new WritableNativeArray();
+        for (Map.Entry<String, Long> participant : participantsConnected.entrySet()) {
+            WritableMap entry = new WritableNativeMap();
+            entry.putString("sid", participant.getKey());
+            entry.putDouble("connected", participant.getValue());
+            participants.pushMap(entry);
+        }
+        WritableArray tracks = new WritableNativeArray();
+        for (Map.Entry<String, RemoteVideoTrackTiming> track : videoTracks.entrySet()) {
+            RemoteVideoTrackTiming timing = track.getValue();
+            WritableMap entry = new WritableNativeMap();
+            entry.putString("trackSid", track.getKey());
+            if (timing.participantSid != null) {
+                entry.putString("participantSid", timing.participantSid);
+            }
+            if (timing.subscribedMs >= 0) {
+                entry.putDouble("subscribed", timing.subscribedMs);
+            }
+            if (timing.firstFrameMs >= 0) {
+                entry.putDouble("firstFrame", timing.firstFrameMs);
+            }
+            tracks.pushMap(entry);
+        }
+
+        WritableMap result = new WritableNativeMap();
+        if (outcome != null) {
+            result.putString("outcome", outcome);
+        }
+        result.putDouble("startedAt", startedAtWallClockMs);
+        result.putMap("phases", offsets);
+        result.putArray("participants", participants);
+        result.putArray("videoTracks", tracks);
+        Long connectInvoked = phases.get(PHASE_CONNECT_INVOKED);
+        Long firstRemoteFrame = phases.get(PHASE_FIRST_REMOTE_FRAME);
+        if (connectInvoked != null && firstRemoteFrame != null) {
+            result.putDouble("timeToFirstRemoteFrameMs", firstRemoteFrame - connectInvoked);
+        }
+        return result;
+    }
+
+    private RemoteVideoTrackTiming getVideoTrack(String trackSid) {
+        RemoteVideoTrackTiming timing = videoTracks.get(trackSid);
+        if (timing == null) {
+            timing = new RemoteVideoTrackTiming();
+            videoTracks.put(trackSid, timing);
+        }
+        return timing;
+    }
+
+    private long elapsed() {
+        return SystemClock.elapsedRealtime() - startedAtMs;
+    }
+}
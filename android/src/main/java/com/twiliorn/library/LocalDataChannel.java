@@ -0,0 +1,260 @@
+/**
+ * A named local data track with its own reliability settings, send queue and framing.
+ */
+
+package com.twiliorn.library;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.twilio.video.DataTrackOptions;
+import com.twilio.video.LocalDataTrack;
+import com.twilio.video.LocalParticipant;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Every data track is its own SCTP stream, so traffic on one is not held up behind lost
+ * packets of another. A view can have several, e.g. a reliable, ordered one for chat next to
+ * an unordered one with maxRetransmits 0 for positional updates, and sends are routed to a
+ * track by name. WebRTC only accepts one of maxPacketLifeTime and maxRetransmits; without
+ * either the track is reliable.
+ *
+ * The batch window and send queue settings of the view apply to each track separately.
+ *
+ * Only used on the media executor.
+ */
+final class LocalDataChannel {
+    private static final String TAG = "RNTwilioVideo";
+    private static final int UNSET = -1;
+
+    final String name;
+    final boolean ordered;
+    final int maxPacketLifeTime;
+    final int maxRetransmits;
+
+    private final MediaExecutor executor;
+    private final LocalDataTrack track;
+    private final DataTrackFramer framer;
+    private final DataTrackSendQueue sendQueue;
+    private int batchWindowMs = 0;
+    private boolean flushScheduled = false;
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = false;
+            framer.flush();
+        }
+    };
+
+    interface Listener {
+        void onBackpressureChanged(LocalDataChannel channel, WritableMap stats);
+    }
+
+    private LocalDataChannel(Context context,
+                             MediaExecutor executor,
+                             String name,
+                             boolean ordered,
+                             int maxPacketLifeTime,
+                             int maxRetransmits,
+                             final Listener listener) {
+        this.name = name;
+        this.ordered = ordered;
+        this.maxPacketLifeTime = maxPacketLifeTime;
+        this.maxRetransmits = maxRetransmits;
+        this.executor = executor;
+
+        DataTrackOptions.Builder options = new DataTrackOptions.Builder().name(name).ordered(ordered);
+        if (maxPacketLifeTime != UNSET) {
+            options.maxPacketLifeTime(maxPacketLifeTime);
+        } else if (maxRetransmits != UNSET) {
+            options.maxRetransmits(maxRetransmits);
+        }
+        this.track = LocalDataTrack.create(context, options.build());
+        this.framer = new DataTrackFramer(new DataTrackFramer.Sink() {
+            @Override
+            public void sendEnvelope(ByteBuffer envelope) {
+                track.send(envelope);
+            }
+        });
+        this.sendQueue = new DataTrackSendQueue(executor,
+                new DataTrackSendQueue.Sender() {
+                    @Override
+                    public void send(DataTrackSendQueue.Message message) {
+                        if (message.isBinary) {
+                            sendBinaryNow(message.payload);
+                        } else {
+                            sendStringNow(message.payload);
+                        }
+                    }
+                },
+                new DataTrackSendQueue.Listener() {
+                    @Override
+                    public void onBackpressureChanged(WritableMap stats) {
+                        listener.onBackpressureChanged(LocalDataChannel.this, stats);
+                    }
+                });
+    }
+
+    /*
+     * A reliable, ordered track.
+     */
+    @Nullable
+    static LocalDataChannel create(Context context, MediaExecutor executor, String name, Listener listener) {
+        return create(context, executor, name, true, UNSET, UNSET, listener);
+    }
+
+    /*
+     * A track with the settings of a dataTracks entry: name, ordered, maxPacketLifeTime and
+     * maxRetransmits. Returns null if the entry has no name or the track could not be created.
+     */
+    @Nullable
+    static LocalDataChannel create(Context context, MediaExecutor executor, ReadableMap spec, Listener listener) {
+        String name = spec.hasKey("name") && !spec.isNull("name") ? spec.getString("name") : null;
+        if (name == null || name.isEmpty()) {
+            Log.w(TAG, "Ignoring data track without a name");
+            return null;
+        }
+        boolean ordered = !spec.hasKey("ordered") || spec.isNull("ordered") || spec.getBoolean("ordered");
+        int maxPacketLifeTime = spec.hasKey("maxPacketLifeTime") && !spec.isNull("maxPacketLifeTime")
+                ? spec.getInt("maxPacketLifeTime") : UNSET;
+        int maxRetransmits = spec.hasKey("maxRetransmits") && !spec.isNull("maxRetransmits")
+                ? spec.getInt("maxRetransmits") : UNSET;
+        if (maxPacketLifeTime != UNSET && maxRetransmits != UNSET) {
+            Log.w(TAG, "Data track " + name + " sets both maxPacketLifeTime and maxRetransmits, using maxPacketLifeTime");
+            maxRetransmits = UNSET;
+        }
+        return create(context, executor, name, ordered, maxPacketLifeTime, maxRetransmits, listener);
+    }
+
+    @Nullable
+    private static LocalDataChannel create(Context context,
+                                           MediaExecutor executor,
+                                           String name,
+                                           boolean ordered,
+                                           int maxPacketLifeTime,
+                                           int maxRetransmits,
+                                           Listener listener) {
+        LocalDataChannel channel = new LocalDataChannel(
+                context, executor, name, ordered, maxPacketLifeTime, maxRetransmits, listener);
+        return channel.track != null ? channel : null;
+    }
+
+    LocalDataTrack getTrack() {
+        return track;
+    }
+
+    /*
+     * Send the message, through the send queue when it is configured. The key identifies the
+     * state the message updates, for the latestPerKey policy.
+     */
+    void sendString(String message, @Nullable String key) {
+        if (sendQueue.isEnabled()) {
+            sendQueue.enqueue(false, message, DataTrackSendQueue.utf8Length(message), key);
+            return;
+        }
+        sendStringNow(message);
+    }
+
+    void sendBinary(String base64Payload, @Nullable String key) {
+        if (sendQueue.isEnabled()) {
+            int length = DataTrackPayloadCodec.decodedLength(base64Payload);
+            if (length < 0) {
+                Log.e(TAG, "Failed to decode base64 binary payload");
+                return;
+            }
+            sendQueue.enqueue(true, base64Payload, length, key);
+            return;
+        }
+        sendBinaryNow(base64Payload);
+    }
+
+    /*
+     * Collect the messages sent within the window into one data track message. 0 sends each
+     * message on its own.
+     */
+    void setBatchWindowMs(int windowMs) {
+        batchWindowMs = Math.max(0, windowMs);
+        if (batchWindowMs == 0) {
+            framer.flush();
+        }
+    }
+
+    void setSendQueueOptions(@Nullable DataTrackSendQueue.Options options) {
+        sendQueue.configure(options);
+    }
+
+    /*
+     * Send what is framed so far, unpublish and release the track. Messages still queued are
+     * dropped.
+     */
+    void release(@Nullable LocalParticipant localParticipant) {
+        sendQueue.clear();
+        framer.flush();
+        if (localParticipant != null) {
+            localParticipant.unpublishTrack(track);
+        }
+        track.release();
+    }
+
+    WritableMap buildStats() {
+        WritableMap stats = framer.buildStats();
+        stats.putString("name", name);
+        stats.putBoolean("ordered", ordered);
+        if (maxPacketLifeTime != UNSET) {
+            stats.putInt("maxPacketLifeTime", maxPacketLifeTime);
+        }
+        if (maxRetransmits != UNSET) {
+            stats.putInt("maxRetransmits", maxRetransmits);
+        }
+        stats.putMap("sendQueue", sendQueue.buildStats());
+        return stats;
+    }
+
+    private void sendStringNow(String message) {
+        if (batchWindowMs > 0) {
+            if (framer.appendString(message)) {
+                scheduleFlush();
+                return;
+            }
+            // Too large for an envelope, send it on its own after the pending ones
+            framer.flush();
+        }
+        framer.countSentAlone();
+        track.send(message);
+    }
+
+    private void sendBinaryNow(String base64Payload) {
+        if (batchWindowMs > 0) {
+            int length = DataTrackPayloadCodec.decodedLength(base64Payload);
+            if (length < 0) {
+                Log.e(TAG, "Failed to decode base64 binary payload");
+                return;
+            }
+            if (framer.appendBinary(base64Payload, length)) {
+                scheduleFlush();
+                return;
+            }
+            framer.flush();
+        }
+        ByteBuffer buffer = DataTrackPayloadCodec.decode(base64Payload);
+        if (buffer == null) {
+            Log.e(TAG, "Failed to decode base64 binary payload");
+            return;
+        }
+        framer.countSentAlone();
+        track.send(buffer);
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            executor.executeDelayed("dataTrackFlush", flushRunnable, batchWindowMs);
+        }
+    }
+}
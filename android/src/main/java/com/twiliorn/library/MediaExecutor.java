@@ -0,0 +1,163 @@
+/**
+ * Serial executor that owns the room and track state of a TwilioVideo view.
+ */
+
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Connecting, creating and releasing tracks, publishing and switching cameras all block for
+ * tens to hundreds of milliseconds, which used to happen on the UI thread and dropped frames
+ * of every view on screen. Commands and lifecycle callbacks are now queued here and run one at
+ * a time, in order, on a thread with a looper, so the callbacks of the Room, the participants
+ * and the capturers created from it are delivered on that same thread and never race with a
+ * command. Only view operations are posted back to the UI thread.
+ *
+ * Every task is named, and the time it waited in the queue and the time it ran are recorded
+ * per name to see which commands hold up the others.
+ */
+final class MediaExecutor {
+    private static final String TAG = "RNTwilioVideo";
+    private static final String THREAD_NAME = "RNTwilioMedia";
+    private static final long SLOW_TASK_MS = 250;
+
+    private static class TaskStats {
+        long count;
+        long totalQueueNs;
+        long maxQueueNs;
+        long totalRunNs;
+        long maxRunNs;
+    }
+
+    private final HandlerThread thread = new HandlerThread(THREAD_NAME);
+    private final Handler handler;
+    private final Object lock = new Object();
+    private final Map<String, TaskStats> stats = new LinkedHashMap<>();
+    private int pending = 0;
+    private int maxPending = 0;
+
+    MediaExecutor() {
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /*
+     * Queue the task behind the ones already submitted. Once released, tasks are dropped: the
+     * state they would touch is already torn down, and running them on the calling thread would
+     * block the UI thread.
+     */
+    void execute(final String name, final Runnable task) {
+        final long queuedAtNs = SystemClock.elapsedRealtimeNanos();
+        synchronized (lock) {
+            pending++;
+            maxPending = Math.max(maxPending, pending);
+        }
+        boolean queued = handler.post(new Runnable() {
+            @Override
+            public void run() {
+                runTask(name, task, queuedAtNs);
+            }
+        });
+        if (!queued) {
+            Log.w(TAG, "Media executor released, dropping " + name);
+            synchronized (lock) {
+                pending--;
+            }
+        }
+    }
+
+    /*
+     * Queue the task once the delay has passed. Its queueing time is counted from then.
+     */
+    void executeDelayed(final String name, final Runnable task, long delayMs) {
+        final long dueAtNs = SystemClock.elapsedRealtimeNanos() + delayMs * 1000000L;
+        synchronized (lock) {
+            pending++;
+            maxPending = Math.max(maxPending, pending);
+        }
+        boolean queued = handler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                runTask(name, task, dueAtNs);
+            }
+        }, delayMs);
+        if (!queued) {
+            synchronized (lock) {
+                pending--;
+            }
+        }
+    }
+
+    private void runTask(String name, Runnable task, long queuedAtNs) {
+        long startedAtNs = SystemClock.elapsedRealtimeNanos();
+        try {
+            task.run();
+        } finally {
+            long queueNs = startedAtNs - queuedAtNs;
+            long runNs = SystemClock.elapsedRealtimeNanos() - startedAtNs;
+            record(name, queueNs, runNs);
+            if (queueNs + runNs > SLOW_TASK_MS * 1000000L) {
+                Log.w(TAG, "Media command " + name + " waited " + queueNs / 1000000L
+                        + "ms and ran " + runNs / 1000000L + "ms");
+            }
+        }
+    }
+
+    private void record(String name, long queueNs, long runNs) {
+        synchronized (lock) {
+            pending--;
+            TaskStats task = stats.get(name);
+            if (task == null) {
+                task = new TaskStats();
+                stats.put(name, task);
+            }
+            task.count++;
+            task.totalQueueNs += queueNs;
+            task.maxQueueNs = Math.max(task.maxQueueNs, queueNs);
+            task.totalRunNs += runNs;
+            task.maxRunNs = Math.max(task.maxRunNs, runNs);
+        }
+    }
+
+    void release() {
+        thread.quitSafely();
+    }
+
+    WritableMap buildStats() {
+        WritableArray commands = new WritableNativeArray();
+        WritableMap result = new WritableNativeMap();
+        synchronized (lock) {
+            for (Map.Entry<String, TaskStats> entry : stats.entrySet()) {
+                TaskStats task = entry.getValue();
+                WritableMap command = new WritableNativeMap();
+                command.putString("name", entry.getKey());
+                command.putDouble("count", task.count);
+                command.putDouble("averageQueueMs", toMs(task.totalQueueNs) / task.count);
+                command.putDouble("maxQueueMs", toMs(task.maxQueueNs));
+                command.putDouble("averageRunMs", toMs(task.totalRunNs) / task.count);
+                command.putDouble("maxRunMs", toMs(task.maxRunNs));
+                commands.pushMap(command);
+            }
+            result.putInt("pending", pending);
+            result.putInt("maxPending", maxPending);
+        }
+        result.putArray("commands", commands);
+        return result;
+    }
+
+    private static double toMs(long ns) {
+        return ns / 1000000.0;
+    }
+}
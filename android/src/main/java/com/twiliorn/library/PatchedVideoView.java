@@ -11,19 +11,111 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.AttributeSet;
 
+import androidx.annotation.Nullable;
+
 import com.twilio.video.VideoView;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import tvi.webrtc.RendererCommon;
 import tvi.webrtc.VideoFrame;
 
 /*
  * VideoView that notifies Listener of the first frame rendered and the first frame after a reset
  * request.
+ *
+ * It also applies a render policy before frames reach the renderer: frames arriving faster than
+ * the max frame rate are dropped, and frames much larger than the view are scaled down on the
+ * delivering thread so the renderer only uploads what can be seen. Frame resolution callbacks
+ * keep reporting the size of the incoming frames.
+ *
+ * Rendered frames are also measured: the interval between them, as a histogram along with the
+ * number of janky intervals (more than twice the running average), and how long after its
+ * timestamp each frame reached the view. FreezeListener is told when the video froze, and
+ * again when frames resume.
+ *
+ * Frames can be delivered from any thread, including briefly from two tracks' threads while the
+ * view is rebound, so counters are atomics. The first frame, freeze and frame rate transitions
+ * are made in FrameSignals.
  */
 public class PatchedVideoView extends VideoView {
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    // Scaling costs a copy, so it is only worth doing when it shrinks the frame noticeably
+    private static final float MIN_DOWNSCALE_FACTOR = 0.75f;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    // Upper bounds of the inter-frame interval histogram buckets, the last bucket is open ended
+    private static final long[] INTERVAL_BUCKET_BOUNDS_MS = {20, 40, 70, 100, 200, 500};
+    // Average interval weight of each new frame, and the multiple of it that counts as jank
+    private static final double INTERVAL_AVERAGE_WEIGHT = 0.125;
+    private static final double JANK_INTERVAL_FACTOR = 2;
+    // Frame timestamps further from now than this are not in our clock, e.g. RTP based
+    private static final long MAX_FRAME_LATENCY_NS = 5 * NANOS_PER_SECOND;
+
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong framesRendered = new AtomicLong();
+    private final AtomicLong framesSkippedWhileHidden = new AtomicLong();
+    private final AtomicLong framesDroppedByFrameRate = new AtomicLong();
+    private final AtomicLong framesDownscaled = new AtomicLong();
+
+    private final AtomicLongArray intervalHistogram =
+            new AtomicLongArray(INTERVAL_BUCKET_BOUNDS_MS.length + 1);
+    private final AtomicLong lastFrameArrivalNs = new AtomicLong(-1);
+    // Only an estimate of the cadence, racing updates are harmless
+    private volatile double averageIntervalNs = 0;
+    private final AtomicLong maxIntervalNs = new AtomicLong();
+    private final AtomicLong jankIntervals = new AtomicLong();
+    private final AtomicLong latencySamples = new AtomicLong();
+    private final AtomicLong totalLatencyNs = new AtomicLong();
+    private final AtomicLong maxLatencyNs = new AtomicLong();
 
-    private boolean notifyFrameRendered = false;
-    private Listener listener;
+    private volatile float renderResolutionScale = 0;
+    private volatile int targetWidth = 0;
+    private volatile int targetHeight = 0;
+    private volatile int sourceWidth = 0;
+    private volatile int sourceHeight = 0;
+    private volatile Listener listener;
+    private volatile FreezeListener freezeListener;
     private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private final FrameSignals signals = new FrameSignals(
+            new FrameSignals.UiThread() {
+                @Override
+                public void post(Runnable runnable) {
+                    mainThreadHandler.post(runnable);
+                }
+
+                @Override
+                public void postDelayed(Runnable runnable, long delayMs) {
+                    mainThreadHandler.postDelayed(runnable, delayMs);
+                }
+            },
+            FrameSignals.SYSTEM_CLOCK,
+            new FrameSignals.Callbacks() {
+                @Override
+                public void onFirstFrame() {
+                    Listener notify = listener;
+                    if (notify != null) {
+                        notify.onFirstFrame();
+                    }
+                }
+
+                @Override
+                public void onFreezeStarted() {
+                    FreezeListener notify = freezeListener;
+                    if (notify != null) {
+                        notify.onFreezeStarted();
+                    }
+                }
+
+                @Override
+                public void onFreezeEnded(long durationMs) {
+                    FreezeListener notify = freezeListener;
+                    if (notify != null) {
+                        notify.onFreezeEnded(durationMs);
+                    }
+                }
+            });
+
 
     public PatchedVideoView(Context context) {
         super(context);
@@ -35,16 +127,259 @@ public class PatchedVideoView extends VideoView {
 
     @Override
     public void onFrame(VideoFrame frame) {
-        if (notifyFrameRendered) {
-            notifyFrameRendered = false;
-            mainThreadHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    listener.onFirstFrame();
+        framesReceived.incrementAndGet();
+        // On the time base of FrameSignals.SYSTEM_CLOCK
+        long arrivalNs = System.nanoTime();
+        int decision = signals.onFrame(arrivalNs, frame.getTimestampNs());
+        if (decision == FrameSignals.SKIP_PAUSED) {
+            framesSkippedWhileHidden.incrementAndGet();
+            return;
+        }
+        if (decision == FrameSignals.DROP_FRAME_RATE) {
+            framesDroppedByFrameRate.incrementAndGet();
+            return;
+        }
+        sourceWidth = frame.getBuffer().getWidth();
+        sourceHeight = frame.getBuffer().getHeight();
+        framesRendered.incrementAndGet();
+        recordInterval(arrivalNs);
+        recordLatency(arrivalNs - frame.getTimestampNs());
+
+        VideoFrame scaled = downscale(frame);
+        if (scaled == null) {
+            super.onFrame(frame);
+            return;
+        }
+        framesDownscaled.incrementAndGet();
+        super.onFrame(scaled);
+        scaled.release();
+    }
+
+    private void recordInterval(long arrivalNs) {
+        long previous = lastFrameArrivalNs.getAndSet(arrivalNs);
+        if (previous < 0 || arrivalNs < previous) {
+            return;
+        }
+        long intervalNs = arrivalNs - previous;
+        long intervalMs = intervalNs / NANOS_PER_MILLI;
+        int bucket = 0;
+        while (bucket < INTERVAL_BUCKET_BOUNDS_MS.length && intervalMs >= INTERVAL_BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        intervalHistogram.incrementAndGet(bucket);
+        updateMax(maxIntervalNs, intervalNs);
+        double averageNs = averageIntervalNs;
+        if (averageNs > 0 && intervalNs > averageNs * JANK_INTERVAL_FACTOR) {
+            jankIntervals.incrementAndGet();
+        }
+        averageIntervalNs = averageNs > 0
+                ? averageNs + (intervalNs - averageNs) * INTERVAL_AVERAGE_WEIGHT
+                : intervalNs;
+    }
+
+    private void recordLatency(long latencyNs) {
+        if (latencyNs < 0 || latencyNs > MAX_FRAME_LATENCY_NS) {
+            return;
+        }
+        latencySamples.incrementAndGet();
+        totalLatencyNs.addAndGet(latencyNs);
+        updateMax(maxLatencyNs, latencyNs);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /*
+     * Returns a scaled copy of the frame, or null if it should be rendered as is. Texture frames
+     * are left alone, they are already on the GPU.
+     */
+    private VideoFrame downscale(VideoFrame frame) {
+        float scale = renderResolutionScale;
+        int viewWidth = targetWidth;
+        int viewHeight = targetHeight;
+        VideoFrame.Buffer buffer = frame.getBuffer();
+        if (scale <= 0 || viewWidth <= 0 || viewHeight <= 0
+                || buffer instanceof VideoFrame.TextureBuffer) {
+            return null;
+        }
+
+        int frameWidth = frame.getRotatedWidth();
+        int frameHeight = frame.getRotatedHeight();
+        if (frameWidth <= 0 || frameHeight <= 0) {
+            return null;
+        }
+        // Keep enough pixels to cover the view in both dimensions, so fill scaling stays sharp
+        float factor = Math.max(viewWidth * scale / frameWidth, viewHeight * scale / frameHeight);
+        if (factor > MIN_DOWNSCALE_FACTOR) {
+            return null;
+        }
+
+        int scaledWidth = Math.max(2, Math.round(buffer.getWidth() * factor) & ~1);
+        int scaledHeight = Math.max(2, Math.round(buffer.getHeight() * factor) & ~1);
+        VideoFrame.Buffer scaledBuffer = buffer.cropAndScale(
+                0, 0, buffer.getWidth(), buffer.getHeight(), scaledWidth, scaledHeight);
+        return new VideoFrame(scaledBuffer, frame.getRotation(), frame.getTimestampNs());
+    }
+
+    /*
+     * Cap the rate frames are rendered at. 0 renders every frame.
+     */
+    public void setMaxFrameRate(int maxFrameRate) {
+        signals.setMaxFrameRate(maxFrameRate);
+    }
+
+    /*
+     * Limit the rendered resolution to the target size times scale. 0 renders at full resolution.
+     */
+    public void setRenderResolutionScale(float renderResolutionScale) {
+        this.renderResolutionScale = Math.max(0, renderResolutionScale);
+    }
+
+    public void setTargetRenderSize(int width, int height) {
+        this.targetWidth = width;
+        this.targetHeight = height;
+    }
+
+    @Override
+    public void setListener(final RendererCommon.RendererEvents rendererEvents) {
+        if (rendererEvents == null) {
+            super.setListener(null);
+            return;
+        }
+        // Report the incoming frame size rather than the downscaled one, and only when it changes
+        super.setListener(new RendererCommon.RendererEvents() {
+            private int reportedWidth = 0;
+            private int reportedHeight = 0;
+            private int reportedRotation = -1;
+
+            @Override
+            public void onFirstFrameRendered() {
+                rendererEvents.onFirstFrameRendered();
+            }
+
+            @Override
+            public void onFrameResolutionChanged(int width, int height, int rotation) {
+                int reportWidth = sourceWidth > 0 ? sourceWidth : width;
+                int reportHeight = sourceHeight > 0 ? sourceHeight : height;
+                if (reportWidth == reportedWidth && reportHeight == reportedHeight
+                        && rotation == reportedRotation) {
+                    return;
                 }
-            });
+                reportedWidth = reportWidth;
+                reportedHeight = reportHeight;
+                reportedRotation = rotation;
+                rendererEvents.onFrameResolutionChanged(reportWidth, reportHeight, rotation);
+            }
+        });
+    }
+
+    /*
+     * Drop incoming frames instead of rendering them
+     */
+    public void setRenderingPaused(boolean renderingPaused) {
+        signals.setRenderingPaused(renderingPaused);
+        if (renderingPaused) {
+            // Intervals and freezes only span frames that were expected
+            lastFrameArrivalNs.set(-1);
+        }
+    }
+
+    /*
+     * Whether the track the view renders is enabled. Frames are not expected from a disabled
+     * track, so it is never reported as frozen.
+     */
+    public void setTrackEnabled(boolean trackEnabled) {
+        signals.setTrackEnabled(trackEnabled);
+        if (!trackEnabled) {
+            lastFrameArrivalNs.set(-1);
+        }
+    }
+
+    /*
+     * Report a freeze once no frame has arrived for this long. 0 disables freeze detection.
+     */
+    public void setFreezeThresholdMs(int freezeThresholdMs) {
+        signals.setFreezeThresholdMs(freezeThresholdMs);
+    }
+
+    public long getFramesReceived() {
+        return framesReceived.get();
+    }
+
+    public long getFramesRendered() {
+        return framesRendered.get();
+    }
+
+    public long getFramesSkippedWhileHidden() {
+        return framesSkippedWhileHidden.get();
+    }
+
+    public long getFramesDroppedByFrameRate() {
+        return framesDroppedByFrameRate.get();
+    }
+
+    public long getFramesDownscaled() {
+        return framesDownscaled.get();
+    }
+
+    /*
+     * Upper bounds in milliseconds of all but the last, open ended, interval histogram bucket.
+     */
+    public static long[] getIntervalBucketBoundsMs() {
+        return INTERVAL_BUCKET_BOUNDS_MS.clone();
+    }
+
+    public long[] getIntervalHistogram() {
+        long[] histogram = new long[intervalHistogram.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = intervalHistogram.get(i);
         }
-        super.onFrame(frame);
+        return histogram;
+    }
+
+    public long getMaxIntervalMs() {
+        return maxIntervalNs.get() / NANOS_PER_MILLI;
+    }
+
+    public long getJankIntervals() {
+        return jankIntervals.get();
+    }
+
+    /*
+     * Average time from a frame's timestamp to it reaching the view, -1 without samples. For the
+     * camera preview the timestamp is the capture time, for remote tracks it is the time the
+     * frame was scheduled to render, so only the delay added on our side is measured.
+     */
+    public double getAverageFrameLatencyMs() {
+        long samples = latencySamples.get();
+        return samples > 0 ? totalLatencyNs.get() / (double) samples / NANOS_PER_MILLI : -1;
+    }
+
+    public double getMaxFrameLatencyMs() {
+        return maxLatencyNs.get() / (double) NANOS_PER_MILLI;
+    }
+
+    public boolean isFrozen() {
+        return signals.isFrozen();
+    }
+
+    public long getFreezeCount() {
+        return signals.getFreezeCount();
+    }
+
+    /*
+     * Total duration of the freezes so far, including the current one.
+     */
+    public long getTotalFreezeDurationMs() {
+        return signals.getTotalFreezeDurationMs();
+    }
+
+    public void setFreezeListener(@Nullable FreezeListener freezeListener) {
+        this.freezeListener = freezeListener;
     }
 
     /*
@@ -55,13 +390,23 @@ public class PatchedVideoView extends VideoView {
     }
 
     /*
-     * Reset the listener so next frame rendered results in callback
+     * Reset the listener so next frame rendered results in callback. Can be called from any
+     * thread, and again before the previous first frame was reported.
      */
     public void resetListener() {
-        notifyFrameRendered = true;
+        signals.armFirstFrame();
     }
 
     public interface Listener {
         void onFirstFrame();
     }
+
+    /*
+     * Called on the UI thread.
+     */
+    public interface FreezeListener {
+        void onFreezeStarted();
+
+        void onFreezeEnded(long durationMs);
+    }
 }
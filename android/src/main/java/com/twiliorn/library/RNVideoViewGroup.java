@@ -8,11 +8,19 @@ package com.twiliorn.library;
 
 import android.content.Context;
 import android.graphics.Point;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import androidx.annotation.StringDef;
 
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
 import com.facebook.react.bridge.WritableNativeMap;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.events.RCTEventEmitter;
@@ -25,19 +33,101 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
 import static com.twiliorn.library.RNVideoViewGroup.Events.ON_FRAME_DIMENSIONS_CHANGED;
+import static com.twiliorn.library.RNVideoViewGroup.Events.ON_RENDER_FREEZE;
+import static com.twiliorn.library.RNVideoViewGroup.Events.ON_RENDER_STATS;
 
+/*
+ * Stops rendering while the view cannot be seen: when it is detached, has no size, is scrolled
+ * out of its window or the app is in the background. Frames are dropped as soon as the view is
+ * hidden, and onRenderVisibilityChanged(false) is called once it has stayed hidden for the
+ * hysteresis period so subclasses can stop feeding it altogether.
+ *
+ * Render stats are pushed on request and, with a stats interval set, periodically while the view
+ * is attached. Freezes detected by the renderer are pushed as they start and end.
+ *
+ * Each view renders from the session named by its sessionId prop, the default one until set.
+ * Subclasses attach to the session in onSessionAttached and detach in onSessionDetached.
+ */
 public class RNVideoViewGroup extends ViewGroup {
+    private static final int DEFAULT_VISIBILITY_HYSTERESIS_MS = 500;
+
     private PatchedVideoView surfaceViewRenderer = null;
+    private VideoSession session = VideoSession.acquire(VideoSession.DEFAULT_ID);
     private int videoWidth = 0;
     private int videoHeight = 0;
     private final Object layoutSync = new Object();
     private RendererCommon.ScalingType scalingType = RendererCommon.ScalingType.SCALE_ASPECT_FILL;
     private final RCTEventEmitter eventEmitter;
+    private final ThemedReactContext themedReactContext;
+
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private final Rect visibleRect = new Rect();
+    private int visibilityHysteresisMs = DEFAULT_VISIBILITY_HYSTERESIS_MS;
+    private boolean attachedToWindow = false;
+    private boolean hostResumed = true;
+    private boolean renderVisible = true;
+    private boolean hidePending = false;
+    private int renderStatsIntervalMs = 0;
+    private long lastStatsAtMs = -1;
+    private long lastStatsFramesRendered = 0;
+
+    private final Runnable renderStatsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            pushRenderStats();
+            scheduleRenderStats();
+        }
+    };
+
+    private final Runnable hideRunnable = new Runnable() {
+        @Override
+        public void run() {
+            hidePending = false;
+            renderVisible = false;
+            onRenderVisibilityChanged(false);
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener scrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    updateRenderVisibility();
+                }
+            };
+
+    private final ViewTreeObserver.OnGlobalLayoutListener globalLayoutListener =
+            new ViewTreeObserver.OnGlobalLayoutListener() {
+                @Override
+                public void onGlobalLayout() {
+                    updateRenderVisibility();
+                }
+            };
+
+    private final LifecycleEventListener lifecycleEventListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {
+            hostResumed = true;
+            updateRenderVisibility();
+        }
+
+        @Override
+        public void onHostPause() {
+            hostResumed = false;
+            updateRenderVisibility();
+        }
+
+        @Override
+        public void onHostDestroy() {
+        }
+    };
 
     @Retention(RetentionPolicy.SOURCE)
-    @StringDef({ON_FRAME_DIMENSIONS_CHANGED})
+    @StringDef({ON_FRAME_DIMENSIONS_CHANGED, ON_RENDER_STATS, ON_RENDER_FREEZE})
     public @interface Events {
         String ON_FRAME_DIMENSIONS_CHANGED = "onFrameDimensionsChanged";
+        String ON_RENDER_STATS = "onRenderStats";
+        String ON_RENDER_FREEZE = "onRenderFreeze";
     }
 
     void pushEvent(View view, String name, WritableMap data) {
@@ -46,10 +136,22 @@ public class RNVideoViewGroup extends ViewGroup {
 
     public RNVideoViewGroup(ThemedReactContext themedReactContext) {
         super(themedReactContext);
+        this.themedReactContext = themedReactContext;
         this.eventEmitter = themedReactContext.getJSModule(RCTEventEmitter.class);
         surfaceViewRenderer = new PatchedVideoView(themedReactContext);
         surfaceViewRenderer.setVideoScaleType(VideoScaleType.ASPECT_FILL);
         addView(surfaceViewRenderer);
+        surfaceViewRenderer.setFreezeListener(new PatchedVideoView.FreezeListener() {
+            @Override
+            public void onFreezeStarted() {
+                pushRenderFreeze(true, 0);
+            }
+
+            @Override
+            public void onFreezeEnded(long durationMs) {
+                pushRenderFreeze(false, durationMs);
+            }
+        });
         surfaceViewRenderer.setListener(
                 new RendererCommon.RendererEvents() {
                     @Override
@@ -96,14 +198,209 @@ public class RNVideoViewGroup extends ViewGroup {
         return surfaceViewRenderer;
     }
 
+    /*
+     * The session the view renders from, null once released.
+     */
+    protected VideoSession getSession() {
+        return session;
+    }
+
+    public void setSessionId(String sessionId) {
+        String id = VideoSession.normalizeId(sessionId);
+        if (session == null || session.id.equals(id)) {
+            return;
+        }
+        onSessionDetached(session);
+        VideoSession.release(session);
+        session = VideoSession.acquire(id);
+        onSessionAttached(session);
+    }
+
+    public void releaseSession() {
+        if (session == null) {
+            return;
+        }
+        onSessionDetached(session);
+        VideoSession.release(session);
+        session = null;
+    }
+
+    protected void onSessionAttached(VideoSession session) {
+    }
+
+    protected void onSessionDetached(VideoSession session) {
+    }
+
+    protected boolean isRenderVisible() {
+        return renderVisible;
+    }
+
     public void setScalingType(RendererCommon.ScalingType scalingType) {
         this.scalingType = scalingType;
     }
 
+    public void setMaxFrameRate(int maxFrameRate) {
+        surfaceViewRenderer.setMaxFrameRate(maxFrameRate);
+    }
+
+    public void setRenderResolutionScale(float renderResolutionScale) {
+        surfaceViewRenderer.setRenderResolutionScale(renderResolutionScale);
+    }
+
+    public void setVisibilityHysteresisMs(int visibilityHysteresisMs) {
+        this.visibilityHysteresisMs = Math.max(0, visibilityHysteresisMs);
+    }
+
+    /*
+     * Push render stats every interval while attached. 0 only pushes them on request.
+     */
+    public void setRenderStatsIntervalMs(int renderStatsIntervalMs) {
+        this.renderStatsIntervalMs = Math.max(0, renderStatsIntervalMs);
+        mainThreadHandler.removeCallbacks(renderStatsRunnable);
+        scheduleRenderStats();
+    }
+
+    public void setFreezeThresholdMs(int freezeThresholdMs) {
+        surfaceViewRenderer.setFreezeThresholdMs(freezeThresholdMs);
+    }
+
+    private void scheduleRenderStats() {
+        if (attachedToWindow && renderStatsIntervalMs > 0) {
+            mainThreadHandler.postDelayed(renderStatsRunnable, renderStatsIntervalMs);
+        }
+    }
+
+    public void pushRenderStats() {
+        // The frame rate is over the time since the previous stats
+        long now = SystemClock.elapsedRealtime();
+        long framesRendered = surfaceViewRenderer.getFramesRendered();
+        double renderFrameRate = 0;
+        if (lastStatsAtMs >= 0 && now > lastStatsAtMs) {
+            renderFrameRate = (framesRendered - lastStatsFramesRendered) * 1000.0 / (now - lastStatsAtMs);
+        }
+        lastStatsAtMs = now;
+        lastStatsFramesRendered = framesRendered;
+
+        WritableArray bucketBounds = new WritableNativeArray();
+        for (long bound : PatchedVideoView.getIntervalBucketBoundsMs()) {
+            bucketBounds.pushDouble(bound);
+        }
+        WritableArray histogram = new WritableNativeArray();
+        for (long count : surfaceViewRenderer.getIntervalHistogram()) {
+            histogram.pushDouble(count);
+        }
+
+        WritableMap event = new WritableNativeMap();
+        event.putBoolean("visible", renderVisible && !hidePending);
+        event.putDouble("framesReceived", surfaceViewRenderer.getFramesReceived());
+        event.putDouble("framesRendered", surfaceViewRenderer.getFramesRendered());
+        event.putDouble("framesSkippedWhileHidden", surfaceViewRenderer.getFramesSkippedWhileHidden());
+        event.putDouble("framesDroppedByFrameRate", surfaceViewRenderer.getFramesDroppedByFrameRate());
+        event.putDouble("framesDownscaled", surfaceViewRenderer.getFramesDownscaled());
+        event.putDouble("renderFrameRate", renderFrameRate);
+        event.putArray("frameIntervalBucketsMs", bucketBounds);
+        event.putArray("frameIntervalHistogram", histogram);
+        event.putDouble("maxFrameIntervalMs", surfaceViewRenderer.getMaxIntervalMs());
+        event.putDouble("jankIntervals", surfaceViewRenderer.getJankIntervals());
+        double averageLatencyMs = surfaceViewRenderer.getAverageFrameLatencyMs();
+        if (averageLatencyMs >= 0) {
+            event.putDouble("averageFrameLatencyMs", averageLatencyMs);
+            event.putDouble("maxFrameLatencyMs", surfaceViewRenderer.getMaxFrameLatencyMs());
+        }
+        event.putBoolean("frozen", surfaceViewRenderer.isFrozen());
+        event.putDouble("freezeCount", surfaceViewRenderer.getFreezeCount());
+        event.putDouble("totalFreezeDurationMs", surfaceViewRenderer.getTotalFreezeDurationMs());
+        pushEvent(this, ON_RENDER_STATS, event);
+    }
+
+    private void pushRenderFreeze(boolean frozen, long durationMs) {
+        WritableMap event = new WritableNativeMap();
+        event.putBoolean("frozen", frozen);
+        if (!frozen) {
+            event.putDouble("durationMs", durationMs);
+        }
+        event.putDouble("freezeCount", surfaceViewRenderer.getFreezeCount());
+        event.putDouble("totalFreezeDurationMs", surfaceViewRenderer.getTotalFreezeDurationMs());
+        pushEvent(this, ON_RENDER_FREEZE, event);
+    }
+
+    /*
+     * Called on the UI thread when the view becomes visible, and when it has been hidden for
+     * longer than the hysteresis period.
+     */
+    protected void onRenderVisibilityChanged(boolean visible) {
+    }
+
+    /*
+     * Called on the UI thread when the laid out size of the view changes, in pixels.
+     */
+    protected void onRenderSizeChanged(int width, int height) {
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attachedToWindow = true;
+        themedReactContext.addLifecycleEventListener(lifecycleEventListener);
+        getViewTreeObserver().addOnScrollChangedListener(scrollChangedListener);
+        getViewTreeObserver().addOnGlobalLayoutListener(globalLayoutListener);
+        updateRenderVisibility();
+        mainThreadHandler.removeCallbacks(renderStatsRunnable);
+        scheduleRenderStats();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        themedReactContext.removeLifecycleEventListener(lifecycleEventListener);
+        getViewTreeObserver().removeOnScrollChangedListener(scrollChangedListener);
+        getViewTreeObserver().removeOnGlobalLayoutListener(globalLayoutListener);
+        super.onDetachedFromWindow();
+        attachedToWindow = false;
+        mainThreadHandler.removeCallbacks(renderStatsRunnable);
+        updateRenderVisibility();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateRenderVisibility();
+    }
+
+    private boolean isOnScreen() {
+        return attachedToWindow
+                && hostResumed
+                && getWindowVisibility() == View.VISIBLE
+                && getWidth() > 0
+                && getHeight() > 0
+                && getGlobalVisibleRect(visibleRect);
+    }
+
+    private void updateRenderVisibility() {
+        if (isOnScreen()) {
+            if (hidePending) {
+                mainThreadHandler.removeCallbacks(hideRunnable);
+                hidePending = false;
+            }
+            surfaceViewRenderer.setRenderingPaused(false);
+            if (!renderVisible) {
+                renderVisible = true;
+                onRenderVisibilityChanged(true);
+            }
+        } else if (renderVisible && !hidePending) {
+            surfaceViewRenderer.setRenderingPaused(true);
+            hidePending = true;
+            mainThreadHandler.postDelayed(hideRunnable, visibilityHysteresisMs);
+        }
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         int height = b - t;
         int width = r - l;
+        surfaceViewRenderer.setTargetRenderSize(width, height);
+        if (changed) {
+            onRenderSizeChanged(width, height);
+        }
         if (height == 0 || width == 0) {
             l = t = r = b = 0;
         } else {
@@ -0,0 +1,177 @@
+/**
+ * The subscribed remote data tracks of the current room, with message counters per participant.
+ */
+
+package com.twiliorn.library;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.RemoteDataTrack;
+import com.twilio.video.RemoteParticipant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Entries used to be added for every subscribed data track and never removed, so rooms with
+ * participants coming and going kept every RemoteDataTrack and RemoteParticipant they had
+ * seen. Tracks are now evicted when unsubscribed, and participants with their tracks when they
+ * leave or the room disconnects.
+ *
+ * Each participant has a Sender with the messages and bytes received from it, counted before
+ * any filtering, and the time between its messages, to find chatty clients. The counters are
+ * kept while the participant is in the room, also when its tracks are unsubscribed.
+ *
+ * Tracks are added and removed on the data track message thread, in order with the messages,
+ * so a track added late cannot outlive the removal of its participant. Messages are recorded on
+ * that thread too; stats are read from the media executor.
+ */
+final class RemoteDataTrackRegistry {
+    private static final class Sender {
+        final String participantSid;
+        final String identity;
+        private int tracks;
+        private long messages;
+        private long bytes;
+        private long lastArrivalNs;
+        private long gaps;
+        private long totalGapNs;
+        private long minGapNs = Long.MAX_VALUE;
+        private long maxGapNs;
+
+        private Sender(RemoteParticipant participant) {
+            this.participantSid = participant.getSid();
+            this.identity = participant.getIdentity();
+        }
+
+        private synchronized void record(int length, long nowNs) {
+            if (messages > 0) {
+                long gapNs = nowNs - lastArrivalNs;
+                gaps++;
+                totalGapNs += gapNs;
+                minGapNs = Math.min(minGapNs, gapNs);
+                maxGapNs = Math.max(maxGapNs, gapNs);
+            }
+            messages++;
+            bytes += length;
+            lastArrivalNs = nowNs;
+        }
+
+        private synchronized long bytes() {
+            return bytes;
+        }
+
+        private synchronized WritableMap buildStats(long nowNs) {
+            WritableMap stats = new WritableNativeMap();
+            stats.putString("participantSid", participantSid);
+            stats.putString("identity", identity);
+            stats.putInt("tracks", tracks);
+            stats.putDouble("messages", messages);
+            stats.putDouble("bytes", bytes);
+            if (messages > 0) {
+                stats.putDouble("lastMessageAgoMs", toMs(nowNs - lastArrivalNs));
+            }
+            if (gaps > 0) {
+                stats.putDouble("averageInterArrivalMs", toMs(totalGapNs) / gaps);
+                stats.putDouble("minInterArrivalMs", toMs(minGapNs));
+                stats.putDouble("maxInterArrivalMs", toMs(maxGapNs));
+            }
+            return stats;
+        }
+    }
+
+    private final Map<RemoteDataTrack, Sender> sendersByTrack = new ConcurrentHashMap<>();
+    private final Map<String, Sender> sendersByParticipantSid = new ConcurrentHashMap<>();
+
+    void addTrack(RemoteParticipant participant, RemoteDataTrack track) {
+        Sender sender = sendersByParticipantSid.get(participant.getSid());
+        if (sender == null) {
+            sender = new Sender(participant);
+            sendersByParticipantSid.put(sender.participantSid, sender);
+        }
+        if (sendersByTrack.put(track, sender) != sender) {
+            synchronized (sender) {
+                sender.tracks++;
+            }
+        }
+    }
+
+    void removeTrack(RemoteDataTrack track) {
+        Sender sender = sendersByTrack.remove(track);
+        if (sender != null) {
+            synchronized (sender) {
+                sender.tracks--;
+            }
+        }
+    }
+
+    void removeParticipant(String participantSid) {
+        Sender sender = sendersByParticipantSid.remove(participantSid);
+        if (sender == null) {
+            return;
+        }
+        Iterator<Sender> iterator = sendersByTrack.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == sender) {
+                iterator.remove();
+            }
+        }
+    }
+
+    void clear() {
+        sendersByTrack.clear();
+        sendersByParticipantSid.clear();
+    }
+
+    /*
+     * Count a received message against the participant that sent it, unless its track was
+     * already removed.
+     */
+    void recordMessage(RemoteDataTrack track, int length) {
+        Sender sender = sendersByTrack.get(track);
+        if (sender != null) {
+            sender.record(length, SystemClock.elapsedRealtimeNanos());
+        }
+    }
+
+    /*
+     * The senders, the ones that sent the most bytes first.
+     */
+    WritableMap buildStats() {
+        List<Sender> senders = new ArrayList<>(sendersByParticipantSid.values());
+        // Sorted on a snapshot, the counters keep changing meanwhile
+        final Map<Sender, Long> bytes = new HashMap<>();
+        for (Sender sender : senders) {
+            bytes.put(sender, sender.bytes());
+        }
+        Collections.sort(senders, new Comparator<Sender>() {
+            @Override
+            public int compare(Sender a, Sender b) {
+                return Long.compare(bytes.get(b), bytes.get(a));
+            }
+        });
+        long nowNs = SystemClock.elapsedRealtimeNanos();
+        WritableArray participants = new WritableNativeArray();
+        for (Sender sender : senders) {
+            participants.pushMap(sender.buildStats(nowNs));
+        }
+        WritableMap stats = new WritableNativeMap();
+        stats.putInt("tracks", sendersByTrack.size());
+        stats.putArray("participants", participants);
+        return stats;
+    }
+
+    private static double toMs(long ns) {
+        return ns / 1000000.0;
+    }
+}
@@ -0,0 +1,316 @@
+/**
+ * Index of the remote participants and tracks of the current room.
+ */
+
+package com.twiliorn.library;
+
+import com.twilio.video.RemoteAudioTrack;
+import com.twilio.video.RemoteAudioTrackPublication;
+import com.twilio.video.RemoteParticipant;
+import com.twilio.video.RemoteVideoTrack;
+import com.twilio.video.RemoteVideoTrackPublication;
+import com.twilio.video.VideoContentPreferences;
+import com.twilio.video.VideoDimensions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import tvi.webrtc.VideoSink;
+
+/*
+ * Kept up to date from the participant and subscription callbacks so that binding a view to a
+ * track, or toggling a participant's audio, does not have to walk every participant and
+ * publication in the room.
+ *
+ * Each view owns a single binding to a track sid. A binding can be made before the track is
+ * subscribed; the view is attached as a sink as soon as the track arrives and stays bound, but
+ * detached, if the track is later unsubscribed. Any number of views can be bound to the same
+ * track. A view can also be deactivated, which detaches it from its track without losing the
+ * binding, for example while it is off screen. Whether a view is active and the size it is
+ * rendered at are kept when it is rebound, e.g. a recycled list cell, and also recorded before
+ * it is first bound, until the view releases itself with releaseSink.
+ *
+ * Views are also told whether the track they are bound to is there and enabled, so that a
+ * missing or disabled track is not mistaken for frozen video.
+ *
+ * With bandwidth hints enabled, the views bound to each track also drive what is requested from
+ * the server: a track with no active view is switched off, and otherwise the render dimensions
+ * of its largest active view are sent as its content preferences. This requires the room to be
+ * connected with manual track switch-off and content preferences.
+ */
+class RemoteTrackRegistry {
+    private final Map<String, RemoteParticipant> participants = new HashMap<>();
+    private final Map<String, RemoteVideoTrack> videoTracks = new HashMap<>();
+    private final Map<VideoSink, String> boundTrackSids = new HashMap<>();
+    private final Map<String, Set<VideoSink>> sinksByTrackSid = new HashMap<>();
+    private final Set<VideoSink> inactiveSinks = new HashSet<>();
+    private final Map<VideoSink, VideoDimensions> renderSizes = new HashMap<>();
+    private final Map<String, VideoDimensions> hintedDimensions = new HashMap<>();
+    private final Set<String> switchedOffTrackSids = new HashSet<>();
+    private boolean bandwidthHintsEnabled = false;
+
+    synchronized void addParticipant(RemoteParticipant participant) {
+        participants.put(participant.getSid(), participant);
+        for (RemoteVideoTrackPublication publication : participant.getRemoteVideoTracks()) {
+            RemoteVideoTrack track = publication.getRemoteVideoTrack();
+            if (track != null) {
+                addVideoTrack(publication.getTrackSid(), track);
+            }
+        }
+    }
+
+    synchronized void removeParticipant(RemoteParticipant participant) {
+        participants.remove(participant.getSid());
+        for (RemoteVideoTrackPublication publication : participant.getRemoteVideoTracks()) {
+            removeVideoTrack(publication.getTrackSid());
+        }
+    }
+
+    synchronized void addVideoTrack(String trackSid, RemoteVideoTrack track) {
+        RemoteVideoTrack previous = videoTracks.put(trackSid, track);
+        if (previous == track) {
+            return;
+        }
+        hintedDimensions.remove(trackSid);
+        switchedOffTrackSids.remove(trackSid);
+        Set<VideoSink> sinks = sinksByTrackSid.get(trackSid);
+        if (sinks != null) {
+            for (VideoSink sink : sinks) {
+                if (inactiveSinks.contains(sink)) {
+                    continue;
+                }
+                if (previous != null) {
+                    previous.removeSink(sink);
+                }
+                track.addSink(sink);
+            }
+            setTrackEnabled(sinks, track.isEnabled());
+        }
+        updateBandwidthHints(trackSid);
+    }
+
+    synchronized void removeVideoTrack(String trackSid) {
+        RemoteVideoTrack track = videoTracks.remove(trackSid);
+        hintedDimensions.remove(trackSid);
+        switchedOffTrackSids.remove(trackSid);
+        Set<VideoSink> sinks = sinksByTrackSid.get(trackSid);
+        if (track == null || sinks == null) {
+            return;
+        }
+        for (VideoSink sink : sinks) {
+            track.removeSink(sink);
+        }
+        setTrackEnabled(sinks, false);
+    }
+
+    synchronized void setVideoTrackEnabled(String trackSid, boolean enabled) {
+        Set<VideoSink> sinks = sinksByTrackSid.get(trackSid);
+        if (sinks != null && videoTracks.containsKey(trackSid)) {
+            setTrackEnabled(sinks, enabled);
+        }
+    }
+
+    private static void setTrackEnabled(Set<VideoSink> sinks, boolean enabled) {
+        for (VideoSink sink : sinks) {
+            if (sink instanceof PatchedVideoView) {
+                ((PatchedVideoView) sink).setTrackEnabled(enabled);
+            }
+        }
+    }
+
+    /*
+     * Bind the sink to the track with the given sid, replacing any previous binding, or leave it
+     * unbound for an empty sid. The sink is only removed from the track it was previously bound
+     * to, and stays inactive if it was.
+     */
+    synchronized void bindSink(VideoSink sink, String trackSid) {
+        String boundTrackSid = boundTrackSids.get(sink);
+        if (boundTrackSid != null && boundTrackSid.equals(trackSid)) {
+            return;
+        }
+        detachSink(sink);
+        if (trackSid == null || trackSid.isEmpty()) {
+            return;
+        }
+
+        boundTrackSids.put(sink, trackSid);
+        Set<VideoSink> sinks = sinksByTrackSid.get(trackSid);
+        if (sinks == null) {
+            sinks = new HashSet<>();
+            sinksByTrackSid.put(trackSid, sinks);
+        }
+        sinks.add(sink);
+
+        RemoteVideoTrack track = videoTracks.get(trackSid);
+        if (track != null && !inactiveSinks.contains(sink)) {
+            track.addSink(sink);
+        }
+        setTrackEnabled(Collections.singleton(sink), track != null && track.isEnabled());
+        updateBandwidthHints(trackSid);
+    }
+
+    synchronized void setSinkActive(VideoSink sink, boolean active) {
+        boolean changed = active ? inactiveSinks.remove(sink) : inactiveSinks.add(sink);
+        if (!changed) {
+            return;
+        }
+        String trackSid = boundTrackSids.get(sink);
+        RemoteVideoTrack track = trackSid != null ? videoTracks.get(trackSid) : null;
+        if (track == null) {
+            return;
+        }
+        if (active) {
+            track.addSink(sink);
+        } else {
+            track.removeSink(sink);
+        }
+        updateBandwidthHints(trackSid);
+    }
+
+    /*
+     * Record the size the sink is rendered at, in pixels.
+     */
+    synchronized void setSinkRenderSize(VideoSink sink, int width, int height) {
+        VideoDimensions previous = renderSizes.get(sink);
+        if (previous != null && previous.width == width && previous.height == height) {
+            return;
+        }
+        renderSizes.put(sink, new VideoDimensions(width, height));
+        String trackSid = boundTrackSids.get(sink);
+        if (trackSid != null) {
+            updateBandwidthHints(trackSid);
+        }
+    }
+
+    synchronized void setBandwidthHintsEnabled(boolean enabled) {
+        bandwidthHintsEnabled = enabled;
+        hintedDimensions.clear();
+        switchedOffTrackSids.clear();
+        for (String trackSid : videoTracks.keySet()) {
+            updateBandwidthHints(trackSid);
+        }
+    }
+
+    /*
+     * Unbind the sink and forget its state, when its view is released or leaves the session.
+     */
+    synchronized void releaseSink(VideoSink sink) {
+        detachSink(sink);
+        inactiveSinks.remove(sink);
+        renderSizes.remove(sink);
+    }
+
+    private void detachSink(VideoSink sink) {
+        String trackSid = boundTrackSids.remove(sink);
+        if (trackSid == null) {
+            return;
+        }
+        setTrackEnabled(Collections.singleton(sink), false);
+        RemoteVideoTrack track = videoTracks.get(trackSid);
+        if (track != null) {
+            track.removeSink(sink);
+        }
+        Set<VideoSink> sinks = sinksByTrackSid.get(trackSid);
+        if (sinks != null) {
+            sinks.remove(sink);
+            if (sinks.isEmpty()) {
+                sinksByTrackSid.remove(trackSid);
+            }
+        }
+        updateBandwidthHints(trackSid);
+    }
+
+    private void updateBandwidthHints(String trackSid) {
+        RemoteVideoTrack track = videoTracks.get(trackSid);
+        if (!bandwidthHintsEnabled || track == null) {
+            return;
+        }
+
+        boolean rendered = false;
+        int width = 0;
+        int height = 0;
+        Set<VideoSink> sinks = sinksByTrackSid.get(trackSid);
+        if (sinks != null) {
+            for (VideoSink sink : sinks) {
+                if (inactiveSinks.contains(sink)) {
+                    continue;
+                }
+                rendered = true;
+                VideoDimensions size = renderSizes.get(sink);
+                if (size != null) {
+                    width = Math.max(width, size.width);
+                    height = Math.max(height, size.height);
+                }
+            }
+        }
+
+        if (!rendered) {
+            hintedDimensions.remove(trackSid);
+            if (switchedOffTrackSids.add(trackSid)) {
+                track.switchOff();
+            }
+            return;
+        }
+        if (switchedOffTrackSids.remove(trackSid)) {
+            track.switchOn();
+        }
+
+        // Wait for the first layout rather than asking for an arbitrary size
+        if (width == 0 || height == 0) {
+            return;
+        }
+        VideoDimensions hinted = hintedDimensions.get(trackSid);
+        if (hinted != null && hinted.width == width && hinted.height == height) {
+            return;
+        }
+        VideoDimensions dimensions = new VideoDimensions(width, height);
+        hintedDimensions.put(trackSid, dimensions);
+        track.setContentPreferences(new VideoContentPreferences(dimensions));
+    }
+
+    synchronized void setAudioPlayback(String participantSid, boolean enabled) {
+        RemoteParticipant participant = participants.get(participantSid);
+        if (participant != null) {
+            setAudioPlayback(participant, enabled);
+        }
+    }
+
+    synchronized void setAudioPlayback(boolean enabled) {
+        for (RemoteParticipant participant : participants.values()) {
+            setAudioPlayback(participant, enabled);
+        }
+    }
+
+    private void setAudioPlayback(RemoteParticipant participant, boolean enabled) {
+        for (RemoteAudioTrackPublication publication : participant.getRemoteAudioTracks()) {
+            RemoteAudioTrack track = publication.getRemoteAudioTrack();
+            if (track != null) {
+                track.enablePlayback(enabled);
+            }
+        }
+    }
+
+    /*
+     * Forget the room's participants and tracks. View bindings are kept until the views unbind
+     * themselves.
+     */
+    synchronized void clear() {
+        for (Map.Entry<String, RemoteVideoTrack> entry : videoTracks.entrySet()) {
+            Set<VideoSink> sinks = sinksByTrackSid.get(entry.getKey());
+            if (sinks == null) {
+                continue;
+            }
+            for (VideoSink sink : sinks) {
+                entry.getValue().removeSink(sink);
+            }
+            setTrackEnabled(sinks, false);
+        }
+        participants.clear();
+        videoTracks.clear();
+        hintedDimensions.clear();
+        switchedOffTrackSids.clear();
+    }
+}
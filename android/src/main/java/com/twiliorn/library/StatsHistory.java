@@ -0,0 +1,224 @@
+/**
+ * Bounded per-track history of sampled stats, summarized on demand.
+ */
+
+package com.twiliorn.library;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Each track gets a preallocated float ring buffer per metric, sized for the configured number
+ * of samples, and at most MAX_TRACKS tracks are kept; the least recently updated one is evicted
+ * and its buffers reused. Recording a sample therefore does not allocate, and memory stays
+ * bounded however long a call runs. Raw samples never leave native code: buildSummary reduces
+ * each metric to percentiles and a fixed-width histogram.
+ *
+ * Only the metrics a kind of track reports are recorded and summarized, e.g. no round trip
+ * time for remote tracks or frame rate for audio, so placeholder zeros do not drag the
+ * percentiles down.
+ *
+ * Not thread safe, it is only used from the stats sampler thread.
+ */
+class StatsHistory {
+    static final int MAX_TRACKS = 32;
+    private static final int HISTOGRAM_BINS = 10;
+
+    static final int METRIC_PACKETS_LOST = 0;
+    static final int METRIC_BITRATE_KBPS = 1;
+    static final int METRIC_JITTER = 2;
+    static final int METRIC_FRAME_RATE = 3;
+    static final int METRIC_ROUND_TRIP_TIME = 4;
+    static final int METRIC_AUDIO_LEVEL = 5;
+    private static final String[] METRIC_NAMES = {
+            "packetsLost",
+            "bitrateKbps",
+            "jitter",
+            "frameRate",
+            "roundTripTime",
+            "audioLevel"
+    };
+    // Bit per metric, indexed by StatsSampler kind
+    private static final int[] KIND_METRICS = {
+            metrics(METRIC_PACKETS_LOST, METRIC_BITRATE_KBPS, METRIC_JITTER, METRIC_AUDIO_LEVEL),
+            metrics(METRIC_PACKETS_LOST, METRIC_BITRATE_KBPS, METRIC_FRAME_RATE),
+            metrics(METRIC_PACKETS_LOST, METRIC_BITRATE_KBPS, METRIC_JITTER, METRIC_ROUND_TRIP_TIME,
+                    METRIC_AUDIO_LEVEL),
+            metrics(METRIC_PACKETS_LOST, METRIC_BITRATE_KBPS, METRIC_FRAME_RATE, METRIC_ROUND_TRIP_TIME)
+    };
+
+    private static class TrackHistory {
+        final float[][] values;
+        int kind;
+        int head;
+        int count;
+        long lastRecordedMs;
+
+        TrackHistory(int capacity) {
+            values = new float[METRIC_NAMES.length][capacity];
+        }
+
+        void reset(int kind) {
+            this.kind = kind;
+            head = 0;
+            count = 0;
+        }
+    }
+
+    private final Map<String, TrackHistory> tracks = new HashMap<>();
+    private int capacity = 0;
+    private float[] scratch = new float[0];
+
+    /*
+     * Keep the given number of samples per track. Changing it drops the history.
+     */
+    void setCapacity(int capacity) {
+        if (capacity == this.capacity) {
+            return;
+        }
+        this.capacity = Math.max(0, capacity);
+        tracks.clear();
+    }
+
+    void clear() {
+        tracks.clear();
+    }
+
+    /*
+     * Record a sample of the track. Values of metrics the kind does not report are ignored.
+     */
+    void record(String trackSid, int kind, long nowMs, float packetsLost, float bitrateKbps,
+                float jitter, float frameRate, float roundTripTime, float audioLevel) {
+        if (capacity == 0) {
+            return;
+        }
+        TrackHistory history = tracks.get(trackSid);
+        if (history == null) {
+            history = evictOrAllocate();
+            history.reset(kind);
+            tracks.put(trackSid, history);
+        }
+
+        int slot = history.head;
+        history.values[METRIC_PACKETS_LOST][slot] = packetsLost;
+        history.values[METRIC_BITRATE_KBPS][slot] = bitrateKbps;
+        history.values[METRIC_JITTER][slot] = jitter;
+        history.values[METRIC_FRAME_RATE][slot] = frameRate;
+        history.values[METRIC_ROUND_TRIP_TIME][slot] = roundTripTime;
+        history.values[METRIC_AUDIO_LEVEL][slot] = audioLevel;
+        history.head = (slot + 1) % capacity;
+        history.count = Math.min(history.count + 1, capacity);
+        history.lastRecordedMs = nowMs;
+    }
+
+    private TrackHistory evictOrAllocate() {
+        if (tracks.size() < MAX_TRACKS) {
+            return new TrackHistory(capacity);
+        }
+        String oldestSid = null;
+        TrackHistory oldest = null;
+        for (Map.Entry<String, TrackHistory> entry : tracks.entrySet()) {
+            if (oldest == null || entry.getValue().lastRecordedMs < oldest.lastRecordedMs) {
+                oldestSid = entry.getKey();
+                oldest = entry.getValue();
+            }
+        }
+        tracks.remove(oldestSid);
+        return oldest;
+    }
+
+    WritableMap buildSummary() {
+        WritableArray trackSummaries = new WritableNativeArray();
+        for (Map.Entry<String, TrackHistory> entry : tracks.entrySet()) {
+            TrackHistory history = entry.getValue();
+            WritableMap metrics = new WritableNativeMap();
+            for (int metric = 0; metric < METRIC_NAMES.length; metric++) {
+                if (reports(history.kind, metric)) {
+                    metrics.putMap(METRIC_NAMES[metric], summarize(history.values[metric], history.count));
+                }
+            }
+            WritableMap trackSummary = new WritableNativeMap();
+            trackSummary.putString("trackSid", entry.getKey());
+            trackSummary.putInt("kind", history.kind);
+            trackSummary.putInt("samples", history.count);
+            trackSummary.putMap("metrics", metrics);
+            trackSummaries.pushMap(trackSummary);
+        }
+
+        WritableMap summary = new WritableNativeMap();
+        summary.putInt("capacity", capacity);
+        summary.putArray("tracks", trackSummaries);
+        return summary;
+    }
+
+    // The order of the samples does not matter for a summary, so the ring is sorted as is
+    private WritableMap summarize(float[] values, int count) {
+        WritableMap summary = new WritableNativeMap();
+        if (count == 0) {
+            return summary;
+        }
+        if (scratch.length < count) {
+            scratch = new float[capacity];
+        }
+        System.arraycopy(values, 0, scratch, 0, count);
+        Arrays.sort(scratch, 0, count);
+
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += scratch[i];
+        }
+        float min = scratch[0];
+        float max = scratch[count - 1];
+        summary.putDouble("min", min);
+        summary.putDouble("max", max);
+        summary.putDouble("mean", sum / count);
+        summary.putDouble("p50", percentile(count, 50));
+        summary.putDouble("p95", percentile(count, 95));
+        summary.putDouble("p99", percentile(count, 99));
+
+        float binWidth = (max - min) / HISTOGRAM_BINS;
+        WritableArray counts = new WritableNativeArray();
+        int i = 0;
+        for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+            float binEnd = min + binWidth * (bin + 1);
+            int binCount = 0;
+            // The last bin is closed so it includes max
+            while (i < count
+                    && (scratch[i] < binEnd || bin == HISTOGRAM_BINS - 1 || binWidth == 0)) {
+                binCount++;
+                i++;
+            }
+            counts.pushInt(binCount);
+        }
+        WritableMap histogram = new WritableNativeMap();
+        histogram.putDouble("min", min);
+        histogram.putDouble("binWidth", binWidth);
+        histogram.putArray("counts", counts);
+        summary.putMap("histogram", histogram);
+        return summary;
+    }
+
+    static boolean reports(int kind, int metric) {
+        return kind >= 0 && kind < KIND_METRICS.length && (KIND_METRICS[kind] & (1 << metric)) != 0;
+    }
+
+    private static int metrics(int... metrics) {
+        int mask = 0;
+        for (int metric : metrics) {
+            mask |= 1 << metric;
+        }
+        return mask;
+    }
+
+    // Nearest rank on the sorted scratch array
+    private float percentile(int count, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * count);
+        return scratch[Math.max(0, Math.min(count, rank) - 1)];
+    }
+}
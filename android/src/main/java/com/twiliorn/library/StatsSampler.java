@@ -0,0 +1,339 @@
+/**
+ * Periodic stats sampler that sends JS compact per-track deltas instead of full reports.
+ */
+
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.BaseTrackStats;
+import com.twilio.video.LocalAudioTrackStats;
+import com.twilio.video.LocalVideoTrackStats;
+import com.twilio.video.RemoteAudioTrackStats;
+import com.twilio.video.RemoteVideoTrackStats;
+import com.twilio.video.Room;
+import com.twilio.video.StatsListener;
+import com.twilio.video.StatsReport;
+import com.twilio.video.VideoDimensions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Runs room.getStats on its own thread at a fixed interval and keeps the previous sample of
+ * every track, so rates can be derived natively. Each track is reported as a fixed-layout array
+ * (see the RECORD_* indices), and only when one of its values changed since it was last
+ * reported. Tracks that disappear are listed once in "removed". Nothing is sent for a sample in
+ * which nothing changed.
+ *
+ * Every sample is also recorded in a StatsHistory, which outlives the room so it can still be
+ * summarized after the call ends; it is only cleared when sampling starts on another room.
+ */
+class StatsSampler {
+    private static final String THREAD_NAME = "RNTwilioStatsSampler";
+    private static final int MIN_INTERVAL_MS = 250;
+
+    static final int KIND_REMOTE_AUDIO = 0;
+    static final int KIND_REMOTE_VIDEO = 1;
+    static final int KIND_LOCAL_AUDIO = 2;
+    static final int KIND_LOCAL_VIDEO = 3;
+    private static final int KIND_COUNT = 4;
+
+    // Layout of a track record
+    static final int RECORD_KIND = 0;
+    static final int RECORD_TRACK_SID = 1;
+    static final int RECORD_BITRATE_KBPS = 2;
+    static final int RECORD_PACKET_LOSS_PERCENT = 3;
+    static final int RECORD_FRAME_RATE = 4;
+    static final int RECORD_FRAME_RATE_DELTA = 5;
+    static final int RECORD_JITTER = 6;
+    static final int RECORD_JITTER_DELTA = 7;
+    static final int RECORD_ROUND_TRIP_TIME = 8;
+    static final int RECORD_WIDTH = 9;
+    static final int RECORD_HEIGHT = 10;
+    private static final int RECORD_SIZE = 11;
+
+    interface Listener {
+        void onSample(WritableMap sample);
+
+        void onHistorySummary(WritableMap summary);
+    }
+
+    private static class TrackState {
+        long sampledAtMs;
+        long bytes;
+        long packets;
+        long packetsLost;
+        int frameRate;
+        int jitter;
+        boolean seen;
+        // Values last sent to JS, from RECORD_BITRATE_KBPS on
+        double[] reported;
+    }
+
+    private final Listener listener;
+    // Previous sample of each track by sid, one map per kind
+    private final List<Map<String, TrackState>> tracks = new ArrayList<>(KIND_COUNT);
+    private final StatsHistory history = new StatsHistory();
+    private HandlerThread thread;
+    private Handler handler;
+    private Room room;
+    private int intervalMs;
+    private boolean emitSamples = true;
+
+    private final Runnable sampleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+        }
+    };
+
+    StatsSampler(Listener listener) {
+        this.listener = listener;
+        for (int kind = 0; kind < KIND_COUNT; kind++) {
+            tracks.add(new HashMap<String, TrackState>());
+        }
+    }
+
+    /*
+     * Start sampling the room, replacing any sampling already running. Previous samples are
+     * kept when the room does not change so a new interval does not reset the rates. The last
+     * historySeconds of samples are kept for summaries; with emitSamples false samples are only
+     * recorded, not sent to JS.
+     */
+    synchronized void start(Room room, int intervalMs, int historySeconds, boolean emitSamples) {
+        if (thread == null) {
+            thread = new HandlerThread(THREAD_NAME);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        handler.removeCallbacks(sampleRunnable);
+        final boolean newRoom = this.room != room;
+        this.room = room;
+        this.intervalMs = Math.max(MIN_INTERVAL_MS, intervalMs);
+        this.emitSamples = emitSamples;
+        final int historyCapacity = Math.max(0, historySeconds) * 1000 / this.intervalMs;
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (newRoom) {
+                    clearTracks();
+                    history.clear();
+                }
+                history.setCapacity(historyCapacity);
+            }
+        });
+        handler.post(sampleRunnable);
+    }
+
+    synchronized void stop() {
+        room = null;
+        if (handler != null) {
+            handler.removeCallbacks(sampleRunnable);
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    clearTracks();
+                }
+            });
+        }
+    }
+
+    /*
+     * Summarize the recorded history, delivered to the listener from the sampler thread.
+     */
+    synchronized void requestHistorySummary() {
+        if (handler == null) {
+            listener.onHistorySummary(buildHistorySummary());
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onHistorySummary(buildHistorySummary());
+            }
+        });
+    }
+
+    private WritableMap buildHistorySummary() {
+        WritableMap summary = history.buildSummary();
+        summary.putInt("intervalMs", intervalMs);
+        return summary;
+    }
+
+    synchronized void release() {
+        stop();
+        if (thread != null) {
+            thread.quitSafely();
+            thread = null;
+            handler = null;
+        }
+    }
+
+    // Runs on the sampler thread, stats are delivered back to it
+    private void sample() {
+        final Room sampledRoom;
+        synchronized (this) {
+            sampledRoom = room;
+            if (sampledRoom == null) {
+                return;
+            }
+            handler.postDelayed(sampleRunnable, intervalMs);
+        }
+        sampledRoom.getStats(new StatsListener() {
+            @Override
+            public void onStats(List<StatsReport> statsReports) {
+                synchronized (StatsSampler.this) {
+                    if (room != sampledRoom) {
+                        return;
+                    }
+                }
+                WritableMap sample = buildSample(statsReports, emitSamples);
+                if (sample != null) {
+                    listener.onSample(sample);
+                }
+            }
+        });
+    }
+
+    // Returns null when there is nothing to send
+    private WritableMap buildSample(List<StatsReport> statsReports, boolean emit) {
+        long now = SystemClock.elapsedRealtime();
+        for (Map<String, TrackState> kindTracks : tracks) {
+            for (TrackState state : kindTracks.values()) {
+                state.seen = false;
+            }
+        }
+
+        WritableArray records = emit ? new WritableNativeArray() : null;
+        for (StatsReport report : statsReports) {
+            for (RemoteAudioTrackStats s : report.getRemoteAudioTrackStats()) {
+                update(records, now, KIND_REMOTE_AUDIO, s, s.bytesReceived, s.packetsReceived,
+                        0, s.jitter, 0, s.audioLevel, null);
+            }
+            for (RemoteVideoTrackStats s : report.getRemoteVideoTrackStats()) {
+                update(records, now, KIND_REMOTE_VIDEO, s, s.bytesReceived, s.packetsReceived,
+                        s.frameRate, 0, 0, 0, s.dimensions);
+            }
+            for (LocalAudioTrackStats s : report.getLocalAudioTrackStats()) {
+                update(records, now, KIND_LOCAL_AUDIO, s, s.bytesSent, s.packetsSent,
+                        0, s.jitter, s.roundTripTime, s.audioLevel, null);
+            }
+            for (LocalVideoTrackStats s : report.getLocalVideoTrackStats()) {
+                update(records, now, KIND_LOCAL_VIDEO, s, s.bytesSent, s.packetsSent,
+                        s.frameRate, 0, s.roundTripTime, 0, s.dimensions);
+            }
+        }
+
+        WritableArray removed = emit ? new WritableNativeArray() : null;
+        int removedCount = 0;
+        for (Map<String, TrackState> kindTracks : tracks) {
+            Iterator<Map.Entry<String, TrackState>> iterator = kindTracks.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, TrackState> entry = iterator.next();
+                if (!entry.getValue().seen) {
+                    if (removed != null) {
+                        removed.pushString(entry.getKey());
+                    }
+                    removedCount++;
+                    iterator.remove();
+                }
+            }
+        }
+
+        if (!emit || (records.size() == 0 && removedCount == 0)) {
+            return null;
+        }
+        WritableMap sample = new WritableNativeMap();
+        sample.putDouble("timestamp", System.currentTimeMillis());
+        sample.putInt("intervalMs", intervalMs);
+        sample.putArray("records", records);
+        sample.putArray("removed", removed);
+        return sample;
+    }
+
+    private void update(WritableArray records, long now, int kind, BaseTrackStats stats,
+                        long bytes, long packets, int frameRate, int jitter, long roundTripTime,
+                        int audioLevel, VideoDimensions dimensions) {
+        Map<String, TrackState> kindTracks = tracks.get(kind);
+        TrackState state = kindTracks.get(stats.trackSid);
+        if (state == null) {
+            state = new TrackState();
+            kindTracks.put(stats.trackSid, state);
+        } else if (state.seen) {
+            // Already reported through another peer connection in this sample
+            return;
+        }
+        state.seen = true;
+
+        long elapsedMs = now - state.sampledAtMs;
+        boolean hasPrevious = state.sampledAtMs > 0 && elapsedMs > 0
+                && bytes >= state.bytes && packets >= state.packets
+                && stats.packetsLost >= state.packetsLost;
+
+        if (hasPrevious) {
+            long packetsDelta = packets - state.packets;
+            long lostDelta = stats.packetsLost - state.packetsLost;
+            // bits per millisecond is kilobits per second
+            long bitrateKbps = Math.round((bytes - state.bytes) * 8.0 / elapsedMs);
+            history.record(stats.trackSid, kind, now, lostDelta, bitrateKbps, jitter, frameRate,
+                    roundTripTime, audioLevel);
+            if (records != null) {
+                report(records, kind, stats.trackSid, state, bitrateKbps, packetsDelta, lostDelta,
+                        frameRate, jitter, roundTripTime, dimensions);
+            }
+        }
+
+        state.sampledAtMs = now;
+        state.bytes = bytes;
+        state.packets = packets;
+        state.packetsLost = stats.packetsLost;
+        state.frameRate = frameRate;
+        state.jitter = jitter;
+    }
+
+    // Adds the track's record if one of its values changed since it was last reported
+    private static void report(WritableArray records, int kind, String trackSid, TrackState state,
+                               long bitrateKbps, long packetsDelta, long lostDelta, int frameRate,
+                               int jitter, long roundTripTime, VideoDimensions dimensions) {
+        double[] values = new double[RECORD_SIZE - RECORD_BITRATE_KBPS];
+        values[RECORD_BITRATE_KBPS - RECORD_BITRATE_KBPS] = bitrateKbps;
+        values[RECORD_PACKET_LOSS_PERCENT - RECORD_BITRATE_KBPS] = packetsDelta + lostDelta > 0
+                ? Math.round(lostDelta * 1000.0 / (packetsDelta + lostDelta)) / 10.0
+                : 0;
+        values[RECORD_FRAME_RATE - RECORD_BITRATE_KBPS] = frameRate;
+        values[RECORD_FRAME_RATE_DELTA - RECORD_BITRATE_KBPS] = frameRate - state.frameRate;
+        values[RECORD_JITTER - RECORD_BITRATE_KBPS] = jitter;
+        values[RECORD_JITTER_DELTA - RECORD_BITRATE_KBPS] = jitter - state.jitter;
+        values[RECORD_ROUND_TRIP_TIME - RECORD_BITRATE_KBPS] = roundTripTime;
+        values[RECORD_WIDTH - RECORD_BITRATE_KBPS] = dimensions != null ? dimensions.width : 0;
+        values[RECORD_HEIGHT - RECORD_BITRATE_KBPS] = dimensions != null ? dimensions.height : 0;
+
+        if (!Arrays.equals(values, state.reported)) {
+            state.reported = values;
+            WritableArray record = new WritableNativeArray();
+            record.pushInt(kind);
+            record.pushString(trackSid);
+            for (double value : values) {
+                record.pushDouble(value);
+            }
+            records.pushArray(record);
+        }
+    }
+
+    private void clearTracks() {
+        for (Map<String, TrackState> kindTracks : tracks) {
+            kindTracks.clear();
+        }
+    }
+}
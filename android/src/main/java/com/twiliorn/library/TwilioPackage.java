@@ -31,6 +31,9 @@ public class TwilioPackage implements ReactPackage {
 
     @Override
     public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
+        // Probe hardware codecs and cameras in the background so connecting does not have to
+        CodecCapabilities.prefetch();
+        CameraCapabilities.prefetch(reactContext);
         return Arrays.<ViewManager>asList(
                 new CustomTwilioVideoViewManager(),
                 new TwilioRemotePreviewManager(),
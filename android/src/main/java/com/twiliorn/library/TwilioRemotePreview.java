@@ -7,8 +7,6 @@
 
 package com.twiliorn.library;
 
-import android.util.Log;
-
 import com.facebook.react.uimanager.ThemedReactContext;
 
 
@@ -16,13 +14,77 @@ public class TwilioRemotePreview extends RNVideoViewGroup {
 
     private static final String TAG = "TwilioRemotePreview";
 
+    private String trackSid = null;
 
-    public TwilioRemotePreview(ThemedReactContext context, String trackSid) {
+    public TwilioRemotePreview(ThemedReactContext context) {
         super(context);
-        Log.i("CustomTwilioVideoView", "Remote Prview Construct");
-        Log.i("CustomTwilioVideoView", trackSid);
+        this.getSurfaceViewRenderer().setListener(new PatchedVideoView.Listener() {
+            @Override
+            public void onFirstFrame() {
+                VideoSession session = getSession();
+                if (session != null && trackSid != null) {
+                    session.joinTimeline.markFirstFrame(trackSid);
+                }
+            }
+        });
+    }
+
+    /*
+     * Bind this view to a remote video track. The view starts rendering as soon as the track is
+     * subscribed, which may be before or after this call.
+     */
+    public void setTrackSid(String trackSid) {
+        this.trackSid = trackSid;
+        // Report the first frame of the new track
+        this.getSurfaceViewRenderer().resetListener();
+        VideoSession session = getSession();
+        if (session != null) {
+            session.trackRegistry.bindSink(this.getSurfaceViewRenderer(), trackSid);
+        }
+    }
+
+    public String getTrackSid() {
+        return trackSid;
+    }
+
+    @Override
+    protected void onRenderVisibilityChanged(boolean visible) {
+        VideoSession session = getSession();
+        if (session != null) {
+            session.trackRegistry.setSinkActive(this.getSurfaceViewRenderer(), visible);
+        }
+    }
+
+    @Override
+    protected void onRenderSizeChanged(int width, int height) {
+        VideoSession session = getSession();
+        if (session != null) {
+            session.trackRegistry.setSinkRenderSize(this.getSurfaceViewRenderer(), width, height);
+        }
+    }
+
+    @Override
+    protected void onSessionAttached(VideoSession session) {
+        if (trackSid == null) {
+            return;
+        }
+        // Carry the binding over with the view's current visibility and size
+        PatchedVideoView renderer = this.getSurfaceViewRenderer();
+        session.trackRegistry.bindSink(renderer, trackSid);
+        session.trackRegistry.setSinkRenderSize(renderer, getWidth(), getHeight());
+        if (!isRenderVisible()) {
+            session.trackRegistry.setSinkActive(renderer, false);
+        }
+    }
+
+    @Override
+    protected void onSessionDetached(VideoSession session) {
+        session.trackRegistry.releaseSink(this.getSurfaceViewRenderer());
+    }
 
-        CustomTwilioVideoView.registerPrimaryVideoView(this.getSurfaceViewRenderer(), trackSid);
+    public void release() {
+        releaseSession();
+        trackSid = null;
     }
 
     public void applyZOrder(boolean applyZOrder) {
@@ -8,8 +8,8 @@
 package com.twiliorn.library;
 
 import androidx.annotation.Nullable;
-import android.util.Log;
 
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.common.MapBuilder;
 import com.facebook.react.uimanager.SimpleViewManager;
 import com.facebook.react.uimanager.ThemedReactContext;
@@ -20,11 +20,14 @@ import tvi.webrtc.RendererCommon;
 import java.util.Map;
 
 import static com.twiliorn.library.RNVideoViewGroup.Events.ON_FRAME_DIMENSIONS_CHANGED;
+import static com.twiliorn.library.RNVideoViewGroup.Events.ON_RENDER_FREEZE;
+import static com.twiliorn.library.RNVideoViewGroup.Events.ON_RENDER_STATS;
 
 public class TwilioRemotePreviewManager extends SimpleViewManager<TwilioRemotePreview> {
 
     public static final String REACT_CLASS = "RNTwilioRemotePreview";
-    public String myTrackSid = "";
+
+    private static final int GET_RENDER_STATS = 1;
 
     @Override
     public String getName() {
@@ -43,11 +46,12 @@ public class TwilioRemotePreviewManager extends SimpleViewManager<TwilioRemotePr
 
     @ReactProp(name = "trackSid")
     public void setTrackId(TwilioRemotePreview view, @Nullable String trackSid) {
+        view.setTrackSid(trackSid);
+    }
 
-        Log.i("CustomTwilioVideoView", "Initialize Twilio REMOTE");
-        Log.i("CustomTwilioVideoView", trackSid);
-        myTrackSid = trackSid;
-        CustomTwilioVideoView.registerPrimaryVideoView(view.getSurfaceViewRenderer(), trackSid);
+    @ReactProp(name = "sessionId")
+    public void setSessionId(TwilioRemotePreview view, @Nullable String sessionId) {
+        view.setSessionId(sessionId);
     }
 
     @ReactProp(name = "applyZOrder", defaultBoolean = false)
@@ -55,9 +59,55 @@ public class TwilioRemotePreviewManager extends SimpleViewManager<TwilioRemotePr
       view.applyZOrder(applyZOrder);
     }
 
+    @ReactProp(name = "maxFrameRate", defaultInt = 0)
+    public void setMaxFrameRate(TwilioRemotePreview view, int maxFrameRate) {
+        view.setMaxFrameRate(maxFrameRate);
+    }
+
+    @ReactProp(name = "renderResolutionScale", defaultFloat = 0f)
+    public void setRenderResolutionScale(TwilioRemotePreview view, float renderResolutionScale) {
+        view.setRenderResolutionScale(renderResolutionScale);
+    }
+
+    @ReactProp(name = "visibilityHysteresisMs", defaultInt = 500)
+    public void setVisibilityHysteresisMs(TwilioRemotePreview view, int visibilityHysteresisMs) {
+        view.setVisibilityHysteresisMs(visibilityHysteresisMs);
+    }
+
+    @ReactProp(name = "renderStatsIntervalMs", defaultInt = 0)
+    public void setRenderStatsIntervalMs(TwilioRemotePreview view, int renderStatsIntervalMs) {
+        view.setRenderStatsIntervalMs(renderStatsIntervalMs);
+    }
+
+    @ReactProp(name = "freezeThresholdMs", defaultInt = 0)
+    public void setFreezeThresholdMs(TwilioRemotePreview view, int freezeThresholdMs) {
+        view.setFreezeThresholdMs(freezeThresholdMs);
+    }
+
+    @Override
+    public void receiveCommand(TwilioRemotePreview view, int commandId, @Nullable ReadableArray args) {
+        switch (commandId) {
+            case GET_RENDER_STATS:
+                view.pushRenderStats();
+                break;
+        }
+    }
+
+    @Override
+    @Nullable
+    public Map<String, Integer> getCommandsMap() {
+        return MapBuilder.of("getRenderStats", GET_RENDER_STATS);
+    }
+
     @Override
     protected TwilioRemotePreview createViewInstance(ThemedReactContext reactContext) {
-        return new TwilioRemotePreview(reactContext, myTrackSid);
+        return new TwilioRemotePreview(reactContext);
+    }
+
+    @Override
+    public void onDropViewInstance(TwilioRemotePreview view) {
+        view.release();
+        super.onDropViewInstance(view);
     }
 
     @Override
@@ -68,6 +118,16 @@ public class TwilioRemotePreviewManager extends SimpleViewManager<TwilioRemotePr
               MapBuilder.of(
                   "phasedRegistrationNames",
                   MapBuilder.of("bubbled", ON_FRAME_DIMENSIONS_CHANGED)))
+          .put(
+            ON_RENDER_STATS,
+              MapBuilder.of(
+                  "phasedRegistrationNames",
+                  MapBuilder.of("bubbled", ON_RENDER_STATS)))
+          .put(
+            ON_RENDER_FREEZE,
+              MapBuilder.of(
+                  "phasedRegistrationNames",
+                  MapBuilder.of("bubbled", ON_RENDER_FREEZE)))
                   .build();
   }
 }
@@ -14,11 +14,24 @@ public class TwilioScreenSharePreview extends RNVideoViewGroup {
 
     public TwilioScreenSharePreview(ThemedReactContext themedReactContext) {
         super(themedReactContext);
-        CustomTwilioVideoView.registerScreenShareVideoView(this.getSurfaceViewRenderer());
+        onSessionAttached(getSession());
+    }
+
+    @Override
+    protected void onSessionAttached(VideoSession session) {
+        session.registerScreenShareVideoView(this.getSurfaceViewRenderer());
+    }
+
+    @Override
+    protected void onSessionDetached(VideoSession session) {
+        session.unregisterScreenShareVideoView(this.getSurfaceViewRenderer());
+    }
+
+    public void release() {
+        releaseSession();
     }
 
     public void applyZOrder(boolean applyZOrder) {
         this.getSurfaceViewRenderer().applyZOrder(applyZOrder);
     }
 }
-
@@ -37,6 +37,11 @@ public class TwilioScreenSharePreviewManager extends SimpleViewManager<TwilioScr
         }
     }
 
+    @ReactProp(name = "sessionId")
+    public void setSessionId(TwilioScreenSharePreview view, @Nullable String sessionId) {
+        view.setSessionId(sessionId);
+    }
+
     @ReactProp(name = "applyZOrder", defaultBoolean = true)
     public void setApplyZOrder(TwilioScreenSharePreview view, boolean applyZOrder) {
         view.applyZOrder(applyZOrder);
@@ -56,5 +61,11 @@ public class TwilioScreenSharePreviewManager extends SimpleViewManager<TwilioScr
     protected TwilioScreenSharePreview createViewInstance(ThemedReactContext reactContext) {
         return new TwilioScreenSharePreview(reactContext);
     }
+
+    @Override
+    public void onDropViewInstance(TwilioScreenSharePreview view) {
+        view.release();
+        super.onDropViewInstance(view);
+    }
 }
 
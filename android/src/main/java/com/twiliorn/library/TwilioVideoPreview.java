@@ -15,7 +15,21 @@ public class TwilioVideoPreview extends RNVideoViewGroup {
 
     public TwilioVideoPreview(ThemedReactContext themedReactContext) {
         super(themedReactContext);
-        CustomTwilioVideoView.registerThumbnailVideoView(this.getSurfaceViewRenderer());
+        onSessionAttached(getSession());
+    }
+
+    @Override
+    protected void onSessionAttached(VideoSession session) {
+        session.registerThumbnailVideoView(this.getSurfaceViewRenderer());
+    }
+
+    @Override
+    protected void onSessionDetached(VideoSession session) {
+        session.unregisterThumbnailVideoView(this.getSurfaceViewRenderer());
+    }
+
+    public void release() {
+        releaseSession();
     }
 
     public void applyZOrder(boolean applyZOrder) {
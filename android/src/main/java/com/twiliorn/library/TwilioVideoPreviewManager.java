@@ -9,6 +9,7 @@ package com.twiliorn.library;
 
 import androidx.annotation.Nullable;
 
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.common.MapBuilder;
 import com.facebook.react.uimanager.SimpleViewManager;
 import com.facebook.react.uimanager.ThemedReactContext;
@@ -19,11 +20,15 @@ import java.util.Map;
 import tvi.webrtc.RendererCommon;
 
 import static com.twiliorn.library.RNVideoViewGroup.Events.ON_FRAME_DIMENSIONS_CHANGED;
+import static com.twiliorn.library.RNVideoViewGroup.Events.ON_RENDER_FREEZE;
+import static com.twiliorn.library.RNVideoViewGroup.Events.ON_RENDER_STATS;
 
 public class TwilioVideoPreviewManager extends SimpleViewManager<TwilioVideoPreview> {
 
     public static final String REACT_CLASS = "RNTwilioVideoPreview";
 
+    private static final int GET_RENDER_STATS = 1;
+
     @Override
     public String getName() {
         return REACT_CLASS;
@@ -38,16 +43,63 @@ public class TwilioVideoPreviewManager extends SimpleViewManager<TwilioVideoPrev
         }
     }
 
+    @ReactProp(name = "sessionId")
+    public void setSessionId(TwilioVideoPreview view, @Nullable String sessionId) {
+        view.setSessionId(sessionId);
+    }
+
     @ReactProp(name = "applyZOrder", defaultBoolean = true)
     public void setApplyZOrder(TwilioVideoPreview view, boolean applyZOrder) {
         view.applyZOrder(applyZOrder);
     }
 
+    @ReactProp(name = "maxFrameRate", defaultInt = 0)
+    public void setMaxFrameRate(TwilioVideoPreview view, int maxFrameRate) {
+        view.setMaxFrameRate(maxFrameRate);
+    }
+
+    @ReactProp(name = "renderResolutionScale", defaultFloat = 0f)
+    public void setRenderResolutionScale(TwilioVideoPreview view, float renderResolutionScale) {
+        view.setRenderResolutionScale(renderResolutionScale);
+    }
+
+    @ReactProp(name = "visibilityHysteresisMs", defaultInt = 500)
+    public void setVisibilityHysteresisMs(TwilioVideoPreview view, int visibilityHysteresisMs) {
+        view.setVisibilityHysteresisMs(visibilityHysteresisMs);
+    }
+
+    @ReactProp(name = "renderStatsIntervalMs", defaultInt = 0)
+    public void setRenderStatsIntervalMs(TwilioVideoPreview view, int renderStatsIntervalMs) {
+        view.setRenderStatsIntervalMs(renderStatsIntervalMs);
+    }
+
+    @ReactProp(name = "freezeThresholdMs", defaultInt = 0)
+    public void setFreezeThresholdMs(TwilioVideoPreview view, int freezeThresholdMs) {
+        view.setFreezeThresholdMs(freezeThresholdMs);
+    }
+
+    @Override
+    public void receiveCommand(TwilioVideoPreview view, int commandId, @Nullable ReadableArray args) {
+        switch (commandId) {
+            case GET_RENDER_STATS:
+                view.pushRenderStats();
+                break;
+        }
+    }
+
+    @Override
+    @Nullable
+    public Map<String, Integer> getCommandsMap() {
+        return MapBuilder.of("getRenderStats", GET_RENDER_STATS);
+    }
+
     @Override
     @Nullable
     public Map getExportedCustomDirectEventTypeConstants() {
         Map<String, Map<String, String>> map = MapBuilder.of(
-                ON_FRAME_DIMENSIONS_CHANGED, MapBuilder.of("registrationName", ON_FRAME_DIMENSIONS_CHANGED)
+                ON_FRAME_DIMENSIONS_CHANGED, MapBuilder.of("registrationName", ON_FRAME_DIMENSIONS_CHANGED),
+                ON_RENDER_STATS, MapBuilder.of("registrationName", ON_RENDER_STATS),
+                ON_RENDER_FREEZE, MapBuilder.of("registrationName", ON_RENDER_FREEZE)
         );
 
         return map;
@@ -57,5 +109,11 @@ public class TwilioVideoPreviewManager extends SimpleViewManager<TwilioVideoPrev
     protected TwilioVideoPreview createViewInstance(ThemedReactContext reactContext) {
         return new TwilioVideoPreview(reactContext);
     }
+
+    @Override
+    public void onDropViewInstance(TwilioVideoPreview view) {
+        view.release();
+        super.onDropViewInstance(view);
+    }
 }
 
@@ -0,0 +1,395 @@
+/**
+ * Steps the camera capture format up or down a ladder as network, encoder and device load change.
+ */
+
+package com.twiliorn.library;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.LocalVideoTrackStats;
+import com.twilio.video.Room;
+import com.twilio.video.StatsListener;
+import com.twilio.video.StatsReport;
+import com.twilio.video.VideoDimensions;
+import com.twilio.video.VideoFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tvi.webrtc.VideoCapturer;
+
+/*
+ * The ladder is derived from the format the camera track was created with: level 0 is that
+ * format, and each following level lowers the frame rate, the resolution or both. Every
+ * EVALUATION_INTERVAL_MS the controller samples the local camera track stats, the process CPU
+ * load and the thermal status, and combines them with the last local network quality level:
+ *
+ * - networkQuality: the local network quality level is at or below NETWORK_QUALITY_LOW
+ * - encoderFrameRate: frames are sent well below the rate they are captured at
+ * - captureFrameRate: frames are captured well below the rate of the current level
+ * - cpu: the process uses more than CPU_HIGH of all cores
+ * - thermal: the device reports severe thermal status or worse
+ *
+ * One step down needs DOWN_EVALUATIONS consecutive evaluations with a reason, one step up needs
+ * UP_EVALUATIONS consecutive evaluations without one, no thermal throttling, and no step down in
+ * the last UP_HOLD_MS. Going up is deliberately slower than going down so the format does not
+ * oscillate around a limit.
+ *
+ * Steps are applied with VideoCapturer.changeCaptureFormat, which keeps the track and its
+ * publication. Every step is reported to the listener with its reason and the signals behind it.
+ */
+class VideoAdaptationController {
+    private static final String TAG = "RNTwilioVideo";
+    private static final String THREAD_NAME = "RNTwilioVideoAdaptation";
+
+    private static final int EVALUATION_INTERVAL_MS = 2000;
+    private static final int DOWN_EVALUATIONS = 2;
+    private static final int UP_EVALUATIONS = 5;
+    private static final long UP_HOLD_MS = 20000;
+
+    private static final int NETWORK_QUALITY_LOW = 1;
+    private static final int NETWORK_QUALITY_GOOD = 4;
+    private static final double FRAME_RATE_LOW_RATIO = 0.6;
+    private static final double FRAME_RATE_GOOD_RATIO = 0.85;
+    private static final double CPU_HIGH = 0.5;
+    private static final double CPU_LOW = 0.35;
+
+    // Resolution scale and frame rate cap of each step below the base format
+    private static final double[] LADDER_SCALES = {1.0, 1.0, 0.75, 0.5, 0.5};
+    private static final int[] LADDER_MAX_FRAME_RATES = {Integer.MAX_VALUE, 24, 20, 15, 10};
+
+    static final String REASON_NETWORK_QUALITY = "networkQuality";
+    static final String REASON_ENCODER_FRAME_RATE = "encoderFrameRate";
+    static final String REASON_CAPTURE_FRAME_RATE = "captureFrameRate";
+    static final String REASON_CPU = "cpu";
+    static final String REASON_THERMAL = "thermal";
+    static final String REASON_RECOVERED = "recovered";
+
+    interface Listener {
+        void onVideoAdaptationChanged(WritableMap event);
+    }
+
+    private final Listener listener;
+    private final PowerManager powerManager;
+    private final int cores = Runtime.getRuntime().availableProcessors();
+    private HandlerThread thread;
+    private Handler handler;
+
+    // Guarded by this
+    private Room room;
+    private VideoCapturer capturer;
+    private String trackSid;
+    private final List<VideoFormat> ladder = new ArrayList<>();
+    private int level = 0;
+
+    // Only touched on the controller thread, apart from the network quality level
+    private volatile int networkQualityLevel = -1;
+    private int downEvaluations = 0;
+    private int upEvaluations = 0;
+    private long lastDownMs = 0;
+    private long lastCpuTimeMs = -1;
+    private long lastCpuSampleMs = 0;
+
+    private final Runnable evaluateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            evaluate();
+        }
+    };
+
+    VideoAdaptationController(Context context, Listener listener) {
+        this.listener = listener;
+        this.powerManager = (PowerManager) context.getApplicationContext().getSystemService(Context.POWER_SERVICE);
+    }
+
+    /*
+     * Start adapting the camera track published in the room.
+     */
+    synchronized void start(Room room) {
+        if (thread == null) {
+            thread = new HandlerThread(THREAD_NAME);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        this.room = room;
+        handler.removeCallbacks(evaluateRunnable);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                resetEvaluations();
+            }
+        });
+        handler.postDelayed(evaluateRunnable, EVALUATION_INTERVAL_MS);
+    }
+
+    synchronized void stop() {
+        room = null;
+        trackSid = null;
+        networkQualityLevel = -1;
+        if (handler != null) {
+            handler.removeCallbacks(evaluateRunnable);
+        }
+    }
+
+    synchronized void release() {
+        stop();
+        capturer = null;
+        if (thread != null) {
+            thread.quitSafely();
+            thread = null;
+            handler = null;
+        }
+    }
+
+    /*
+     * Called whenever a camera track is created, with the format it was created with, or with
+     * null when the camera is released. A recreated track on the same base format is moved
+     * straight back to the current level; a new base format restarts at level 0.
+     */
+    synchronized void setCapturer(VideoCapturer capturer, VideoFormat baseFormat) {
+        this.capturer = capturer;
+        if (capturer == null || baseFormat == null) {
+            ladder.clear();
+            level = 0;
+            return;
+        }
+        if (ladder.isEmpty() || !sameFormat(ladder.get(0), baseFormat)) {
+            buildLadder(baseFormat);
+            level = 0;
+        } else if (level > 0) {
+            apply(ladder.get(level));
+        }
+    }
+
+    /*
+     * Stop stepping while the capture is stopped, e.g. in the background, keeping the level:
+     * changing the format restarts the capture, which would reopen the camera.
+     */
+    synchronized void pause() {
+        capturer = null;
+    }
+
+    /*
+     * The format to restart a paused capture at: the current level if the base format is
+     * unchanged, the base format otherwise.
+     */
+    synchronized VideoFormat getResumeFormat(VideoFormat baseFormat) {
+        if (ladder.isEmpty() || !sameFormat(ladder.get(0), baseFormat)) {
+            return baseFormat;
+        }
+        return ladder.get(level);
+    }
+
+    /*
+     * Resume stepping a capture that was restarted at getResumeFormat(baseFormat).
+     */
+    synchronized void resume(VideoCapturer capturer, VideoFormat baseFormat) {
+        this.capturer = capturer;
+        if (ladder.isEmpty() || !sameFormat(ladder.get(0), baseFormat)) {
+            buildLadder(baseFormat);
+            level = 0;
+        }
+        if (handler != null) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    resetEvaluations();
+                }
+            });
+        }
+    }
+
+    synchronized void setTrackSid(String trackSid) {
+        this.trackSid = trackSid;
+    }
+
+    // Quality as reported to JS, 0 to 5
+    void onNetworkQualityLevel(int quality) {
+        networkQualityLevel = quality;
+    }
+
+    private void buildLadder(VideoFormat base) {
+        ladder.clear();
+        for (int i = 0; i < LADDER_SCALES.length; i++) {
+            // Even sides, which every encoder accepts
+            int width = (int) (base.dimensions.width * LADDER_SCALES[i]) & ~1;
+            int height = (int) (base.dimensions.height * LADDER_SCALES[i]) & ~1;
+            int frameRate = Math.min(base.framerate, LADDER_MAX_FRAME_RATES[i]);
+            VideoFormat format = new VideoFormat(new VideoDimensions(width, height), frameRate);
+            if (ladder.isEmpty() || !sameFormat(ladder.get(ladder.size() - 1), format)) {
+                ladder.add(format);
+            }
+        }
+    }
+
+    private void resetEvaluations() {
+        downEvaluations = 0;
+        upEvaluations = 0;
+        lastCpuTimeMs = -1;
+    }
+
+    // Runs on the controller thread, stats are delivered back to it
+    private void evaluate() {
+        final Room evaluatedRoom;
+        synchronized (this) {
+            evaluatedRoom = room;
+            if (evaluatedRoom == null) {
+                return;
+            }
+            handler.postDelayed(evaluateRunnable, EVALUATION_INTERVAL_MS);
+        }
+        evaluatedRoom.getStats(new StatsListener() {
+            @Override
+            public void onStats(List<StatsReport> statsReports) {
+                onEvaluationStats(evaluatedRoom, statsReports);
+            }
+        });
+    }
+
+    private void onEvaluationStats(Room evaluatedRoom, List<StatsReport> statsReports) {
+        VideoFormat current;
+        String sid;
+        synchronized (this) {
+            if (room != evaluatedRoom || capturer == null || ladder.isEmpty()) {
+                return;
+            }
+            current = ladder.get(level);
+            sid = trackSid;
+        }
+
+        LocalVideoTrackStats stats = null;
+        for (StatsReport report : statsReports) {
+            for (LocalVideoTrackStats s : report.getLocalVideoTrackStats()) {
+                if (s.trackSid != null && s.trackSid.equals(sid)) {
+                    stats = s;
+                }
+            }
+        }
+        double cpuLoad = sampleCpuLoad();
+        int thermalStatus = getThermalStatus();
+        int quality = networkQualityLevel;
+
+        String downReason = null;
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE) {
+            downReason = REASON_THERMAL;
+        } else if (quality >= 0 && quality <= NETWORK_QUALITY_LOW) {
+            downReason = REASON_NETWORK_QUALITY;
+        } else if (cpuLoad > CPU_HIGH) {
+            downReason = REASON_CPU;
+        } else if (stats != null && stats.capturedFrameRate > 0
+                && stats.frameRate < stats.capturedFrameRate * FRAME_RATE_LOW_RATIO) {
+            downReason = REASON_ENCODER_FRAME_RATE;
+        } else if (stats != null && stats.capturedFrameRate > 0
+                && stats.capturedFrameRate < current.framerate * FRAME_RATE_LOW_RATIO) {
+            downReason = REASON_CAPTURE_FRAME_RATE;
+        }
+
+        boolean healthy = downReason == null
+                && thermalStatus < PowerManager.THERMAL_STATUS_MODERATE
+                && (quality < 0 || quality >= NETWORK_QUALITY_GOOD)
+                && (cpuLoad < 0 || cpuLoad < CPU_LOW)
+                && (stats == null || stats.frameRate >= stats.capturedFrameRate * FRAME_RATE_GOOD_RATIO);
+
+        long now = SystemClock.elapsedRealtime();
+        if (downReason != null) {
+            upEvaluations = 0;
+            if (++downEvaluations >= DOWN_EVALUATIONS) {
+                downEvaluations = 0;
+                if (step(1, downReason, stats, cpuLoad, thermalStatus, quality)) {
+                    lastDownMs = now;
+                }
+            }
+        } else if (healthy) {
+            downEvaluations = 0;
+            if (++upEvaluations >= UP_EVALUATIONS && now - lastDownMs >= UP_HOLD_MS) {
+                upEvaluations = 0;
+                step(-1, REASON_RECOVERED, stats, cpuLoad, thermalStatus, quality);
+            }
+        } else {
+            downEvaluations = 0;
+            upEvaluations = 0;
+        }
+    }
+
+    private boolean step(int direction, String reason, LocalVideoTrackStats stats,
+                         double cpuLoad, int thermalStatus, int quality) {
+        int previousLevel;
+        int nextLevel;
+        int levels;
+        VideoFormat format;
+        synchronized (this) {
+            nextLevel = level + direction;
+            levels = ladder.size();
+            if (capturer == null || nextLevel < 0 || nextLevel >= levels) {
+                return false;
+            }
+            previousLevel = level;
+            level = nextLevel;
+            format = ladder.get(level);
+            apply(format);
+        }
+        Log.d(TAG, "Video adaptation " + previousLevel + " -> " + nextLevel + " (" + reason + ")");
+
+        WritableMap event = new WritableNativeMap();
+        event.putString("direction", direction > 0 ? "down" : "up");
+        event.putString("reason", reason);
+        event.putInt("level", nextLevel);
+        event.putInt("previousLevel", previousLevel);
+        event.putInt("levels", levels);
+        event.putInt("width", format.dimensions.width);
+        event.putInt("height", format.dimensions.height);
+        event.putInt("frameRate", format.framerate);
+        event.putInt("networkQualityLevel", quality);
+        event.putDouble("cpuLoad", cpuLoad);
+        event.putInt("thermalStatus", thermalStatus);
+        if (stats != null) {
+            event.putInt("capturedFrameRate", stats.capturedFrameRate);
+            event.putInt("sentFrameRate", stats.frameRate);
+            if (stats.dimensions != null) {
+                event.putInt("sentWidth", stats.dimensions.width);
+                event.putInt("sentHeight", stats.dimensions.height);
+            }
+        }
+        listener.onVideoAdaptationChanged(event);
+        return true;
+    }
+
+    private void apply(VideoFormat format) {
+        capturer.changeCaptureFormat(format.dimensions.width, format.dimensions.height, format.framerate);
+    }
+
+    // Share of all cores used by this process since the previous sample, -1 on the first one
+    private double sampleCpuLoad() {
+        long now = SystemClock.elapsedRealtime();
+        long cpuTimeMs = Process.getElapsedCpuTime();
+        double load = -1;
+        if (lastCpuTimeMs >= 0 && now > lastCpuSampleMs) {
+            load = (cpuTimeMs - lastCpuTimeMs) / (double) ((now - lastCpuSampleMs) * cores);
+        }
+        lastCpuTimeMs = cpuTimeMs;
+        lastCpuSampleMs = now;
+        return load;
+    }
+
+    private int getThermalStatus() {
+        if (powerManager == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return PowerManager.THERMAL_STATUS_NONE;
+        }
+        return powerManager.getCurrentThermalStatus();
+    }
+
+    private static boolean sameFormat(VideoFormat a, VideoFormat b) {
+        return a.dimensions.width == b.dimensions.width
+                && a.dimensions.height == b.dimensions.height
+                && a.framerate == b.framerate;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Per-room state shared between a TwilioVideo view and the preview views that render its tracks.
+ */
+
+package com.twiliorn.library;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Sessions are keyed by the sessionId prop, which the TwilioVideo view and its previews share,
+ * so several rooms can run side by side in one process, e.g. a breakout room next to the main
+ * room. Views that do not set a sessionId all use the default session.
+ *
+ * The TwilioVideo view hosts the session: it owns the room and the local tracks, and is told
+ * when local and screen share previews come and go so it can attach them to its tracks. Remote
+ * previews bind to tracks through the session's track registry. A session is created by the
+ * first view that uses it and dropped when the last one releases it, in any order.
+ *
+ * Previews and hosts are registered from the UI thread, while the host reads the previews from
+ * its media executor, so the host and previews are guarded by the session. Host callbacks are
+ * made under that lock, in the order of the changes; they must only hand the work off.
+ */
+final class VideoSession {
+    private static final String TAG = "RNTwilioVideo";
+    static final String DEFAULT_ID = "default";
+
+    private static final Map<String, VideoSession> sessions = new HashMap<>();
+
+    interface Host {
+        void onThumbnailVideoViewChanged(@Nullable PatchedVideoView previous, @Nullable PatchedVideoView view);
+
+        void onScreenShareVideoViewChanged(@Nullable PatchedVideoView previous, @Nullable PatchedVideoView view);
+    }
+
+    final String id;
+    // Index of the remote participants and tracks of the room, used to attach views to tracks
+    final RemoteTrackRegistry trackRegistry = new RemoteTrackRegistry();
+    final JoinTimeline joinTimeline = new JoinTimeline();
+    private int references = 0;
+    private Host host;
+    private PatchedVideoView thumbnailVideoView;
+    private PatchedVideoView screenSharePreviewView;
+
+    private VideoSession(String id) {
+        this.id = id;
+    }
+
+    static String normalizeId(@Nullable String id) {
+        return id != null && !id.isEmpty() ? id : DEFAULT_ID;
+    }
+
+    static synchronized VideoSession acquire(@Nullable String id) {
+        String sessionId = normalizeId(id);
+        VideoSession session = sessions.get(sessionId);
+        if (session == null) {
+            session = new VideoSession(sessionId);
+            sessions.put(sessionId, session);
+        }
+        session.references++;
+        return session;
+    }
+
+    static synchronized void release(VideoSession session) {
+        if (--session.references <= 0 && sessions.get(session.id) == session) {
+            sessions.remove(session.id);
+        }
+    }
+
+    /*
+     * Make the view the host of the session, attaching the previews already registered.
+     */
+    synchronized void setHost(Host host) {
+        if (this.host == host) {
+            return;
+        }
+        if (this.host != null) {
+            Log.w(TAG, "Session " + id + " is already used by another TwilioVideo view, replacing it");
+            clearHost(this.host);
+        }
+        this.host = host;
+        host.onThumbnailVideoViewChanged(null, thumbnailVideoView);
+        host.onScreenShareVideoViewChanged(null, screenSharePreviewView);
+    }
+
+    synchronized void clearHost(Host host) {
+        if (this.host != host) {
+            return;
+        }
+        this.host = null;
+        host.onThumbnailVideoViewChanged(thumbnailVideoView, null);
+        host.onScreenShareVideoViewChanged(screenSharePreviewView, null);
+    }
+
+    @Nullable
+    synchronized PatchedVideoView getThumbnailVideoView() {
+        return thumbnailVideoView;
+    }
+
+    @Nullable
+    synchronized PatchedVideoView getScreenSharePreviewView() {
+        return screenSharePreviewView;
+    }
+
+    synchronized void registerThumbnailVideoView(PatchedVideoView view) {
+        PatchedVideoView previous = thumbnailVideoView;
+        thumbnailVideoView = view;
+        if (host != null && previous != view) {
+            host.onThumbnailVideoViewChanged(previous, view);
+        }
+    }
+
+    synchronized void unregisterThumbnailVideoView(PatchedVideoView view) {
+        if (thumbnailVideoView != view) {
+            return;
+        }
+        thumbnailVideoView = null;
+        if (host != null) {
+            host.onThumbnailVideoViewChanged(view, null);
+        }
+    }
+
+    synchronized void registerScreenShareVideoView(PatchedVideoView view) {
+        PatchedVideoView previous = screenSharePreviewView;
+        screenSharePreviewView = view;
+        if (host != null && previous != view) {
+            host.onScreenShareVideoViewChanged(previous, view);
+        }
+    }
+
+    synchronized void unregisterScreenShareVideoView(PatchedVideoView view) {
+        if (screenSharePreviewView != view) {
+            return;
+        }
+        screenSharePreviewView = null;
+        if (host != null) {
+            host.onScreenShareVideoViewChanged(view, null);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.twiliorn.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import tvi.webrtc.CameraEnumerationAndroid.CaptureFormat;
+
+/*
+ * Format tables as reported by the camera enumerators, {width, height, max frame rate}, in the
+ * order the devices list them. The target is the one CustomTwilioVideoView encodes, 720p at 30.
+ */
+public class CaptureFormatSelectorTest {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int FRAME_RATE = 30;
+
+    // Camera2 back camera of a current phone, up to 12MP sensor output
+    private static final int[][] PHONE_BACK_CAMERA2 = {
+            {4032, 3024, 30}, {3840, 2160, 30}, {1920, 1440, 30}, {1920, 1080, 60},
+            {1440, 1080, 30}, {1280, 960, 30}, {1280, 720, 60}, {1024, 768, 30},
+            {800, 600, 30}, {720, 480, 30}, {640, 480, 30}, {352, 288, 30},
+            {320, 240, 30}, {176, 144, 30},
+    };
+    // Camera1 front camera of a low-end phone that cannot capture 720p
+    private static final int[][] LOW_END_CAMERA1 = {
+            {640, 480, 30}, {352, 288, 30}, {320, 240, 30}, {176, 144, 30},
+    };
+    // Front camera that only lists 4:3 sizes
+    private static final int[][] FOUR_BY_THREE_FRONT = {
+            {2592, 1944, 30}, {1920, 1440, 30}, {1280, 960, 30}, {640, 480, 30},
+    };
+    // Camera1 back camera that only reaches 30fps from 1080p, 720p is limited to 15
+    private static final int[][] SLOW_720P_CAMERA1 = {
+            {1920, 1080, 30}, {1280, 720, 15}, {640, 480, 30},
+    };
+    // External USB camera with a 1366x768 mode
+    private static final int[][] USB_WEBCAM = {
+            {1920, 1080, 30}, {1366, 768, 30}, {640, 360, 30},
+    };
+    // Tablet camera capped at 24fps
+    private static final int[][] CAPPED_24FPS = {
+            {1920, 1080, 24}, {1280, 720, 24}, {640, 480, 24},
+    };
+
+    @Test
+    public void picksTheTargetWhenItIsNative() {
+        assertSelected("1280x720@30", PHONE_BACK_CAMERA2, false);
+        assertSelected("1280x720@30", PHONE_BACK_CAMERA2, true);
+    }
+
+    @Test
+    public void ignoresTheOrderTheFormatsAreListedIn() {
+        List<CaptureFormat> formats = formats(PHONE_BACK_CAMERA2);
+        Collections.reverse(formats);
+
+        assertEquals("1280x720@30",
+                String.valueOf(CaptureFormatSelector.select(formats, WIDTH, HEIGHT, FRAME_RATE, false)));
+    }
+
+    @Test
+    public void coversAPortraitTarget() {
+        assertEquals("1280x720@30", String.valueOf(CaptureFormatSelector.select(
+                formats(PHONE_BACK_CAMERA2), HEIGHT, WIDTH, FRAME_RATE, false)));
+    }
+
+    @Test
+    public void fallsBackToTheLargestFormatWhenNoneCovers() {
+        assertSelected("640x480@30", LOW_END_CAMERA1, false);
+    }
+
+    @Test
+    public void takesTheCheapestOtherAspectRatioWhenNoneMatches() {
+        assertSelected("1280x960@30", FOUR_BY_THREE_FRONT, false);
+    }
+
+    @Test
+    public void skipsFormatsTooSlowForTheTargetFrameRate() {
+        assertSelected("1920x1080@30", SLOW_720P_CAMERA1, false);
+    }
+
+    @Test
+    public void prefersSidesDivisibleByFourForSimulcast() {
+        assertSelected("1366x768@30", USB_WEBCAM, false);
+        assertSelected("1920x1080@30", USB_WEBCAM, true);
+    }
+
+    @Test
+    public void capsTheFrameRateAtTheCameraMaximum() {
+        assertSelected("1920x1080@24", CAPPED_24FPS, false);
+    }
+
+    @Test
+    public void selectsNothingWithoutFormats() {
+        assertNull(CaptureFormatSelector.select(null, WIDTH, HEIGHT, FRAME_RATE, false));
+        assertNull(CaptureFormatSelector.select(
+                new ArrayList<CaptureFormat>(), WIDTH, HEIGHT, FRAME_RATE, false));
+    }
+
+    private static void assertSelected(String expected, int[][] table, boolean simulcast) {
+        CaptureFormatSelector.Selection selection =
+                CaptureFormatSelector.select(formats(table), WIDTH, HEIGHT, FRAME_RATE, simulcast);
+        assertEquals(expected, String.valueOf(selection));
+    }
+
+    private static List<CaptureFormat> formats(int[][] table) {
+        List<CaptureFormat> formats = new ArrayList<>();
+        for (int[] row : table) {
+            // Frame rates in frames per 1000 seconds, as the enumerators report them
+            formats.add(new CaptureFormat(row[0], row[1], row[2] * 1000, row[2] * 1000));
+        }
+        return formats;
+    }
+}
@@ -0,0 +1,137 @@
+package com.twiliorn.library;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/*
+ * Messages/sec and per-message overhead of framing against the unbatched path, which hands
+ * every message to the track as a data track message of its own and delivers every received
+ * one as its own event. The timings only cover our side: each data track message also costs a
+ * native send and an SCTP message, and each received one a bridge event, so the number of those
+ * per message is reported alongside.
+ */
+public class DataTrackFramerBenchmark {
+    // A cursor update, sent many times per frame
+    private static final String MESSAGE = "{\"x\":0.4821,\"y\":0.1377,\"t\":1700000000000}";
+    private static final byte[] BINARY_PAYLOAD = new byte[24];
+    // A 50ms window at a few hundred messages per second
+    private static final int MESSAGES_PER_WINDOW = 16;
+
+    private final String binaryBase64 = Base64.getEncoder().encodeToString(BINARY_PAYLOAD);
+    private long dataTrackMessages;
+    private long wireBytes;
+    private long messages;
+    // Keeps the results reachable so the loops are not optimized away
+    private int sink;
+
+    private final DataTrackFramer framer = new DataTrackFramer(new DataTrackFramer.Sink() {
+        @Override
+        public void sendEnvelope(ByteBuffer envelope) {
+            dataTrackMessages++;
+            wireBytes += envelope.remaining();
+        }
+    });
+
+    @Test
+    public void sendStrings() {
+        final int payloadBytes = MESSAGE.getBytes(StandardCharsets.UTF_8).length;
+        reset();
+        Microbenchmark.Result unbatched = Microbenchmark.measure("send string: one message each", () -> {
+            ByteBuffer message = ByteBuffer.wrap(MESSAGE.getBytes(StandardCharsets.UTF_8));
+            dataTrackMessages++;
+            wireBytes += message.remaining();
+            messages++;
+        });
+        report(unbatched, payloadBytes);
+
+        reset();
+        Microbenchmark.Result framed = Microbenchmark.measure("send string: framed", () -> {
+            framer.appendString(MESSAGE);
+            if (++messages % MESSAGES_PER_WINDOW == 0) {
+                framer.flush();
+            }
+        });
+        framer.flush();
+        report(framed, payloadBytes);
+    }
+
+    @Test
+    public void sendBinary() {
+        reset();
+        Microbenchmark.Result unbatched = Microbenchmark.measure("send binary: one message each", () -> {
+            ByteBuffer message = ByteBuffer.wrap(Base64.getDecoder().decode(binaryBase64));
+            dataTrackMessages++;
+            wireBytes += message.remaining();
+            messages++;
+        });
+        report(unbatched, BINARY_PAYLOAD.length);
+
+        reset();
+        Microbenchmark.Result framed = Microbenchmark.measure("send binary: framed", () -> {
+            framer.appendBinary(binaryBase64, BINARY_PAYLOAD.length);
+            if (++messages % MESSAGES_PER_WINDOW == 0) {
+                framer.flush();
+            }
+        });
+        framer.flush();
+        report(framed, BINARY_PAYLOAD.length);
+    }
+
+    @Test
+    public void receiveStrings() {
+        final ByteBuffer single = ByteBuffer.wrap(MESSAGE.getBytes(StandardCharsets.UTF_8));
+        Microbenchmark.Result unbatched = Microbenchmark.measure("receive string: one message each", () -> {
+            byte[] bytes = new byte[single.remaining()];
+            single.duplicate().get(bytes);
+            sink += new String(bytes, StandardCharsets.UTF_8).length();
+        });
+
+        final ByteBuffer[] envelope = new ByteBuffer[1];
+        DataTrackFramer packer = new DataTrackFramer(new DataTrackFramer.Sink() {
+            @Override
+            public void sendEnvelope(ByteBuffer sent) {
+                envelope[0] = sent;
+            }
+        });
+        for (int i = 0; i < MESSAGES_PER_WINDOW; i++) {
+            packer.appendString(MESSAGE);
+        }
+        packer.flush();
+        final DataTrackFramer.Receiver receiver = new DataTrackFramer.Receiver() {
+            @Override
+            public void onStringMessage(String message) {
+                sink += message.length();
+            }
+
+            @Override
+            public void onBinaryMessage(ByteBuffer payload) {
+                sink += payload.remaining();
+            }
+        };
+        Microbenchmark.Result framed = Microbenchmark.measure("receive string: unpack an envelope", () -> {
+            sink += DataTrackFramer.unpack(envelope[0], receiver);
+        });
+
+        System.out.printf(Locale.US, "%.0f -> %.0f messages/s, 1 -> %.3f events per message%n",
+                unbatched.opsPerSecond(), framed.opsPerSecond() * MESSAGES_PER_WINDOW,
+                1.0 / MESSAGES_PER_WINDOW);
+        assertEquals(MESSAGES_PER_WINDOW, DataTrackFramer.unpack(envelope[0], receiver));
+    }
+
+    private void reset() {
+        dataTrackMessages = 0;
+        wireBytes = 0;
+        messages = 0;
+    }
+
+    private void report(Microbenchmark.Result result, int payloadBytes) {
+        System.out.printf(Locale.US, "  %.4f data track messages and %.2f bytes of framing per message%n",
+                (double) dataTrackMessages / messages, (double) wireBytes / messages - payloadBytes);
+    }
+}
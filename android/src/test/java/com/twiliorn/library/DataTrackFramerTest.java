@@ -0,0 +1,109 @@
+package com.twiliorn.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+public class DataTrackFramerTest {
+    private final List<ByteBuffer> envelopes = new ArrayList<>();
+    private final DataTrackFramer framer = new DataTrackFramer(new DataTrackFramer.Sink() {
+        @Override
+        public void sendEnvelope(ByteBuffer envelope) {
+            envelopes.add(envelope);
+        }
+    });
+
+    @Test
+    public void roundTripsMessagesInOrder() {
+        byte[] binary = {0, 1, (byte) 0xC1, (byte) 0xff};
+        char[] longMessage = new char[300];
+        Arrays.fill(longMessage, 'x');
+
+        assertTrue(framer.appendString("hello"));
+        assertTrue(framer.appendBinary(Base64.getEncoder().encodeToString(binary), binary.length));
+        assertTrue(framer.appendString("héllo ✓"));
+        assertTrue(framer.appendString(new String(longMessage)));
+        framer.flush();
+
+        assertEquals(1, envelopes.size());
+        List<String> received = new ArrayList<>();
+        assertEquals(4, DataTrackFramer.unpack(envelopes.get(0), collector(received)));
+        assertEquals(Arrays.asList("hello", "binary:AAHB/w==", "héllo ✓", new String(longMessage)),
+                received);
+    }
+
+    @Test
+    public void flushesNothingWithoutMessages() {
+        framer.flush();
+
+        assertTrue(envelopes.isEmpty());
+    }
+
+    @Test
+    public void sendsThePendingEnvelopeWhenTheNextMessageDoesNotFit() {
+        char[] message = new char[10000];
+        Arrays.fill(message, 'x');
+
+        assertTrue(framer.appendString(new String(message)));
+        assertTrue(framer.appendString(new String(message)));
+        assertEquals(1, envelopes.size());
+        framer.flush();
+
+        assertEquals(2, envelopes.size());
+        for (ByteBuffer envelope : envelopes) {
+            assertTrue(envelope.remaining() <= DataTrackFramer.MAX_ENVELOPE_BYTES);
+            assertEquals(1, DataTrackFramer.unpack(envelope, collector(new ArrayList<String>())));
+        }
+    }
+
+    @Test
+    public void rejectsMessagesLargerThanAnEnvelope() {
+        char[] message = new char[DataTrackFramer.MAX_ENVELOPE_BYTES];
+        Arrays.fill(message, 'x');
+
+        assertFalse(framer.appendString(new String(message)));
+        framer.flush();
+        assertTrue(envelopes.isEmpty());
+    }
+
+    @Test
+    public void leavesUnframedMessagesAlone() {
+        List<String> received = new ArrayList<>();
+        ByteBuffer text = ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8));
+        assertEquals(-1, DataTrackFramer.unpack(text, collector(received)));
+
+        framer.appendString("hello");
+        framer.flush();
+        ByteBuffer truncated = envelopes.get(0);
+        truncated.limit(truncated.limit() - 1);
+        assertEquals(-1, DataTrackFramer.unpack(truncated, collector(received)));
+
+        assertTrue(received.isEmpty());
+        assertEquals(0, truncated.position());
+    }
+
+    private static DataTrackFramer.Receiver collector(final List<String> received) {
+        return new DataTrackFramer.Receiver() {
+            @Override
+            public void onStringMessage(String message) {
+                received.add(message);
+            }
+
+            @Override
+            public void onBinaryMessage(ByteBuffer payload) {
+                byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                received.add("binary:" + Base64.getEncoder().encodeToString(bytes));
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package com.twiliorn.library;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Random;
+
+/*
+ * Bytes/sec and allocations of the codec against the path it replaced: decoding into a fresh
+ * array and wrapping it on send, and copying the received buffer into a new array before
+ * encoding it on receive. java.util.Base64 stands in for android.util.Base64.
+ */
+public class DataTrackPayloadCodecBenchmark {
+    // A cursor or telemetry update
+    private static final int PAYLOAD_BYTES = 256;
+
+    private final byte[] payload = new byte[PAYLOAD_BYTES];
+    private final String encoded;
+    private final ByteBuffer received;
+    // Keeps the results reachable so the loops are not optimized away
+    private int sink;
+
+    public DataTrackPayloadCodecBenchmark() {
+        new Random(1).nextBytes(payload);
+        encoded = Base64.getEncoder().encodeToString(payload);
+        received = ByteBuffer.wrap(payload);
+    }
+
+    @Test
+    public void send() {
+        Microbenchmark.Result previous = Microbenchmark.measure("send: decode, copy and wrap", () -> {
+            byte[] bytes = Base64.getDecoder().decode(encoded);
+            sink += ByteBuffer.wrap(bytes.clone()).remaining();
+        });
+        Microbenchmark.Result codec = Microbenchmark.measure("send: DataTrackPayloadCodec.decode", () -> {
+            sink += DataTrackPayloadCodec.decode(encoded).remaining();
+        });
+        report(previous, codec);
+    }
+
+    @Test
+    public void receive() {
+        Microbenchmark.Result previous = Microbenchmark.measure("receive: copy and encode", () -> {
+            byte[] bytes = new byte[received.remaining()];
+            received.duplicate().get(bytes);
+            sink += Base64.getEncoder().encodeToString(bytes).length();
+        });
+        final DataTrackPayloadCodec codec = new DataTrackPayloadCodec();
+        Microbenchmark.Result current = Microbenchmark.measure("receive: DataTrackPayloadCodec.encode", () -> {
+            sink += codec.encode(received).length();
+        });
+        report(previous, current);
+        assertEquals(encoded, codec.encode(received));
+    }
+
+    private static void report(Microbenchmark.Result previous, Microbenchmark.Result current) {
+        System.out.printf("%.0f -> %.0f MB/s payload%n",
+                previous.opsPerSecond() * PAYLOAD_BYTES / 1e6, current.opsPerSecond() * PAYLOAD_BYTES / 1e6);
+    }
+}
@@ -0,0 +1,85 @@
+package com.twiliorn.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+public class DataTrackPayloadCodecTest {
+    @Test
+    public void roundTripsEveryTailLength() {
+        DataTrackPayloadCodec codec = new DataTrackPayloadCodec();
+        Random random = new Random(1);
+        for (int length = 0; length < 64; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String encoded = codec.encode(ByteBuffer.wrap(bytes));
+
+            assertEquals(Base64.getEncoder().encodeToString(bytes), encoded);
+            assertEquals(length, DataTrackPayloadCodec.decodedLength(encoded));
+            assertArrayEquals(bytes, DataTrackPayloadCodec.decode(encoded).array());
+        }
+    }
+
+    @Test
+    public void encodesTheRemainingBytesOnly() {
+        ByteBuffer buffer = ByteBuffer.wrap("xxABCxx".getBytes(StandardCharsets.US_ASCII));
+        buffer.position(2);
+        buffer.limit(5);
+
+        assertEquals("QUJD", new DataTrackPayloadCodec().encode(buffer));
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void encodesDirectBuffers() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4);
+        buffer.put(new byte[]{1, 2, 3, 4}).flip();
+
+        assertEquals("AQIDBA==", new DataTrackPayloadCodec().encode(buffer));
+    }
+
+    @Test
+    public void acceptsMissingPaddingWhitespaceAndUrlSafeAlphabet() {
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, DataTrackPayloadCodec.decode("AQIDBA").array());
+        assertArrayEquals("ABCD".getBytes(StandardCharsets.US_ASCII),
+                DataTrackPayloadCodec.decode("QUJD\nRA==").array());
+        assertArrayEquals(new byte[]{(byte) 0xfb, (byte) 0xff}, DataTrackPayloadCodec.decode("-_8=").array());
+    }
+
+    @Test
+    public void rejectsPaddingBeforeTheEnd() {
+        assertEquals(-1, DataTrackPayloadCodec.decodedLength("QU=JD"));
+        assertEquals(-1, DataTrackPayloadCodec.decodedLength("QQ==QUJD"));
+        assertNull(DataTrackPayloadCodec.decode("QU=JD"));
+    }
+
+    @Test
+    public void rejectsPaddingThatDoesNotCompleteAQuantum() {
+        assertEquals(-1, DataTrackPayloadCodec.decodedLength("QUJD="));
+        assertEquals(-1, DataTrackPayloadCodec.decodedLength("QQ="));
+        assertEquals(-1, DataTrackPayloadCodec.decodedLength("QQ==="));
+        assertEquals(-1, DataTrackPayloadCodec.decodedLength("="));
+    }
+
+    @Test
+    public void rejectsInvalidSymbolsAndLengths() {
+        assertEquals(-1, DataTrackPayloadCodec.decodedLength("QUJ*"));
+        assertEquals(-1, DataTrackPayloadCodec.decodedLength("QUJDR"));
+        assertEquals(-1, DataTrackPayloadCodec.decodedLength("QUJé"));
+    }
+
+    @Test
+    public void decodesIntoAnOffset() {
+        byte[] bytes = new byte[5];
+        DataTrackPayloadCodec.decodeInto("QUJD", bytes, 2);
+
+        assertArrayEquals(new byte[]{0, 0, 'A', 'B', 'C'}, bytes);
+    }
+}
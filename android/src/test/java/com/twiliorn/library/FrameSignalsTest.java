@@ -0,0 +1,267 @@
+package com.twiliorn.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Drives FrameSignals.onFrame, the decision PatchedVideoView.onFrame delegates to, with a UI
+ * thread and a clock that the test advances by hand. The concurrency tests deliver frames from
+ * several threads at once, as two tracks do while a view is rebound.
+ */
+public class FrameSignalsTest {
+    private static final int FRAME_THREADS = 4;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final ManualUiThread uiThread = new ManualUiThread();
+    private final ExecutorService frameThreads = Executors.newFixedThreadPool(FRAME_THREADS);
+    private final List<String> signalled = Collections.synchronizedList(new ArrayList<String>());
+
+    private final FrameSignals signals = new FrameSignals(uiThread, uiThread, new FrameSignals.Callbacks() {
+        @Override
+        public void onFirstFrame() {
+            signalled.add("first");
+        }
+
+        @Override
+        public void onFreezeStarted() {
+            signalled.add("frozen");
+        }
+
+        @Override
+        public void onFreezeEnded(long durationMs) {
+            signalled.add("resumed " + durationMs + "ms");
+        }
+    });
+
+    @After
+    public void tearDown() {
+        frameThreads.shutdownNow();
+    }
+
+    @Test
+    public void signalsEachArmedFirstFrameOnce() throws Exception {
+        final int rounds = 500;
+        final CyclicBarrier armed = new CyclicBarrier(FRAME_THREADS + 1);
+        final CyclicBarrier delivered = new CyclicBarrier(FRAME_THREADS + 1);
+        List<Future<?>> senders = deliver(new Sender() {
+            @Override
+            public void run() throws Exception {
+                for (int round = 0; round < rounds; round++) {
+                    armed.await();
+                    for (int i = 0; i < 10; i++) {
+                        signals.onFrame(uiThread.nanoTime(), 0);
+                    }
+                    delivered.await();
+                }
+            }
+        });
+
+        for (int round = 0; round < rounds; round++) {
+            signals.armFirstFrame();
+            armed.await();
+            delivered.await();
+            uiThread.runPending();
+            assertEquals(round + 1, signalled.size());
+        }
+        join(senders);
+    }
+
+    @Test
+    public void rendersAFrameDeliveredByEveryThreadOnce() throws Exception {
+        final int rounds = 2000;
+        final AtomicLong rendered = new AtomicLong();
+        signals.setMaxFrameRate(30);
+        final CyclicBarrier barrier = new CyclicBarrier(FRAME_THREADS);
+        join(deliver(new Sender() {
+            @Override
+            public void run() throws Exception {
+                for (int round = 0; round < rounds; round++) {
+                    barrier.await();
+                    // One frame interval apart, so each one is due
+                    if (signals.onFrame(uiThread.nanoTime(), round * 34 * NANOS_PER_MILLI) == FrameSignals.RENDER) {
+                        rendered.incrementAndGet();
+                    }
+                }
+            }
+        }));
+
+        assertEquals(rounds, rendered.get());
+    }
+
+    @Test
+    public void capsTheFrameRateWithJitter() {
+        signals.setMaxFrameRate(15);
+
+        assertEquals(FrameSignals.RENDER, frameAt(0));
+        assertEquals(FrameSignals.DROP_FRAME_RATE, frameAt(33));
+        // Within a tenth of the 66ms interval
+        assertEquals(FrameSignals.RENDER, frameAt(61));
+        // A timestamp going back, e.g. a new track, starts over
+        assertEquals(FrameSignals.RENDER, frameAt(10));
+    }
+
+    @Test
+    public void reportsFreezesInOrder() {
+        signals.setFreezeThresholdMs(200);
+        for (int cycle = 0; cycle < 3; cycle++) {
+            for (int i = 0; i < 10; i++) {
+                frame();
+                uiThread.advanceMs(33);
+            }
+            assertFalse(signals.isFrozen());
+            uiThread.advanceMs(500);
+            assertTrue(signals.isFrozen());
+        }
+        frame();
+        uiThread.runPending();
+
+        // Each freeze lasts from the last frame before it to the first one after
+        assertEquals(Arrays.asList(
+                "frozen", "resumed 533ms",
+                "frozen", "resumed 533ms",
+                "frozen", "resumed 533ms"), signalled);
+        assertEquals(3, signals.getFreezeCount());
+        assertEquals(3 * 533, signals.getTotalFreezeDurationMs());
+        assertFalse(signals.isFrozen());
+    }
+
+    @Test
+    public void doesNotReportAFreezeWithinTheThreshold() {
+        signals.setFreezeThresholdMs(200);
+        frame();
+        uiThread.advanceMs(200);
+        frame();
+        uiThread.advanceMs(200);
+
+        assertTrue(signalled.isEmpty());
+    }
+
+    @Test
+    public void pausingEndsTheFreezeAndStopsWatching() {
+        signals.setFreezeThresholdMs(100);
+        frame();
+        uiThread.advanceMs(300);
+
+        signals.setRenderingPaused(true);
+        assertEquals(FrameSignals.SKIP_PAUSED, frame());
+        uiThread.advanceMs(1000);
+
+        assertEquals(Arrays.asList("frozen", "resumed 300ms"), signalled);
+        assertFalse(signals.isFrozen());
+    }
+
+    @Test
+    public void doesNotExpectFramesFromADisabledTrack() {
+        signals.setFreezeThresholdMs(100);
+        signals.setTrackEnabled(false);
+        frame();
+        uiThread.advanceMs(1000);
+
+        assertTrue(signalled.isEmpty());
+    }
+
+    private int frame() {
+        return signals.onFrame(uiThread.nanoTime(), 0);
+    }
+
+    private int frameAt(long timestampMs) {
+        return signals.onFrame(uiThread.nanoTime(), timestampMs * NANOS_PER_MILLI);
+    }
+
+    private interface Sender {
+        void run() throws Exception;
+    }
+
+    private List<Future<?>> deliver(final Sender sender) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < FRAME_THREADS; i++) {
+            futures.add(frameThreads.submit(() -> {
+                sender.run();
+                return null;
+            }));
+        }
+        return futures;
+    }
+
+    private static void join(List<Future<?>> futures) throws Exception {
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /*
+     * Runnables are queued from any thread and only run, in order of due time, when the test
+     * advances the clock.
+     */
+    private static final class ManualUiThread implements FrameSignals.UiThread, FrameSignals.Clock {
+        private static final class Task {
+            final long dueNs;
+            final long sequence;
+            final Runnable runnable;
+
+            Task(long dueNs, long sequence, Runnable runnable) {
+                this.dueNs = dueNs;
+                this.sequence = sequence;
+                this.runnable = runnable;
+            }
+        }
+
+        private final PriorityQueue<Task> tasks = new PriorityQueue<>(16, (a, b) -> a.dueNs != b.dueNs
+                ? Long.compare(a.dueNs, b.dueNs)
+                : Long.compare(a.sequence, b.sequence));
+        private long sequence = 0;
+        private volatile long nowNs = 1000 * NANOS_PER_MILLI;
+
+        @Override
+        public long nanoTime() {
+            return nowNs;
+        }
+
+        @Override
+        public void post(Runnable runnable) {
+            postDelayed(runnable, 0);
+        }
+
+        @Override
+        public synchronized void postDelayed(Runnable runnable, long delayMs) {
+            tasks.add(new Task(nowNs + delayMs * NANOS_PER_MILLI, sequence++, runnable));
+        }
+
+        void runPending() {
+            advanceMs(0);
+        }
+
+        void advanceMs(long ms) {
+            long targetNs = nowNs + ms * NANOS_PER_MILLI;
+            while (true) {
+                Task task;
+                synchronized (this) {
+                    task = tasks.peek();
+                    if (task == null || task.dueNs > targetNs) {
+                        break;
+                    }
+                    tasks.poll();
+                    nowNs = Math.max(nowNs, task.dueNs);
+                }
+                task.runnable.run();
+            }
+            nowNs = targetNs;
+        }
+    }
+}
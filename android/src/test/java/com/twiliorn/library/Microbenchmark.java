@@ -0,0 +1,81 @@
+package com.twiliorn.library;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/*
+ * Minimal timing loop for the benchmarks under test: runs the operation untimed to warm up,
+ * then in a few timed rounds, and reports the fastest round's time and, where the JVM can
+ * measure it, the heap allocated per operation.
+ * The numbers are for comparing two paths on the same machine, not absolute device figures.
+ * The *Benchmark classes built on it are left out of the regular test run and only run with
+ * ./gradlew test -Pbenchmarks.
+ */
+final class Microbenchmark {
+    static final class Result {
+        final String name;
+        final double nsPerOp;
+        // -1 if the JVM does not count allocations per thread
+        final double bytesAllocatedPerOp;
+
+        Result(String name, double nsPerOp, double bytesAllocatedPerOp) {
+            this.name = name;
+            this.nsPerOp = nsPerOp;
+            this.bytesAllocatedPerOp = bytesAllocatedPerOp;
+        }
+
+        double opsPerSecond() {
+            return 1e9 / nsPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-40s %12.1f ns/op %14.0f ops/s %10.1f B/op",
+                    name, nsPerOp, opsPerSecond(), bytesAllocatedPerOp);
+        }
+    }
+
+    interface Operation {
+        void run();
+    }
+
+    private static final int WARMUP_ITERATIONS = 100000;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 50000;
+
+    private Microbenchmark() {
+    }
+
+    static Result measure(String name, Operation operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long bestNs = Long.MAX_VALUE;
+        long allocated = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocatedBefore = allocatedBytes();
+            long startNs = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                operation.run();
+            }
+            bestNs = Math.min(bestNs, System.nanoTime() - startNs);
+            allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+        }
+        Result result = new Result(name, (double) bestNs / ITERATIONS,
+                allocated < 0 ? -1 : (double) allocated / ITERATIONS);
+        System.out.println(result);
+        return result;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
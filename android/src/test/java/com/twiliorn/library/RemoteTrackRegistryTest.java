@@ -0,0 +1,97 @@
+package com.twiliorn.library;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.twilio.video.RemoteVideoTrack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tvi.webrtc.VideoFrame;
+import tvi.webrtc.VideoSink;
+
+public class RemoteTrackRegistryTest {
+    private final RemoteTrackRegistry registry = new RemoteTrackRegistry();
+    private final VideoSink sink = new VideoSink() {
+        @Override
+        public void onFrame(VideoFrame frame) {
+        }
+    };
+    private RemoteVideoTrack trackA;
+    private RemoteVideoTrack trackB;
+
+    @Before
+    public void setUp() {
+        trackA = mockTrack();
+        trackB = mockTrack();
+        registry.addVideoTrack("A", trackA);
+        registry.addVideoTrack("B", trackB);
+    }
+
+    @Test
+    public void bindingAttachesAnActiveSink() {
+        registry.bindSink(sink, "A");
+
+        verify(trackA).addSink(sink);
+    }
+
+    @Test
+    public void hiddenThenReboundStaysDetached() {
+        registry.bindSink(sink, "A");
+        registry.setSinkActive(sink, false);
+        verify(trackA).removeSink(sink);
+
+        registry.bindSink(sink, "B");
+        verify(trackB, never()).addSink(sink);
+
+        registry.setSinkActive(sink, true);
+        verify(trackB).addSink(sink);
+    }
+
+    @Test
+    public void hiddenBeforeBindingBindsDetached() {
+        registry.setSinkActive(sink, false);
+        registry.bindSink(sink, "A");
+
+        verify(trackA, never()).addSink(sink);
+    }
+
+    @Test
+    public void hiddenWhileUnboundStaysDetached() {
+        registry.bindSink(sink, "A");
+        registry.bindSink(sink, null);
+        registry.setSinkActive(sink, false);
+        registry.bindSink(sink, "B");
+
+        verify(trackB, never()).addSink(sink);
+    }
+
+    @Test
+    public void hiddenReboundSinkDoesNotCountAsRendered() {
+        registry.setBandwidthHintsEnabled(true);
+        registry.bindSink(sink, "A");
+        registry.setSinkActive(sink, false);
+
+        registry.bindSink(sink, "B");
+        verify(trackB, never()).switchOn();
+        verify(trackB).switchOff();
+    }
+
+    @Test
+    public void releasingForgetsTheSink() {
+        registry.setSinkActive(sink, false);
+        registry.releaseSink(sink);
+        registry.bindSink(sink, "A");
+
+        verify(trackA).addSink(sink);
+    }
+
+    private static RemoteVideoTrack mockTrack() {
+        RemoteVideoTrack track = mock(RemoteVideoTrack.class);
+        when(track.isEnabled()).thenReturn(true);
+        return track;
+    }
+}
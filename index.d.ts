@@ -32,6 +32,52 @@ declare module "@twilio/video-react-native-sdk" {
         rotation: number;
     }
 
+    interface RenderStatsData {
+        /** Whether the view is currently rendering */
+        visible: boolean;
+        /** Frames delivered to the view */
+        framesReceived: number;
+        /** Frames drawn by the view */
+        framesRendered: number;
+        /** Frames dropped while the view was off screen */
+        framesSkippedWhileHidden: number;
+        /** Frames dropped by maxFrameRate */
+        framesDroppedByFrameRate: number;
+        /** Frames scaled down before rendering */
+        framesDownscaled: number;
+        /** Frames rendered per second since the previous stats */
+        renderFrameRate: number;
+        /** Upper bounds of the interval histogram buckets, the last bucket is open ended */
+        frameIntervalBucketsMs: number[];
+        /** Intervals between rendered frames per bucket */
+        frameIntervalHistogram: number[];
+        /** Longest interval between rendered frames */
+        maxFrameIntervalMs: number;
+        /** Intervals more than twice the running average */
+        jankIntervals: number;
+        /** Average time from a frame's timestamp to the view */
+        averageFrameLatencyMs?: number;
+        /** Longest time from a frame's timestamp to the view */
+        maxFrameLatencyMs?: number;
+        /** Whether the video is currently frozen */
+        frozen: boolean;
+        /** Freezes detected so far */
+        freezeCount: number;
+        /** Total duration of the freezes so far */
+        totalFreezeDurationMs: number;
+    }
+
+    interface RenderFreezeData {
+        /** true when the freeze starts, false when frames resume */
+        frozen: boolean;
+        /** Duration of the freeze that ended */
+        durationMs?: number;
+        /** Freezes detected so far */
+        freezeCount: number;
+        /** Total duration of the freezes so far */
+        totalFreezeDurationMs: number;
+    }
+
     interface TwilioVideoParticipantViewProps extends ViewProps {
         trackIdentifier: TrackIdentifier;
         ref?: React.Ref<any>;
@@ -45,6 +91,21 @@ declare module "@twilio/video-react-native-sdk" {
          * Callback when video frame dimensions change.
          */
         onFrameDimensionsChanged?: (data: FrameDimensionsData) => void;
+        // Android only
+        /** How long in milliseconds the view must stay off screen before it is detached from its track. Defaults to 500. */
+        visibilityHysteresisMs?: number;
+        onRenderStats?: (data: RenderStatsData) => void;
+        /** Maximum rate in frames per second the view renders at. 0 (default) renders every frame. */
+        maxFrameRate?: number;
+        /** Maximum rendered resolution relative to the view's size, e.g. 1 renders at roughly the view's size. 0 (default) renders at full resolution. */
+        renderResolutionScale?: number;
+        /** Interval in milliseconds at which onRenderStats is called. 0 (default) only calls it in response to getRenderStats(). */
+        renderStatsIntervalMs?: number;
+        /** Report a freeze once no frame has arrived for this many milliseconds. 0 (default) disables freeze detection. */
+        freezeThresholdMs?: number;
+        onRenderFreeze?: (data: RenderFreezeData) => void;
+        /** sessionId of the TwilioVideo view the track belongs to. Defaults to the default session. */
+        sessionId?: string;
     }
 
     interface TwilioVideoLocalViewProps extends ViewProps {
@@ -56,6 +117,21 @@ declare module "@twilio/video-react-native-sdk" {
  * this view to appear above other Twilio Video views.
  */
         applyZOrder?: boolean|undefined;
+        // Android only
+        /** How long in milliseconds the view must stay off screen before it is reported as hidden. Defaults to 500. */
+        visibilityHysteresisMs?: number;
+        onRenderStats?: (data: RenderStatsData) => void;
+        /** Maximum rate in frames per second the view renders at. 0 (default) renders every frame. */
+        maxFrameRate?: number;
+        /** Maximum rendered resolution relative to the view's size, e.g. 1 renders at roughly the view's size. 0 (default) renders at full resolution. */
+        renderResolutionScale?: number;
+        /** Interval in milliseconds at which onRenderStats is called. 0 (default) only calls it in response to getRenderStats(). */
+        renderStatsIntervalMs?: number;
+        /** Report a freeze once no frame has arrived for this many milliseconds. 0 (default) disables freeze detection. */
+        freezeThresholdMs?: number;
+        onRenderFreeze?: (data: RenderFreezeData) => void;
+        /** sessionId of the TwilioVideo view the track belongs to. Defaults to the default session. */
+        sessionId?: string;
     }
 
     interface TwilioVideoScreenShareViewProps extends ViewProps {
@@ -67,6 +143,9 @@ declare module "@twilio/video-react-native-sdk" {
  * this view to appear above other Twilio Video views.
  */
         applyZOrder?: boolean|undefined;
+        // Android only
+        /** sessionId of the TwilioVideo view the track belongs to. Defaults to the default session. */
+        sessionId?: string;
     }
 
     export interface Participant {
@@ -99,6 +178,10 @@ declare module "@twilio/video-react-native-sdk" {
 
     export interface DataTrackEventCbArgs {
         trackSid: string;
+        /** Name the sender gave the data track, 'data' for the default one (Android) */
+        trackName?: string;
+        /** Topic of dataTrackMessageFilter the message matched (Android) */
+        topic?: string;
         message?: string;
         payloadBase64?: string;
         isBinary?: boolean;
@@ -106,6 +189,108 @@ declare module "@twilio/video-react-native-sdk" {
 
     export type DataTrackEventCb = (t: DataTrackEventCbArgs) => void;
 
+    export interface DataTrackMessagesEventArgs {
+        trackSid: string;
+        trackName: string;
+        messages: { message?: string; payloadBase64?: string; isBinary: boolean; topic?: string }[];
+    }
+
+    export type DataTrackSpec = {
+        name: string;
+        /** Defaults to true */
+        ordered?: boolean;
+        /** Give up retransmitting after this many milliseconds. Set at most one of maxPacketLifeTime and maxRetransmits; with neither the track is reliable. */
+        maxPacketLifeTime?: number;
+        /** Give up after this many retransmits */
+        maxRetransmits?: number;
+    };
+
+    export type DataTrackMessageFilter = {
+        /** Deliver string messages starting with one of these prefixes */
+        topics?: string[];
+        /** Deliver binary messages whose byte at offset (default 0) equals value */
+        binaryTopics?: { name: string; offset?: number; value: number }[];
+    };
+
+    export type DataTrackSendQueueOptions = {
+        /** 0 (default) for no limit */
+        maxMessages?: number;
+        /** 0 (default) for no limit */
+        maxBytes?: number;
+        dropPolicy?: "dropOldest" | "dropNewest" | "latestPerKey";
+        /** Send no faster than this, 0 (default) for no limit */
+        maxBytesPerSecond?: number;
+    };
+
+    export type DataTrackSendQueueStats = {
+        enabled: boolean;
+        policy: string;
+        queuedMessages: number;
+        queuedBytes: number;
+        maxQueuedMessages: number;
+        maxQueuedBytes: number;
+        /** Set above 3/4 of either cap, cleared under 1/4 */
+        backpressure: boolean;
+        enqueued: number;
+        sent: number;
+        droppedOldest: number;
+        droppedNewest: number;
+        /** Messages replaced by a newer one with the same key */
+        superseded: number;
+    };
+
+    export type LocalDataTrackStats = {
+        name: string;
+        ordered: boolean;
+        maxPacketLifeTime?: number;
+        maxRetransmits?: number;
+        /** Messages passed to sendString and sendBinary */
+        messagesSent: number;
+        messagesFramed: number;
+        /** Messages sent on their own, without a batch window or too large for an envelope */
+        messagesSentAlone: number;
+        envelopesSent: number;
+        /** Messages actually sent on the data track: envelopes plus messages sent on their own */
+        dataTrackMessagesSent: number;
+        messagesPerDataTrackMessage: number;
+        envelopeBytesSent: number;
+        /** Envelope header and per-message length prefixes, in bytes per framed message */
+        framingOverheadBytesPerMessage: number;
+        sendQueue: DataTrackSendQueueStats;
+    };
+
+    export type DataTrackStatsEventArgs = {
+        envelopesReceived: number;
+        messagesUnpacked: number;
+        /** Counters since dataTrackMessageFilter was last set */
+        filter?: {
+            topics: { topic: string; isBinary: boolean; messages: number; bytes: number }[];
+            droppedMessages: number;
+            droppedBytes: number;
+        };
+        /** Received messages per participant in the room, the ones that sent the most bytes first */
+        remote: {
+            /** Subscribed remote data tracks */
+            tracks: number;
+            participants: RemoteDataTrackSenderStats[];
+        };
+        tracks: LocalDataTrackStats[];
+    };
+
+    export type RemoteDataTrackSenderStats = {
+        participantSid: string;
+        identity: string;
+        /** Subscribed data tracks of the participant */
+        tracks: number;
+        /** Counted before dataTrackMessageFilter, from when the participant's first data track was subscribed */
+        messages: number;
+        bytes: number;
+        lastMessageAgoMs?: number;
+        averageInterArrivalMs?: number;
+        minInterArrivalMs?: number;
+        maxInterArrivalMs?: number;
+    };
+
     export interface RoomEventCommonArgs {
         roomName: string;
         roomSid: string;
@@ -191,11 +376,152 @@ declare module "@twilio/video-react-native-sdk" {
         signalingRegion?: string;
     };
 
+    export type EventDispatchStatsEventArgs = {
+        windowMs: number;
+        eventsProduced: number;
+        eventsCoalesced: number;
+        bridgeCrossings: number;
+    };
+
+    /** 0 remote audio, 1 remote video, 2 local audio, 3 local video */
+    export type StatsSampleTrackKind = 0|1|2|3;
+
+    export type StatsSampleRecord = [
+        kind: StatsSampleTrackKind,
+        trackSid: string,
+        bitrateKbps: number,
+        packetLossPercent: number,
+        frameRate: number,
+        frameRateDelta: number,
+        jitter: number,
+        jitterDelta: number,
+        roundTripTime: number,
+        width: number,
+        height: number,
+    ];
+
+    export type StatsSampleEventArgs = {
+        timestamp: number;
+        intervalMs: number;
+        /** Only tracks with a value that changed since they were last reported */
+        records: StatsSampleRecord[];
+        /** Sids of tracks that are no longer reported */
+        removed: string[];
+    };
+
+    export type StatsHistogram = {
+        min: number;
+        binWidth: number;
+        counts: number[];
+    };
+
+    export type StatsMetricSummary = {
+        min?: number;
+        max?: number;
+        mean?: number;
+        p50?: number;
+        p95?: number;
+        p99?: number;
+        histogram?: StatsHistogram;
+    };
+
+    export type StatsHistorySummaryEventArgs = {
+        /** Samples kept per track */
+        capacity: number;
+        intervalMs: number;
+        tracks: {
+            trackSid: string;
+            kind: StatsSampleTrackKind;
+            samples: number;
+            /** Only the metrics the kind of track reports: jitter and audioLevel for audio, frameRate for video, roundTripTime for local tracks */
+            metrics: {
+                /** Packets lost per interval */
+                packetsLost: StatsMetricSummary;
+                bitrateKbps: StatsMetricSummary;
+                jitter?: StatsMetricSummary;
+                frameRate?: StatsMetricSummary;
+                roundTripTime?: StatsMetricSummary;
+                audioLevel?: StatsMetricSummary;
+            };
+        }[];
+    };
+
+    export type CodecInfo = {
+        name: string;
+        /** Profile parameters, e.g. profile-level-id for H264 */
+        params: { [key: string]: string };
+    };
+
+    export type CodecCapabilitiesEventArgs = {
+        encoders: CodecInfo[];
+        decoders: CodecInfo[];
+        h264Supported: boolean;
+        probeDurationMs: number;
+    };
+
+    export type VideoAdaptationChangedEventArgs = {
+        direction: "up" | "down";
+        /** networkQuality, encoderFrameRate, captureFrameRate, cpu, thermal or recovered */
+        reason: string;
+        level: number;
+        previousLevel: number;
+        levels: number;
+        width: number;
+        height: number;
+        frameRate: number;
+        /** Local network quality level, -1 if not reported */
+        networkQualityLevel: number;
+        /** Share of all cores used by the app, -1 if not sampled yet */
+        cpuLoad: number;
+        /** PowerManager thermal status */
+        thermalStatus: number;
+        capturedFrameRate?: number;
+        sentFrameRate?: number;
+        sentWidth?: number;
+        sentHeight?: number;
+    };
+
+    export type JoinTimelineEventArgs = {
+        /** Why the report was sent: complete, timeout, connectFailure or disconnected. Not set when requested with getJoinTimeline before that. */
+        outcome?: "complete" | "timeout" | "connectFailure" | "disconnected";
+        /** Wall clock time the join started, in ms since the epoch */
+        startedAt: number;
+        /** Milliseconds from the start of the join to each phase reached: prepareStarted, prepared, connectInvoked, localTracksCreated, codecsDetected, connectStarted, connected, firstRemoteFrame */
+        phases: { [phase: string]: number };
+        /** Remote participants, with the offset they connected at (or were found on connect) */
+        participants: { sid: string; connected: number }[];
+        /** Remote video tracks, with the offsets they were subscribed and first rendered at */
+        videoTracks: { trackSid: string; participantSid?: string; subscribed?: number; firstFrame?: number }[];
+        timeToFirstRemoteFrameMs?: number;
+    };
+
+    export type MediaExecutorStatsEventArgs = {
+        /** Commands queued and not finished yet */
+        pending: number;
+        maxPending: number;
+        /** Per command or lifecycle callback, e.g. connectToRoom or onHostResume */
+        commands: {
+            name: string;
+            count: number;
+            averageQueueMs: number;
+            maxQueueMs: number;
+            averageRunMs: number;
+            maxRunMs: number;
+        }[];
+    };
+
+    export type PreparedEventArgs = {
+        audioPrepared: boolean;
+        videoPrepared: boolean;
+        timeline: JoinTimelineEventArgs;
+    };
+
     export type TwilioVideoProps = ViewProps&{
         onCameraDidStart?: () => void;
         onCameraWasInterrupted?: (args?: {reason?: string}) => void;
         onCameraInterruptionEnded?: () => void;
         onCameraDidStopRunning?: (args?: {error?: string}) => void;
+        onCameraResumed?: (args: {backgroundVideoPolicy: "release" | "pause"; resumeLatencyMs: number; backgroundDurationMs?: number}) => void;
         onCameraSwitched?: (args: {isBackCamera: boolean}) => void;
         onVideoChanged?: (args: {videoEnabled: boolean}) => void;
         onAudioChanged?: (args: {audioEnabled: boolean}) => void;
@@ -243,6 +569,29 @@ declare module "@twilio/video-react-native-sdk" {
 
         onStatsReceived?: (data: any) => void;
         onDataTrackMessageReceived?: DataTrackEventCb;
+        // Android only
+        /** Window in milliseconds over which native events are batched and coalesced. 0 (default) disables batching. */
+        eventBatchWindowMs?: number;
+        /** Window in milliseconds over which data track messages are packed into one data track message, and received ones unpacked. Not negotiated: every participant in the room must run this Android module with it set, iOS and web peers receive opaque binary. 0 (default) sends and receives each message on its own. */
+        dataTrackBatchWindowMs?: number;
+        /** Called with the messages of a received envelope. When not set, onDataTrackMessageReceived is called for each message. */
+        onDataTrackMessagesReceived?: (e: DataTrackMessagesEventArgs) => void;
+        onDataTrackStats?: (e: DataTrackStatsEventArgs) => void;
+        /** Queue data track messages natively with caps and a drop policy. Not set (default) sends each message straight away. */
+        dataTrackSendQueue?: DataTrackSendQueueOptions;
+        /** Drop received data track messages of other topics before they reach JS */
+        dataTrackMessageFilter?: DataTrackMessageFilter;
+        onDataTrackBackpressure?: (e: DataTrackSendQueueStats & { trackName: string }) => void;
+        /** Session the room and local tracks belong to, shared with the preview views that set the same sessionId. Defaults to the default session. */
+        sessionId?: string;
+        onEventDispatchStats?: (e: EventDispatchStatsEventArgs) => void;
+        onStatsSample?: (e: StatsSampleEventArgs) => void;
+        onStatsHistorySummary?: (e: StatsHistorySummaryEventArgs) => void;
+        onCodecCapabilities?: (e: CodecCapabilitiesEventArgs) => void;
+        onVideoAdaptationChanged?: (e: VideoAdaptationChangedEventArgs) => void;
+        onPrepared?: (e: PreparedEventArgs) => void;
+        onJoinTimeline?: (e: JoinTimelineEventArgs) => void;
+        onMediaExecutorStats?: (e: MediaExecutorStatsEventArgs) => void;
         // iOS only
         // DEPRECATED: Only available on iOS and will be removed in a future release
         autoInitializeCamera?: boolean;
@@ -294,6 +643,16 @@ declare module "@twilio/video-react-native-sdk" {
         videoFormat?: VideoFormat | null;
         /** Twilio signaling region (e.g. 'gll', 'us1', 'us2', 'au1', 'br1', 'de1', 'ie1', 'in1', 'jp1', 'sg1') */
         region?: string | null;
+        /** Switch remote video tracks off while no participant view shows them, and request them at the size they are rendered at. */
+        enableBandwidthHints?: boolean;
+        /** Capture through the Camera2 API when the device supports it, Camera1 otherwise. */
+        enableCamera2?: boolean;
+        /** Step the camera capture format down and back up as network quality, sent frame rate, CPU and thermal load change. Network quality is only used with enableNetworkQualityReporting. */
+        enableVideoAdaptation?: boolean;
+        /** Camera track handling in background: release and recreate it, keep it published but paused, or keep capturing. Defaults to 'maintain' or 'release' per maintainVideoTrackInBackground. */
+        backgroundVideoPolicy?: "release" | "pause" | "maintain" | null;
+        /** Local data tracks to publish, each with its own reliability. An entry named 'data' replaces the track of enableDataTrack. */
+        dataTracks?: DataTrackSpec[] | null;
     };
 
     class TwilioVideo extends React.Component<TwilioVideoProps> {
@@ -312,16 +671,35 @@ declare module "@twilio/video-react-native-sdk" {
         unpublishLocalAudio: () => void;
         publishLocalVideo: () => void;
         unpublishLocalVideo: () => void;
-        sendString: (message: string) => void;
-        sendBinary: (base64Payload: string) => void;
+        /** options.key is used by the latestPerKey drop policy, options.trackName picks the data track (default 'data'), both on Android */
+        sendString: (message: string, options?: { key?: string; trackName?: string }) => void;
+        sendBinary: (base64Payload: string, options?: { key?: string; trackName?: string }) => void;
         fetchRoom: () => void;
+        // Android only
+        getEventDispatchStats: () => void;
+        startStatsSampling: (intervalMs?: number, options?: { historySeconds?: number; emitSamples?: boolean }) => void;
+        stopStatsSampling: () => void;
+        getStatsHistorySummary: () => void;
+        getCodecCapabilities: () => void;
+        prepare: (params?: { cameraType?: cameraType; enableAudio?: boolean; enableVideo?: boolean; videoFormat?: VideoFormat | null; enableCamera2?: boolean }) => void;
+        getJoinTimeline: () => void;
+        getMediaExecutorStats: () => void;
+        getDataTrackStats: () => void;
+        addDataTrack: (spec: DataTrackSpec) => void;
+        removeDataTrack: (name: string) => void;
     }
 
-    class TwilioVideoLocalView extends React.Component<TwilioVideoLocalViewProps> {}
+    class TwilioVideoLocalView extends React.Component<TwilioVideoLocalViewProps> {
+        // Android only
+        getRenderStats: () => void;
+    }
 
     class TwilioVideoScreenShareView extends React.Component<TwilioVideoScreenShareViewProps> {}
 
-    class TwilioVideoParticipantView extends React.Component<TwilioVideoParticipantViewProps> {}
+    class TwilioVideoParticipantView extends React.Component<TwilioVideoParticipantViewProps> {
+        // Android only
+        getRenderStats: () => void;
+    }
 
     export {
         TwilioVideoLocalView,
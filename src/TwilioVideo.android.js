@@ -78,6 +78,12 @@ const propTypes = {
    * @param {{error: string}} The error message description
    */
   onCameraDidStopRunning: PropTypes.func,
+  /**
+   * Called when the camera delivers its first frame after the app returns to the foreground.
+   *
+   * @param {{backgroundVideoPolicy: string, resumeLatencyMs: number, backgroundDurationMs?: number}}
+   */
+  onCameraResumed: PropTypes.func,
 
   /**
     * Callback that is called when audio is toggled.
@@ -247,10 +253,18 @@ const propTypes = {
   /**
     * Called when a dataTrack receives a message
     *
-    * @param {{message: string, trackSid: string}}
+    * @param {{message: string, trackSid: string, trackName: string, topic?: string}}
     */
   onDataTrackMessageReceived: PropTypes.func,
 
+  /**
+    * Called with the messages of an envelope sent with dataTrackBatchWindowMs. When not set,
+    * onDataTrackMessageReceived is called for each message instead
+    *
+    * @param {{trackSid: string, trackName: string, messages: Array<{message?: string, payloadBase64?: string, isBinary: boolean, topic?: string}>}}
+    */
+  onDataTrackMessagesReceived: PropTypes.func,
+
   /**
     * Called when a new video track has been added
     *
@@ -346,6 +360,128 @@ const propTypes = {
     * @param {{transcription: string, participant: string, track: string, partialResults: boolean, stability?: number, languageCode: string, timestamp: string, sequenceNumber: number}}
     */
   onTranscriptionReceived: PropTypes.func,
+  /**
+    * Window in milliseconds over which native events are collected and delivered to JS in a
+    * single batch. Superseded network quality, track enabled/disabled and dominant speaker
+    * events within a window are coalesced into the latest one. 0 (default) disables batching.
+    */
+  eventBatchWindowMs: PropTypes.number,
+  /**
+    * Window in milliseconds over which sendString and sendBinary messages are packed into a
+    * single data track message, and received envelopes unpacked. Applies to each local data
+    * track separately. Framing is not negotiated: every participant in the room must run this
+    * Android module with dataTrackBatchWindowMs set. iOS and web peers receive the envelopes as
+    * opaque binary, with text messages inside them. 0 (default) sends and receives each message
+    * on its own.
+    */
+  dataTrackBatchWindowMs: PropTypes.number,
+  /**
+    * Queue sendString and sendBinary messages natively, with at most maxMessages messages and
+    * maxBytes bytes (0 for no limit) and optionally sent no faster than maxBytesPerSecond. When
+    * full, dropPolicy 'dropOldest' (default) drops the oldest messages, 'dropNewest' drops the
+    * new one, and 'latestPerKey' replaces the queued message with the same key. Each local data
+    * track has its own queue. Not set (default) sends each message straight away.
+    */
+  dataTrackSendQueue: PropTypes.shape({
+    maxMessages: PropTypes.number,
+    maxBytes: PropTypes.number,
+    dropPolicy: PropTypes.oneOf(["dropOldest", "dropNewest", "latestPerKey"]),
+    maxBytesPerSecond: PropTypes.number,
+  }),
+  /**
+    * Only deliver received data track messages of these topics, dropping the others natively:
+    * string messages starting with one of the topics prefixes, and binary messages whose byte
+    * at offset (default 0) equals value. Delivered messages carry the topic they matched. A kind
+    * of message without topics is not filtered. Not set (default) delivers every message.
+    */
+  dataTrackMessageFilter: PropTypes.shape({
+    topics: PropTypes.arrayOf(PropTypes.string),
+    binaryTopics: PropTypes.arrayOf(
+      PropTypes.shape({
+        name: PropTypes.string.isRequired,
+        offset: PropTypes.number,
+        value: PropTypes.number.isRequired,
+      })
+    ),
+  }),
+  /**
+    * Callback that is called when the send queue of a data track goes above 3/4 of its caps,
+    * and when it is back under 1/4, to slow down or resume sending
+    *
+    * @param {{trackName: string, backpressure: boolean, queuedMessages: number, queuedBytes: number, droppedOldest: number, droppedNewest: number, superseded: number}}
+    */
+  onDataTrackBackpressure: PropTypes.func,
+  /**
+    * Session the room and local tracks of this view belong to. Preview views with the same
+    * sessionId render its tracks, so several rooms can be connected side by side. Views without
+    * a sessionId share the default session. Changes are ignored while connected.
+    */
+  sessionId: PropTypes.string,
+  /**
+    * Callback that is called with event dispatch counters (after calling getEventDispatchStats)
+    *
+    * @param {{windowMs: number, eventsProduced: number, eventsCoalesced: number, bridgeCrossings: number}}
+    */
+  onEventDispatchStats: PropTypes.func,
+  /**
+    * Callback that is called with changed per-track stats (after calling startStatsSampling).
+    * Each record is a fixed-layout array:
+    * [kind, trackSid, bitrateKbps, packetLossPercent, frameRate, frameRateDelta,
+    *  jitter, jitterDelta, roundTripTime, width, height]
+    * where kind is 0 remote audio, 1 remote video, 2 local audio, 3 local video.
+    *
+    * @param {{timestamp: number, intervalMs: number, records: Array, removed: string[]}}
+    */
+  onStatsSample: PropTypes.func,
+  /**
+    * Callback that is called with per-track percentiles and histograms of the recorded stats
+    * history (after calling getStatsHistorySummary)
+    *
+    * @param {{capacity: number, intervalMs: number, tracks: Array}}
+    */
+  onStatsHistorySummary: PropTypes.func,
+  /**
+    * Callback that is called with the hardware codecs supported by the device
+    * (after calling getCodecCapabilities)
+    *
+    * @param {{encoders: Array, decoders: Array, h264Supported: boolean, probeDurationMs: number}}
+    */
+  onCodecCapabilities: PropTypes.func,
+  /**
+    * Callback that is called when the local camera capture format is stepped up or down
+    * (when connected with enableVideoAdaptation)
+    *
+    * @param {{direction: string, reason: string, level: number, previousLevel: number, width: number, height: number, frameRate: number}}
+    */
+  onVideoAdaptationChanged: PropTypes.func,
+  /**
+    * Callback that is called when prepare has finished
+    *
+    * @param {{audioPrepared: boolean, videoPrepared: boolean, timeline: Object}}
+    */
+  onPrepared: PropTypes.func,
+  /**
+    * Callback that is called with the timing report of a join, once per join when every
+    * subscribed remote video track has rendered, 15s after connecting, or when the join ends,
+    * and after calling getJoinTimeline
+    *
+    * @param {{outcome?: string, startedAt: number, phases: Object, participants: Array, videoTracks: Array, timeToFirstRemoteFrameMs?: number}}
+    */
+  onJoinTimeline: PropTypes.func,
+  /**
+    * Callback that is called with the time commands waited and ran on the media thread, after
+    * calling getMediaExecutorStats
+    *
+    * @param {{pending: number, maxPending: number, commands: Array}}
+    */
+  onMediaExecutorStats: PropTypes.func,
+  /**
+    * Callback that is called with the data track send and receive counters, after calling
+    * getDataTrackStats
+    *
+    * @param {{envelopesReceived: number, messagesUnpacked: number, filter?: {topics: Array<{topic: string, isBinary: boolean, messages: number, bytes: number}>, droppedMessages: number, droppedBytes: number}, remote: {tracks: number, participants: Array<{participantSid: string, identity: string, tracks: number, messages: number, bytes: number, lastMessageAgoMs?: number, averageInterArrivalMs?: number, minInterArrivalMs?: number, maxInterArrivalMs?: number}>}, tracks: Array<{name: string, ordered: boolean, maxPacketLifeTime?: number, maxRetransmits?: number, messagesSent: number, messagesFramed: number, messagesSentAlone: number, envelopesSent: number, dataTrackMessagesSent: number, messagesPerDataTrackMessage: number, envelopeBytesSent: number, framingOverheadBytesPerMessage: number, sendQueue: Object}>}}
+    */
+  onDataTrackStats: PropTypes.func,
 };
 
 const nativeEvents = {
@@ -368,6 +504,17 @@ const nativeEvents = {
   toggleDataTrack: 17,
   sendBinary: 18,
   fetchRoom: 19,
+  getEventDispatchStats: 20,
+  startStatsSampling: 21,
+  stopStatsSampling: 22,
+  getStatsHistorySummary: 23,
+  getCodecCapabilities: 24,
+  prepare: 25,
+  getJoinTimeline: 26,
+  getMediaExecutorStats: 27,
+  getDataTrackStats: 28,
+  addDataTrack: 29,
+  removeDataTrack: 30,
 };
 
 class CustomTwilioVideoView extends Component {
@@ -384,12 +531,17 @@ class CustomTwilioVideoView extends Component {
    * @param {boolean} [params.enableNetworkQualityReporting=false] - Whether to enable network quality reporting
    * @param {boolean} [params.dominantSpeakerEnabled=false] - Whether to enable dominant speaker detection
    * @param {boolean} [params.maintainVideoTrackInBackground=false] - Whether to maintain video track in background
+   * @param {string} [params.backgroundVideoPolicy] - What to do with the camera track in background: 'release' (unpublish and release it), 'pause' (keep it published but disabled, with capture stopped) or 'maintain' (keep capturing). Overrides maintainVideoTrackInBackground when set
    * @param {Object} [params.encodingParameters={}] - Video encoding parameters
    * @param {boolean} [params.encodingParameters.enableH264Codec=false] - Whether to use H264 codec
    * @param {boolean} [params.encodingParameters.enableSimulcast=false] - Whether to enable VP8 simulcast (ignored when H264 is enabled)
    * @param {boolean} [params.enableDataTrack=false] - Whether to enable data track
    * @param {boolean} [params.receiveTranscriptions=false] - Whether to receive transcription events
    * @param {Object} [params.videoFormat=null] - Video capture format { width, height, frameRate }
+   * @param {boolean} [params.enableBandwidthHints=false] - Whether to switch off and size remote video tracks based on the views rendering them
+   * @param {boolean} [params.enableCamera2=false] - Whether to capture through the Camera2 API when the device supports it
+   * @param {boolean} [params.enableVideoAdaptation=false] - Whether to step the camera capture format down and up with network quality, frame rate, CPU and thermal load
+   * @param {Array<{name: string, ordered?: boolean, maxPacketLifeTime?: number, maxRetransmits?: number}>} [params.dataTracks] - Local data tracks to publish, each with its own reliability. Set at most one of maxPacketLifeTime and maxRetransmits; with neither the track is reliable. An entry named 'data' replaces the track of enableDataTrack
    */
   connect({
     roomName,
@@ -406,6 +558,11 @@ class CustomTwilioVideoView extends Component {
     enableDataTrack = false,
     receiveTranscriptions = false,
     videoFormat = null,
+    enableBandwidthHints = false,
+    enableCamera2 = false,
+    enableVideoAdaptation = false,
+    backgroundVideoPolicy = null,
+    dataTracks = null,
   }) {
     this.runCommand(nativeEvents.connectToRoom, [
       roomName,
@@ -422,23 +579,34 @@ class CustomTwilioVideoView extends Component {
       enableDataTrack,
       receiveTranscriptions,
       videoFormat,
+      enableBandwidthHints,
+      enableCamera2,
+      enableVideoAdaptation,
+      backgroundVideoPolicy,
+      dataTracks,
     ]);
   }
 
   /**
    * Send a string message via data track
    * @param {string} message - The message string to send
+   * @param {Object} [options={}]
+   * @param {string} [options.key] - State the message updates, for the latestPerKey drop policy
+   * @param {string} [options.trackName='data'] - Local data track to send the message on
    */
-  sendString(message) {
-    this.runCommand(nativeEvents.sendString, [message]);
+  sendString(message, { key = null, trackName = null } = {}) {
+    this.runCommand(nativeEvents.sendString, [message, key, trackName]);
   }
 
   /**
    * Send a Base64-encoded binary payload via data track
    * @param {string} base64Payload
+   * @param {Object} [options={}]
+   * @param {string} [options.key] - State the message updates, for the latestPerKey drop policy
+   * @param {string} [options.trackName='data'] - Local data track to send the payload on
    */
-  sendBinary(base64Payload) {
-    this.runCommand(nativeEvents.sendBinary, [base64Payload]);
+  sendBinary(base64Payload, { key = null, trackName = null } = {}) {
+    this.runCommand(nativeEvents.sendBinary, [base64Payload, key, trackName]);
   }
 
   /**
@@ -571,6 +739,120 @@ class CustomTwilioVideoView extends Component {
     this.runCommand(nativeEvents.fetchRoom, []);
   }
 
+  /**
+   * Get counters for events produced natively versus bridge crossings made
+   */
+  getEventDispatchStats() {
+    this.runCommand(nativeEvents.getEventDispatchStats, []);
+  }
+
+  /**
+   * Sample stats natively every intervalMs and deliver only changed tracks through onStatsSample
+   * @param {number} [intervalMs=1000] - Sampling interval in milliseconds
+   * @param {Object} [options={}]
+   * @param {number} [options.historySeconds=0] - Seconds of samples to keep for getStatsHistorySummary
+   * @param {boolean} [options.emitSamples=true] - Whether to deliver samples through onStatsSample
+   */
+  startStatsSampling(
+    intervalMs = 1000,
+    { historySeconds = 0, emitSamples = true } = {}
+  ) {
+    this.runCommand(nativeEvents.startStatsSampling, [
+      intervalMs,
+      historySeconds,
+      emitSamples,
+    ]);
+  }
+
+  /**
+   * Summarize the recorded stats history, delivered through onStatsHistorySummary
+   */
+  getStatsHistorySummary() {
+    this.runCommand(nativeEvents.getStatsHistorySummary, []);
+  }
+
+  /**
+   * Get the hardware codecs supported by the device, delivered through onCodecCapabilities.
+   * Can be called before connecting.
+   */
+  getCodecCapabilities() {
+    this.runCommand(nativeEvents.getCodecCapabilities, []);
+  }
+
+  /**
+   * Create the local tracks, probe codecs and set up audio routing ahead of connect, e.g. on a
+   * lobby screen. Pass the same options to connect, which reuses what was prepared.
+   * Completion is reported through onPrepared.
+   * @param {Object} params - Prepare parameters
+   * @param {string} [params.cameraType="front"] - Camera type ('front' or 'back')
+   * @param {boolean} [params.enableAudio=true] - Whether to create the local audio track
+   * @param {boolean} [params.enableVideo=true] - Whether to create the local camera track
+   * @param {Object} [params.videoFormat=null] - Video capture format { width, height, frameRate }
+   * @param {boolean} [params.enableCamera2=false] - Whether to capture through the Camera2 API when the device supports it
+   */
+  prepare({
+    cameraType = "front",
+    enableAudio = true,
+    enableVideo = true,
+    videoFormat = null,
+    enableCamera2 = false,
+  } = {}) {
+    this.runCommand(nativeEvents.prepare, [
+      cameraType,
+      enableAudio,
+      enableVideo,
+      videoFormat ? videoFormat.width : 0,
+      videoFormat ? videoFormat.height : 0,
+      videoFormat ? videoFormat.frameRate : 0,
+      enableCamera2,
+    ]);
+  }
+
+  /**
+   * Get the phase timestamps of the current join, delivered through onJoinTimeline
+   */
+  getJoinTimeline() {
+    this.runCommand(nativeEvents.getJoinTimeline, []);
+  }
+
+  /**
+   * Get the queueing and run times of the commands on the media thread, delivered through
+   * onMediaExecutorStats
+   */
+  getMediaExecutorStats() {
+    this.runCommand(nativeEvents.getMediaExecutorStats, []);
+  }
+
+  /**
+   * Get the data track send and receive counters, delivered through onDataTrackStats
+   */
+  getDataTrackStats() {
+    this.runCommand(nativeEvents.getDataTrackStats, []);
+  }
+
+  /**
+   * Create a local data track and publish it when connected, replacing the one with the same name
+   * @param {{name: string, ordered?: boolean, maxPacketLifeTime?: number, maxRetransmits?: number}} spec
+   */
+  addDataTrack(spec) {
+    this.runCommand(nativeEvents.addDataTrack, [spec]);
+  }
+
+  /**
+   * Unpublish and release a local data track
+   * @param {string} name
+   */
+  removeDataTrack(name) {
+    this.runCommand(nativeEvents.removeDataTrack, [name]);
+  }
+
+  /**
+   * Stop sampling stats
+   */
+  stopStatsSampling() {
+    this.runCommand(nativeEvents.stopStatsSampling, []);
+  }
+
   /**
    * Disable OpenSL ES audio
    */
@@ -636,6 +918,7 @@ class CustomTwilioVideoView extends Component {
       "onCameraWasInterrupted",
       "onCameraInterruptionEnded",
       "onCameraDidStopRunning",
+      "onCameraResumed",
       "onRecordingStarted",
       "onRecordingStopped",
       "onLocalAudioTrackPublished",
@@ -654,6 +937,16 @@ class CustomTwilioVideoView extends Component {
       "onRemoteDataTrackUnpublished",
       "onRemoteDataTrackSubscriptionFailed",
       "onTranscriptionReceived",
+      "onEventDispatchStats",
+      "onStatsSample",
+      "onStatsHistorySummary",
+      "onCodecCapabilities",
+      "onVideoAdaptationChanged",
+      "onPrepared",
+      "onJoinTimeline",
+      "onMediaExecutorStats",
+      "onDataTrackStats",
+      "onDataTrackBackpressure",
     ].reduce((wrappedEvents, eventName) => {
       if (this.props[eventName]) {
         return {
@@ -665,12 +958,42 @@ class CustomTwilioVideoView extends Component {
     }, {});
   }
 
+  onEventBatch = (data) => {
+    data.nativeEvent.events.forEach(({ name, data: eventData }) => {
+      if (name === "onDataTrackMessagesReceived") {
+        this.dispatchDataTrackMessages(eventData);
+      } else if (this.props[name]) {
+        this.props[name](eventData);
+      }
+    });
+  };
+
+  onDataTrackMessagesReceived = (data) => {
+    this.dispatchDataTrackMessages(data.nativeEvent);
+  };
+
+  dispatchDataTrackMessages(event) {
+    if (this.props.onDataTrackMessagesReceived) {
+      this.props.onDataTrackMessagesReceived(event);
+    } else if (this.props.onDataTrackMessageReceived) {
+      event.messages.forEach((message) => {
+        this.props.onDataTrackMessageReceived({
+          trackSid: event.trackSid,
+          trackName: event.trackName,
+          ...message,
+        });
+      });
+    }
+  }
+
   render() {
     return (
       <NativeCustomTwilioVideoView
         ref={c => { this._videoView = c; }}
         {...this.props}
         {...this.buildNativeEventWrappers()}
+        onEventBatch={this.onEventBatch}
+        onDataTrackMessagesReceived={this.onDataTrackMessagesReceived}
       />
     );
   }
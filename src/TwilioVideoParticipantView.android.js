@@ -5,7 +5,12 @@
  *   Jonathan Chang <slycoder@gmail.com>
  */
 
-import { requireNativeComponent, View } from "react-native";
+import {
+  requireNativeComponent,
+  View,
+  UIManager,
+  findNodeHandle,
+} from "react-native";
 import PropTypes from "prop-types";
 import React from "react";
 
@@ -17,6 +22,40 @@ import React from "react";
  * @property {number} rotation - Video frame rotation
  */
 
+/**
+ * Render stats callback data structure
+ * @typedef {Object} RenderStatsData
+ * @property {boolean} visible - Whether the view is currently rendering
+ * @property {number} framesReceived - Frames delivered to the view
+ * @property {number} framesRendered - Frames drawn by the view
+ * @property {number} framesSkippedWhileHidden - Frames dropped while off screen
+ * @property {number} framesDroppedByFrameRate - Frames dropped by maxFrameRate
+ * @property {number} framesDownscaled - Frames scaled down before rendering
+ * @property {number} renderFrameRate - Frames rendered per second since the previous stats
+ * @property {number[]} frameIntervalBucketsMs - Upper bounds of the interval histogram buckets, the last bucket is open ended
+ * @property {number[]} frameIntervalHistogram - Intervals between rendered frames per bucket
+ * @property {number} maxFrameIntervalMs - Longest interval between rendered frames
+ * @property {number} jankIntervals - Intervals more than twice the running average
+ * @property {number} [averageFrameLatencyMs] - Average time from a frame's timestamp to the view
+ * @property {number} [maxFrameLatencyMs] - Longest time from a frame's timestamp to the view
+ * @property {boolean} frozen - Whether the video is currently frozen
+ * @property {number} freezeCount - Freezes detected so far
+ * @property {number} totalFreezeDurationMs - Total duration of the freezes so far
+ */
+
+/**
+ * Render freeze callback data structure
+ * @typedef {Object} RenderFreezeData
+ * @property {boolean} frozen - true when the freeze starts, false when frames resume
+ * @property {number} [durationMs] - Duration of the freeze that ended
+ * @property {number} freezeCount - Freezes detected so far
+ * @property {number} totalFreezeDurationMs - Total duration of the freezes so far
+ */
+
+const nativeEvents = {
+  getRenderStats: 1,
+};
+
 class TwilioRemotePreview extends React.Component {
   static propTypes = {
     ...View.propTypes,
@@ -38,16 +77,85 @@ class TwilioRemotePreview extends React.Component {
      */
     onFrameDimensionsChanged: PropTypes.func,
     trackSid: PropTypes.string,
+    /**
+     * The sessionId of the TwilioVideo view whose room the track belongs to.
+     * (default: the default session)
+     * Note: This prop is only supported on Android
+     */
+    sessionId: PropTypes.string,
     /**
      * Whether to apply Z ordering to this view. Setting this to true will cause
      * this view to appear above other Twilio Video views.
      * (default: false)
      */
     applyZOrder: PropTypes.bool,
+    /**
+     * How long in milliseconds the view must stay off screen before it is
+     * detached from its track. Frames are not drawn while hidden either way.
+     * (default: 500)
+     * Note: This prop is only supported on Android
+     */
+    visibilityHysteresisMs: PropTypes.number,
+    /**
+     * Maximum rate in frames per second the view renders at. Extra frames are
+     * dropped before they reach the renderer. 0 renders every frame.
+     * (default: 0)
+     * Note: This prop is only supported on Android
+     */
+    maxFrameRate: PropTypes.number,
+    /**
+     * Maximum rendered resolution relative to the view's size. Frames that are
+     * much larger are scaled down before rendering, e.g. 1 renders at roughly
+     * the view's size. 0 renders at full resolution.
+     * (default: 0)
+     * Note: This prop is only supported on Android
+     */
+    renderResolutionScale: PropTypes.number,
+    /**
+     * Interval in milliseconds at which onRenderStats is called while the view
+     * is mounted. 0 only calls it in response to getRenderStats().
+     * (default: 0)
+     * Note: This prop is only supported on Android
+     */
+    renderStatsIntervalMs: PropTypes.number,
+    /**
+     * Report a freeze through onRenderFreeze once no frame has arrived for this
+     * many milliseconds while the view is on screen, has rendered and its
+     * track is enabled. 0 disables freeze detection.
+     * (default: 0)
+     * Note: This prop is only supported on Android
+     */
+    freezeThresholdMs: PropTypes.number,
+    /**
+     * Callback with the view's render counters, in response to getRenderStats()
+     * and every renderStatsIntervalMs
+     * Note: This callback is only supported on Android
+     *
+     * @param {RenderStatsData} data - Render stats data
+     */
+    onRenderStats: PropTypes.func,
+    /**
+     * Callback when the video freezes and when frames resume, see freezeThresholdMs
+     * Note: This callback is only supported on Android
+     *
+     * @param {RenderFreezeData} data - Render freeze data
+     */
+    onRenderFreeze: PropTypes.func,
   };
 
+  /**
+   * Request the view's render counters, delivered through onRenderStats
+   */
+  getRenderStats() {
+    UIManager.dispatchViewManagerCommand(
+      findNodeHandle(this._nativeView),
+      nativeEvents.getRenderStats,
+      []
+    );
+  }
+
   buildNativeEventWrappers() {
-    return ["onFrameDimensionsChanged"].reduce((wrappedEvents, eventName) => {
+    return ["onFrameDimensionsChanged", "onRenderStats", "onRenderFreeze"].reduce((wrappedEvents, eventName) => {
       if (this.props[eventName]) {
         return {
           ...wrappedEvents,
@@ -65,6 +173,9 @@ class TwilioRemotePreview extends React.Component {
         trackSid={trackIdentifier && trackIdentifier.videoTrackSid}
         {...this.props}
         {...this.buildNativeEventWrappers()}
+        ref={(c) => {
+          this._nativeView = c;
+        }}
       />
     );
   }
@@ -19,6 +19,12 @@ const propTypes = {
    * container.
    */
   scaleType: PropTypes.oneOf(["fit", "fill"]),
+  /**
+   * The sessionId of the TwilioVideo view whose screen share track to render.
+   * (default: the default session)
+   * Note: This prop is only supported on Android
+   */
+  sessionId: PropTypes.string,
 };
 
 class TwilioVideoScreenShareView extends React.Component {